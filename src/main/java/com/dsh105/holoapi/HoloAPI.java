@@ -21,15 +21,23 @@ import com.dsh105.command.CommandManager;
 import com.dsh105.commodus.config.Options;
 import com.dsh105.commodus.config.YAMLConfig;
 import com.dsh105.commodus.logging.Log;
+import com.dsh105.holoapi.api.AnimationScheduler;
 import com.dsh105.holoapi.api.HoloManager;
 import com.dsh105.holoapi.api.HoloUpdater;
+import com.dsh105.holoapi.api.HologramMotionDriver;
+import com.dsh105.holoapi.api.HologramRenderer;
+import com.dsh105.holoapi.api.HologramStreamer;
 import com.dsh105.holoapi.api.TagFormatter;
+import com.dsh105.holoapi.api.TransientHologramManager;
+import com.dsh105.holoapi.api.visibility.VisibilityCache;
 import com.dsh105.holoapi.api.visibility.VisibilityMatcher;
 import com.dsh105.holoapi.config.ConfigType;
+import com.dsh105.holoapi.data.HologramStore;
 import com.dsh105.holoapi.hook.BungeeProvider;
 import com.dsh105.holoapi.hook.VanishProvider;
 import com.dsh105.holoapi.hook.VaultProvider;
 import com.dsh105.holoapi.image.AnimatedImageGenerator;
+import com.dsh105.holoapi.image.ImageCache;
 import com.dsh105.holoapi.image.ImageGenerator;
 import com.dsh105.holoapi.image.ImageLoader;
 
@@ -70,6 +78,17 @@ public class HoloAPI {
         return getCore().HOLO_MANAGER;
     }
 
+    /**
+     * Gets the HoloAPI HologramStore
+     * <p>
+     * The HologramStore holds the saved state of every hologram that isn't simple
+     *
+     * @return HologramStore that holograms are saved to
+     */
+    public static HologramStore getHologramStore() {
+        return getCore().HOLO_MANAGER.getStore();
+    }
+
     /**
      * Gets the HoloAPI Image Loader
      * <p>
@@ -93,6 +112,18 @@ public class HoloAPI {
         return getCore().ANIMATION_LOADER;
     }
 
+    /**
+     * Gets the HoloAPI Image Cache
+     * <p>
+     * The Image Cache stores the lines and frames generated from configured images and animations, so that they don't
+     * have to be generated again on the next start
+     *
+     * @return Image Cache that stores generated image lines and animation frames
+     */
+    public static ImageCache getImageCache() {
+        return getCore().IMAGE_CACHE;
+    }
+
     /**
      * Gets the HoloAPI TagFormatter
      * <p>
@@ -116,10 +147,78 @@ public class HoloAPI {
         return getCore().VISIBILITY_MATCHER;
     }
 
+    /**
+     * Gets the HoloAPI VisibilityCache
+     * <p>
+     * The VisibilityCache remembers which holograms are visible to which players, so that visibilities aren't
+     * evaluated every time a hologram is shown
+     *
+     * @return VisibilityCache that caches hologram visibility
+     */
+    public static VisibilityCache getVisibilityCache() {
+        return getCore().VISIBILITY_CACHE;
+    }
+
     public static HoloUpdater getHoloUpdater() {
         return getCore().HOLO_UPDATER;
     }
 
+    /**
+     * Gets the HoloAPI HologramStreamer
+     * <p>
+     * If streaming is enabled, the HologramStreamer shows and clears holograms as players move in and out of their
+     * view radius
+     *
+     * @return HologramStreamer that streams holograms to nearby players
+     */
+    public static HologramStreamer getHologramStreamer() {
+        return getCore().HOLOGRAM_STREAMER;
+    }
+
+    /**
+     * Gets the HoloAPI AnimationScheduler
+     * <p>
+     * The AnimationScheduler advances the frames of every animated hologram from a single task
+     *
+     * @return AnimationScheduler that runs hologram animations
+     */
+    public static AnimationScheduler getAnimationScheduler() {
+        return getCore().ANIMATION_SCHEDULER;
+    }
+
+    /**
+     * Gets the HoloAPI TransientHologramManager
+     * <p>
+     * The TransientHologramManager shows short lived holograms, such as indicators and chat bubbles
+     *
+     * @return TransientHologramManager that shows short lived holograms
+     */
+    public static TransientHologramManager getTransientHologramManager() {
+        return getCore().TRANSIENT_MANAGER;
+    }
+
+    /**
+     * Gets the HoloAPI HologramMotionDriver
+     * <p>
+     * The HologramMotionDriver moves holograms that have been given a velocity or target location
+     *
+     * @return HologramMotionDriver that moves holograms
+     */
+    public static HologramMotionDriver getMotionDriver() {
+        return getCore().MOTION_DRIVER;
+    }
+
+    /**
+     * Gets the HoloAPI HologramRenderer
+     * <p>
+     * The HologramRenderer renders hologram line updates off the main server thread
+     *
+     * @return HologramRenderer that renders line updates
+     */
+    public static HologramRenderer getHologramRenderer() {
+        return getCore().HOLOGRAM_RENDERER;
+    }
+
     public static CommandManager getCommandManager() {
         return getCore().COMMAND_MANAGER;
     }
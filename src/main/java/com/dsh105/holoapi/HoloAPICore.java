@@ -24,9 +24,16 @@ import com.dsh105.commodus.config.YAMLConfig;
 import com.dsh105.commodus.config.YAMLConfigManager;
 import com.dsh105.commodus.data.Metrics;
 import com.dsh105.commodus.data.Updater;
+import com.dsh105.holoapi.api.AnimationScheduler;
+import com.dsh105.holoapi.api.Hologram;
 import com.dsh105.holoapi.api.HoloUpdater;
+import com.dsh105.holoapi.api.HologramMotionDriver;
+import com.dsh105.holoapi.api.HologramRenderer;
+import com.dsh105.holoapi.api.HologramStreamer;
 import com.dsh105.holoapi.api.SimpleHoloManager;
 import com.dsh105.holoapi.api.TagFormatter;
+import com.dsh105.holoapi.api.TransientHologramManager;
+import com.dsh105.holoapi.api.visibility.VisibilityCache;
 import com.dsh105.holoapi.api.visibility.VisibilityMatcher;
 import com.dsh105.holoapi.command.HoloCommand;
 import com.dsh105.holoapi.command.sub.*;
@@ -37,6 +44,7 @@ import com.dsh105.holoapi.data.DependencyGraphUtil;
 import com.dsh105.holoapi.hook.BungeeProvider;
 import com.dsh105.holoapi.hook.VanishProvider;
 import com.dsh105.holoapi.hook.VaultProvider;
+import com.dsh105.holoapi.image.ImageCache;
 import com.dsh105.holoapi.image.SimpleAnimationLoader;
 import com.dsh105.holoapi.image.SimpleImageLoader;
 import com.dsh105.holoapi.listeners.HoloDataLoadListener;
@@ -47,18 +55,25 @@ import com.dsh105.holoapi.protocol.InjectionManager;
 import com.dsh105.holoapi.script.ScriptLoader;
 import com.dsh105.holoapi.script.ScriptManager;
 import com.dsh105.holoapi.util.Debugger;
+import com.dsh105.holoapi.util.StartupTimings;
+import com.dsh105.holoapi.util.TagIdGenerator;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class HoloAPICore extends JavaPlugin {
 
@@ -66,9 +81,16 @@ public class HoloAPICore extends JavaPlugin {
     protected static SimpleHoloManager HOLO_MANAGER;
     protected static SimpleImageLoader IMAGE_LOADER;
     protected static SimpleAnimationLoader ANIMATION_LOADER;
+    protected static ImageCache IMAGE_CACHE;
     protected static TagFormatter TAG_FORMATTER;
     protected static VisibilityMatcher VISIBILITY_MATCHER;
+    protected static VisibilityCache VISIBILITY_CACHE;
     protected static HoloUpdater HOLO_UPDATER;
+    protected static HologramStreamer HOLOGRAM_STREAMER;
+    protected static AnimationScheduler ANIMATION_SCHEDULER;
+    protected static TransientHologramManager TRANSIENT_MANAGER;
+    protected static HologramMotionDriver MOTION_DRIVER;
+    protected static HologramRenderer HOLOGRAM_RENDERER;
 
     protected static InjectionManager INJECTION_MANAGER;
     protected static ScriptManager SCRIPT_MANAGER;
@@ -94,6 +116,12 @@ public class HoloAPICore extends JavaPlugin {
         if (HOLO_MANAGER != null) {
             HOLO_MANAGER.clearAll();
         }
+        if (TRANSIENT_MANAGER != null) {
+            TRANSIENT_MANAGER.clear();
+        }
+        if (HOLOGRAM_RENDERER != null) {
+            HOLOGRAM_RENDERER.shutdown();
+        }
         if (INJECTION_MANAGER != null) {
             INJECTION_MANAGER.close();
             INJECTION_MANAGER = null;
@@ -122,15 +150,23 @@ public class HoloAPICore extends JavaPlugin {
         } */
 
         HOLO_UPDATER = new HoloUpdater();
+        ANIMATION_SCHEDULER = new AnimationScheduler();
+        MOTION_DRIVER = new HologramMotionDriver();
+        HOLOGRAM_RENDERER = new HologramRenderer(Settings.RENDER_THREADS.getValue());
         TAG_FORMATTER = new TagFormatter();
         VISIBILITY_MATCHER = new VisibilityMatcher();
+        VISIBILITY_CACHE = new VisibilityCache();
         HOLO_MANAGER = new SimpleHoloManager();
+        HOLOGRAM_STREAMER = new HologramStreamer();
+        TRANSIENT_MANAGER = new TransientHologramManager();
+        IMAGE_CACHE = new ImageCache(new File(this.getDataFolder(), "cache" + File.separator + "images"), Settings.IMAGE_CACHE_ENABLED.getValue() ? Settings.IMAGE_CACHE_MAX_SIZE.getValue() * 1024L * 1024L : 0);
         IMAGE_LOADER = new SimpleImageLoader();
         ANIMATION_LOADER = new SimpleAnimationLoader();
 
         this.loadCommands();
 
         manager.registerEvents(new HoloListener(), this);
+        manager.registerEvents(VISIBILITY_CACHE, this);
         manager.registerEvents(new WorldListener(), this);
         manager.registerEvents(new IndicatorListener(), this);
         manager.registerEvents(new HoloDataLoadListener(), this);
@@ -205,6 +241,7 @@ public class HoloAPICore extends JavaPlugin {
         COMMAND_MANAGER.nestCommandsIn(parent, new HideCommand());
         COMMAND_MANAGER.nestCommandsIn(parent, new IdCommand());
         COMMAND_MANAGER.nestCommandsIn(parent, new InfoCommand());
+        COMMAND_MANAGER.nestCommandsIn(parent, new MigrateCommand());
         COMMAND_MANAGER.nestCommandsIn(parent, new MoveCommand());
         COMMAND_MANAGER.nestCommandsIn(parent, new NearbyCommand());
         COMMAND_MANAGER.nestCommandsIn(parent, new ReadTxtCommand());
@@ -243,28 +280,40 @@ public class HoloAPICore extends JavaPlugin {
     public void loadHolograms() {
         HOLO_MANAGER.clearAll();
 
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                IMAGE_LOADER.loadImageConfiguration(getConfig(ConfigType.MAIN));
-                ANIMATION_LOADER.loadAnimationConfiguration(getConfig(ConfigType.MAIN));
-            }
-        }.runTaskAsynchronously(this);
-
-        final ArrayList<String> unprepared = HOLO_MANAGER.loadFileData();
-
-        new BukkitRunnable() {
+        final StartupTimings timings = new StartupTimings();
+        // Images and animations are decoded in parallel. The threads exit once everything submitted has been decoded
+        ExecutorService loaderPool = Executors.newFixedThreadPool(Math.max(1, Settings.LOADING_THREADS.getValue()), new ThreadFactoryBuilder().setNameFormat("HoloAPI Loader Thread #%d").setDaemon(true).build());
+        timings.begin("images");
+        timings.endWhenDone("images", IMAGE_LOADER.loadImageConfiguration(getConfig(ConfigType.MAIN), loaderPool));
+        timings.begin("animations");
+        timings.endWhenDone("animations", ANIMATION_LOADER.loadAnimationConfiguration(getConfig(ConfigType.MAIN), loaderPool));
+        loaderPool.shutdown();
+
+        timings.begin("holograms");
+        List<ListenableFuture<Hologram>> pending = HOLO_MANAGER.loadFileData();
+        timings.end("holograms");
+
+        // Each image hologram is built as soon as its own images are ready, so this only waits for the report
+        timings.begin("image holograms");
+        final AtomicInteger remaining = new AtomicInteger(pending.size() + 1);
+        Runnable finished = new Runnable() {
             @Override
             public void run() {
-                if (HoloAPI.getImageLoader().isLoaded()) {
-                    for (String s : unprepared) {
-                        HOLO_MANAGER.loadFromFile(s);
+                if (remaining.decrementAndGet() == 0) {
+                    timings.end("image holograms");
+                    HoloAPI.LOG.info("Holograms loaded in " + timings.getElapsed() + "ms (" + timings + ")");
+                    int deferred = HOLO_MANAGER.getDeferredCount();
+                    if (deferred > 0) {
+                        HoloAPI.LOG.info(deferred + " holograms will be loaded once a player enters their world");
                     }
-                    HoloAPI.LOG.info("Holograms loaded");
-                    this.cancel();
+                    TagIdGenerator.logStats();
                 }
             }
-        }.runTaskTimer(this, 20 * 5, 20 * 10);
+        };
+        for (ListenableFuture<Hologram> future : pending) {
+            future.addListener(finished, MoreExecutors.sameThreadExecutor());
+        }
+        finished.run();
     }
 
     public void loadConfiguration() {
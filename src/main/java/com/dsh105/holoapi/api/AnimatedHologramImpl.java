@@ -10,29 +10,33 @@ import com.dsh105.holoapi.util.TagIdGenerator;
 
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.Collections;
 
 import static com.google.common.base.Preconditions.*;
 
 public class AnimatedHologramImpl extends HologramImpl implements AnimatedHologram {
 
-    private BukkitTask displayTask;
+    private AnimationScheduler.Entry animation;
     private boolean imageGenerated;
     private String animationKey;
 
     private ArrayList<Frame> frames = new ArrayList<>();
+    // Lines of each frame that differ from the frame before it
+    private String[][] changes;
     private int index = 0;
     private Frame currentFrame;
 
     protected AnimatedHologramImpl(String saveId, String worldName, double x, double y, double z, AnimatedImageGenerator animatedImage) {
-        super(TagIdGenerator.next(animatedImage.getLargestFrame().getImageGenerator().getLines().length * animatedImage.getFrames().size()),
+        super(TagIdGenerator.next(animatedImage.getLargestFrame().getImageGenerator().getLines().length),
                 saveId, worldName, x, y, z, animatedImage.getLargestFrame().getImageGenerator().getLines());
         this.frames.addAll(animatedImage.getFrames());
+        this.changes = new String[this.frames.size()][];
+        for (int i = 0; i < this.changes.length; i++) {
+            this.changes[i] = animatedImage.getChangedLines(i);
+        }
         this.currentFrame = this.getCurrent();
         this.animate();
         this.imageGenerated = true;
@@ -40,9 +44,13 @@ public class AnimatedHologramImpl extends HologramImpl implements AnimatedHologr
     }
 
     protected AnimatedHologramImpl(String saveId, String worldName, double x, double y, double z, AnimatedTextGenerator textGenerator) {
-        super(TagIdGenerator.next(textGenerator.getLargestFrame().getLines().length * textGenerator.getFrames().size()),
+        super(TagIdGenerator.next(textGenerator.getLargestFrame().getLines().length),
                 saveId, worldName, x, y, z, textGenerator.getLargestFrame().getLines());
         this.frames.addAll(textGenerator.getFrames());
+        this.changes = new String[this.frames.size()][];
+        for (int i = 0; i < this.changes.length; i++) {
+            this.changes[i] = textGenerator.getChangedLines(i);
+        }
         this.currentFrame = this.getCurrent();
         this.animate();
     }
@@ -101,34 +109,61 @@ public class AnimatedHologramImpl extends HologramImpl implements AnimatedHologr
         if (this.isAnimating()) {
             this.cancelAnimation();
         }
-        this.displayTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                runAnimation();
+        // The first frame change happens straight away, as it did when each hologram had its own task
+        this.animation = HoloAPI.getAnimationScheduler().schedule(this, 0);
+    }
+
+    /**
+     * Moves to the next frame and shows it to every viewer. Called by the {@link com.dsh105.holoapi.api.AnimationScheduler}
+     *
+     * @return delay in ticks until the frame after this one
+     */
+    int advance() {
+        currentFrame = next();
+        String[] lines = this.getChangedLines();
+        // Nothing is sent at all if the frame looks the same as the one before it
+        if (lines != null) {
+            updateNametags(getViewers(), lines);
+        }
+        return currentFrame.getDelay();
+    }
+
+    /**
+     * Gets the lines of the current frame that need to be sent to viewers. These are the lines that differ from the
+     * previous frame, as well as any line containing tags, as their values may have changed since
+     *
+     * @return lines to send, where lines that are left as they are are null, or null if there is nothing to send
+     */
+    private String[] getChangedLines() {
+        String[] lines = currentFrame.getLines();
+        String[] changed = this.changes[this.index];
+        TagFormatter formatter = HoloAPI.getTagFormatter();
+        String[] update = null;
+        for (int i = 0; i < lines.length; i++) {
+            String line = i < changed.length ? changed[i] : null;
+            if (line == null && lines[i] != null && !formatter.isStatic(lines[i])) {
+                line = lines[i];
             }
-        }.runTaskTimer(HoloAPI.getCore(), 0L, currentFrame.getDelay());
-    }
-
-    private void runAnimation() {
-        for (Map.Entry<String, Vector> entry : getPlayerViews().entrySet()) {
-            final Player p = IdentUtil.getPlayerOf(entry.getKey());
-            if (p != null) {
-                currentFrame = next();
-                updateAnimation(p, currentFrame.getLines());
+            if (line != null) {
+                if (update == null) {
+                    update = new String[lines.length];
+                }
+                update[i] = line;
             }
         }
+        return update;
     }
 
     @Override
     public boolean isAnimating() {
-        return this.displayTask != null;
+        return this.animation != null;
     }
 
     @Override
     public void cancelAnimation() {
-        if (this.displayTask != null) {
-            this.displayTask.cancel();
-            this.displayTask = null;
+        if (this.animation != null) {
+            this.animation.cancel();
+            this.animation = null;
         }
     }
 
@@ -141,9 +176,7 @@ public class AnimatedHologramImpl extends HologramImpl implements AnimatedHologr
     @Override
     public void updateAnimation(Player observer, String... lines) {
         checkNotNull(observer, "The Player object is null in AnimatedHologramImpl#updateAnimation(...)");
-        for (int index = 0; index < lines.length; index++) {
-            this.updateNametag(observer, lines[index], index);
-        }
+        this.updateNametags(Collections.singletonList(observer), lines);
     }
 
     @Override
@@ -165,6 +198,16 @@ public class AnimatedHologramImpl extends HologramImpl implements AnimatedHologr
         this.showAnimation(observer, x, y, z, currentFrame.getLines());
     }
 
+    @Override
+    public void show(Player observer, double x, double y, double z, boolean obeyVisibility) {
+        checkNotNull(observer, "The Player object is null in AnimatedHologramImpl#show(Player, double, double, double, boolean)");
+        if (obeyVisibility && !HoloAPI.getVisibilityCache().isVisibleTo(observer, this)) {
+            return;
+        }
+        // Only changed lines are sent as the animation plays, so new viewers must start from the current frame
+        this.showAnimation(observer, x, y, z, currentFrame.getLines());
+    }
+
     @Override
     public void showAnimation(Player observer, String... lines) {
         checkNotNull(observer, "The Player object is null in AnimatedHologramImpl#showAnimation(Player, String...)");
@@ -184,15 +227,17 @@ public class AnimatedHologramImpl extends HologramImpl implements AnimatedHologr
         for (int index = 0; index < lines.length; index++) {
             this.generate(observer, lines[index], index, -index * Settings.VERTICAL_LINE_SPACING.getValue(), x, y, z);
         }
-        this.playerToLocationMap.put(IdentUtil.getIdentificationForAsString(observer), new Vector(x, y, z));
+        this.playerToLocationMap.put(IdentUtil.getIdentificationForAsString(observer), this.toViewLocation(x, y, z));
+        if (this.motion != null) {
+            this.motion.forceKeyframe = true;
+        }
     }
 
     @Override
     public void move(Player observer, Vector to) {
         checkNotNull(observer, "The Player object is null in AnimatedHologramImpl#move(Player, Vector)");
         checkNotNull(to, "The Vector object is null in AnimatedHologramImpl#move(Player, Vector)");
-        this.cancelAnimation();
+        // The animation keeps running through the shared scheduler while the hologram moves
         super.move(observer, to);
-        this.animate();
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dsh105.holoapi.api;
+
+import com.dsh105.holoapi.HoloAPI;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Advances every {@link com.dsh105.holoapi.api.AnimatedHologram} from a single task
+ * <p>
+ * Animations are kept in a timing wheel, with one slot per tick, keyed by the tick their next frame is due. Each tick
+ * only the animations in the current slot are looked at, and each is rescheduled using the delay of the frame it moved
+ * to. All frame updates for a tick are queued together and sent in the same flush
+ */
+public class AnimationScheduler extends BukkitRunnable {
+
+    // Must be a power of two. Delays longer than this simply stay in their slot for more than one rotation
+    private static final int WHEEL_SIZE = 256;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final ArrayList<Entry>[] wheel;
+    // Only advanced on the main thread, but read by render threads
+    private volatile long tick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public AnimationScheduler() {
+        this.wheel = new ArrayList[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            this.wheel[i] = new ArrayList<>();
+        }
+        this.runTaskTimer(HoloAPI.getCore(), 1L, 1L);
+    }
+
+    @Override
+    public void run() {
+        long now = ++this.tick;
+        ArrayList<Entry> slot = this.wheel[(int) (now & WHEEL_MASK)];
+        if (slot.isEmpty()) {
+            return;
+        }
+
+        // Collect first, so that animations rescheduled into this same slot aren't run twice
+        ArrayList<Entry> due = new ArrayList<>();
+        Iterator<Entry> i = slot.iterator();
+        while (i.hasNext()) {
+            Entry entry = i.next();
+            if (entry.cancelled) {
+                i.remove();
+                this.size--;
+            } else if (entry.dueTick <= now) {
+                i.remove();
+                this.size--;
+                due.add(entry);
+            }
+        }
+
+        for (Entry entry : due) {
+            if (entry.cancelled) {
+                continue;
+            }
+            int delay = entry.hologram.advance();
+            entry.dueTick = now + Math.max(1, delay);
+            this.insert(entry);
+        }
+    }
+
+    /**
+     * Gets the number of server ticks this scheduler has run for. The count moves on once at the start of every tick
+     *
+     * @return current tick
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Gets the number of animations currently scheduled
+     *
+     * @return number of scheduled animations
+     */
+    public int getScheduledCount() {
+        return this.size;
+    }
+
+    /**
+     * Schedules an animation to advance to its next frame after a delay
+     *
+     * @param hologram hologram to animate
+     * @param delay    delay in ticks before the first frame change
+     * @return entry that can be cancelled to stop the animation
+     */
+    Entry schedule(AnimatedHologramImpl hologram, int delay) {
+        Entry entry = new Entry(hologram, this.tick + Math.max(1, delay));
+        this.insert(entry);
+        return entry;
+    }
+
+    private void insert(Entry entry) {
+        this.wheel[(int) (entry.dueTick & WHEEL_MASK)].add(entry);
+        this.size++;
+    }
+
+    static class Entry {
+
+        private final AnimatedHologramImpl hologram;
+        private long dueTick;
+        private boolean cancelled;
+
+        Entry(AnimatedHologramImpl hologram, long dueTick) {
+            this.hologram = hologram;
+            this.dueTick = dueTick;
+        }
+
+        void cancel() {
+            this.cancelled = true;
+        }
+    }
+}
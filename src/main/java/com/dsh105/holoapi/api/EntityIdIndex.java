@@ -0,0 +1,118 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api;
+
+import java.util.Arrays;
+
+/**
+ * Maps entity IDs back to the hologram they belong to
+ * <p>
+ * Each hologram uses a contiguous range of entity IDs, so ranges are kept sorted by their first ID in primitive arrays
+ * and looked up with a binary search. Changes replace the arrays rather than modifying them, so lookups can be made
+ * from any thread without locking
+ */
+class EntityIdIndex {
+
+    private volatile Ranges ranges = new Ranges(new int[0], new int[0], new Hologram[0]);
+
+    synchronized void add(Hologram hologram) {
+        int[] ids = hologram.getAllEntityIds();
+        if (ids.length == 0) {
+            return;
+        }
+        int start = ids[0];
+        int end = ids[0];
+        for (int id : ids) {
+            start = Math.min(start, id);
+            end = Math.max(end, id);
+        }
+
+        this.remove(hologram);
+
+        Ranges current = this.ranges;
+        int size = current.starts.length;
+        int position = Arrays.binarySearch(current.starts, start);
+        if (position < 0) {
+            position = -(position + 1);
+        }
+        int[] starts = new int[size + 1];
+        int[] ends = new int[size + 1];
+        Hologram[] holograms = new Hologram[size + 1];
+        System.arraycopy(current.starts, 0, starts, 0, position);
+        System.arraycopy(current.ends, 0, ends, 0, position);
+        System.arraycopy(current.holograms, 0, holograms, 0, position);
+        starts[position] = start;
+        ends[position] = end;
+        holograms[position] = hologram;
+        System.arraycopy(current.starts, position, starts, position + 1, size - position);
+        System.arraycopy(current.ends, position, ends, position + 1, size - position);
+        System.arraycopy(current.holograms, position, holograms, position + 1, size - position);
+        this.ranges = new Ranges(starts, ends, holograms);
+    }
+
+    synchronized void remove(Hologram hologram) {
+        Ranges current = this.ranges;
+        int size = current.starts.length;
+        for (int i = 0; i < size; i++) {
+            if (current.holograms[i] == hologram) {
+                int[] starts = new int[size - 1];
+                int[] ends = new int[size - 1];
+                Hologram[] holograms = new Hologram[size - 1];
+                System.arraycopy(current.starts, 0, starts, 0, i);
+                System.arraycopy(current.ends, 0, ends, 0, i);
+                System.arraycopy(current.holograms, 0, holograms, 0, i);
+                int moved = size - i - 1;
+                System.arraycopy(current.starts, i + 1, starts, i, moved);
+                System.arraycopy(current.ends, i + 1, ends, i, moved);
+                System.arraycopy(current.holograms, i + 1, holograms, i, moved);
+                this.ranges = new Ranges(starts, ends, holograms);
+                return;
+            }
+        }
+    }
+
+    Hologram get(int entityId) {
+        Ranges ranges = this.ranges;
+        int position = Arrays.binarySearch(ranges.starts, entityId);
+        if (position < 0) {
+            // Insertion point - 1 is the range starting closest below the ID
+            position = -(position + 1) - 1;
+        }
+        if (position < 0 || entityId > ranges.ends[position]) {
+            return null;
+        }
+        return ranges.holograms[position];
+    }
+
+    synchronized void clear() {
+        this.ranges = new Ranges(new int[0], new int[0], new Hologram[0]);
+    }
+
+    private static class Ranges {
+
+        private final int[] starts;
+        private final int[] ends;
+        private final Hologram[] holograms;
+
+        Ranges(int[] starts, int[] ends, Hologram[] holograms) {
+            this.starts = starts;
+            this.ends = ends;
+            this.holograms = holograms;
+        }
+    }
+}
@@ -151,8 +151,13 @@ public abstract class HoloFactory {
         Hologram hologram = prepareHologram();
         hologram.setSimplicity(this.simple);
         hologram.setVisibility(this.visibility);
-        hologram.showNearby();
-        HoloAPI.getManager().track(hologram, this.owningPlugin);
+        if (HoloAPI.getHologramStreamer().isEnabled()) {
+            HoloAPI.getManager().track(hologram, this.owningPlugin);
+            HoloAPI.getHologramStreamer().stream(hologram);
+        } else {
+            hologram.showNearby();
+            HoloAPI.getManager().track(hologram, this.owningPlugin);
+        }
         return hologram;
     }
 
@@ -69,6 +69,41 @@ public interface HoloManager {
      */
     public Hologram getHologram(String hologramId);
 
+    /**
+     * Gets the hologram an NMS entity ID belongs to
+     *
+     * @param entityId entity ID to search with
+     * @return hologram the entity ID belongs to, or null if it doesn't belong to any hologram
+     */
+    public Hologram getHologramByEntityId(int entityId);
+
+    /**
+     * Gets all holograms whose default location lies in a chunk
+     *
+     * @param worldName name of the world the chunk is in
+     * @param chunkX    X coordinate of the chunk
+     * @param chunkZ    Z coordinate of the chunk
+     * @return holograms located in the chunk
+     */
+    public List<Hologram> getHologramsInChunk(String worldName, int chunkX, int chunkZ);
+
+    /**
+     * Gets all holograms whose default location lies in a world
+     *
+     * @param worldName name of the world
+     * @return holograms located in the world
+     */
+    public List<Hologram> getHologramsInWorld(String worldName);
+
+    /**
+     * Gets all holograms whose default location is within a radius of a location
+     *
+     * @param location centre of the search
+     * @param radius   radius to search in
+     * @return holograms within the radius
+     */
+    public List<Hologram> getHologramsNear(Location location, double radius);
+
     /**
      * Tracks and registers a hologram
      *
@@ -113,6 +148,14 @@ public interface HoloManager {
      */
     public void saveToFile(Hologram hologram);
 
+    /**
+     * Immediately writes all pending hologram data to file
+     * <p>
+     * Calls to {@link #saveToFile(Hologram)} are collected and written periodically off the main thread. This method
+     * blocks until everything saved so far is on disk
+     */
+    public void flushSaves();
+
     /**
      * Clears hologram data from file
      *
@@ -22,9 +22,9 @@ import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.config.Settings;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Handles both time/date updates and multi-colour formatting updates
@@ -33,7 +33,8 @@ public class HoloUpdater extends BukkitRunnable {
 
     private static String[] UPDATE_TAGS;
 
-    public ArrayList<Hologram> tracked = new ArrayList<>();
+    // Copy-on-write, so that it can be read from any thread and iterated while holograms are tracked
+    public final CopyOnWriteArrayList<Hologram> tracked = new CopyOnWriteArrayList<>();
 
     /*
      * Stuff for colour updating
@@ -72,7 +73,7 @@ public class HoloUpdater extends BukkitRunnable {
         }
 
         if (!checkIfTrackable || shouldTrack(hologram)) {
-            tracked.add(hologram);
+            tracked.addIfAbsent(hologram);
             return true;
         }
         return false;
@@ -94,11 +95,7 @@ public class HoloUpdater extends BukkitRunnable {
     }
 
     public boolean remove(Hologram hologram) {
-        if (tracked.contains(hologram)) {
-            tracked.remove(hologram);
-            return true;
-        }
-        return false;
+        return tracked.remove(hologram);
     }
 
     public String getCurrentMultiColorFormat() {
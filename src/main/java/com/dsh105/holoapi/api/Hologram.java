@@ -342,6 +342,14 @@ public interface Hologram {
      */
     public int[] getAllEntityIds();
 
+    /**
+     * Gets the index of the line an NMS entity ID belongs to
+     *
+     * @param entityId entity ID to look up
+     * @return index of the line the entity ID is used for, or -1 if the ID is not part of the hologram
+     */
+    public int getLineIndex(int entityId);
+
     public void show(Player observer, boolean obeyVisibility);
 
     /**
@@ -488,6 +496,48 @@ public interface Hologram {
      */
     public void move(Player observer, Vector to);
 
+    /**
+     * Sets the velocity of the hologram
+     * <p>
+     * The hologram keeps moving by the given amount every tick until {@link #stopMotion()} is called. Players viewing
+     * the hologram are sent small relative movements that their client smoothly interpolates between, with a full
+     * teleport only sent now and then to correct any drift
+     *
+     * @param velocity distance to move every tick
+     */
+    public void setVelocity(Vector velocity);
+
+    /**
+     * Gets the velocity of the hologram
+     *
+     * @return distance the hologram moves every tick, or null if it isn't moving at a constant velocity
+     */
+    public Vector getVelocity();
+
+    /**
+     * Moves the hologram smoothly to a new location over a number of ticks
+     * <p>
+     * As with {@link #setVelocity(org.bukkit.util.Vector)}, players viewing the hologram see it glide to the new
+     * location rather than being teleported every tick
+     *
+     * @param to    position to move to
+     * @param ticks number of ticks the movement should take
+     */
+    public void moveTo(Vector to, int ticks);
+
+    /**
+     * Stops any movement started by {@link #setVelocity(org.bukkit.util.Vector)} or {@link
+     * #moveTo(org.bukkit.util.Vector, int)}, leaving the hologram where it currently is
+     */
+    public void stopMotion();
+
+    /**
+     * Gets whether the hologram is currently moving
+     *
+     * @return true if the hologram has a velocity or is moving to a location
+     */
+    public boolean isMoving();
+
     /**
      * Clears the view of the hologram for a player
      *
@@ -0,0 +1,181 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api;
+
+import java.util.*;
+
+/**
+ * Indexes holograms by world and by the chunk their default location lies in
+ * <p>
+ * All access is synchronised, so queries may be made from any thread
+ */
+class HologramChunkIndex {
+
+    private HashMap<String, HashMap<Long, Set<Hologram>>> worlds = new HashMap<>();
+    private HashMap<Hologram, Entry> entries = new HashMap<>();
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    static int toChunk(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> 4;
+    }
+
+    synchronized void add(Hologram hologram) {
+        this.remove(hologram);
+        Entry entry = new Entry(hologram.getWorldName(), toChunk(hologram.getDefaultX()), toChunk(hologram.getDefaultZ()));
+        HashMap<Long, Set<Hologram>> chunks = this.worlds.get(entry.worldName);
+        if (chunks == null) {
+            chunks = new HashMap<>();
+            this.worlds.put(entry.worldName, chunks);
+        }
+        long key = chunkKey(entry.chunkX, entry.chunkZ);
+        Set<Hologram> set = chunks.get(key);
+        if (set == null) {
+            set = new LinkedHashSet<>();
+            chunks.put(key, set);
+        }
+        set.add(hologram);
+        this.entries.put(hologram, entry);
+    }
+
+    synchronized void remove(Hologram hologram) {
+        Entry entry = this.entries.remove(hologram);
+        if (entry == null) {
+            return;
+        }
+        HashMap<Long, Set<Hologram>> chunks = this.worlds.get(entry.worldName);
+        if (chunks == null) {
+            return;
+        }
+        long key = chunkKey(entry.chunkX, entry.chunkZ);
+        Set<Hologram> set = chunks.get(key);
+        if (set != null) {
+            set.remove(hologram);
+            if (set.isEmpty()) {
+                chunks.remove(key);
+                if (chunks.isEmpty()) {
+                    this.worlds.remove(entry.worldName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-indexes a hologram if its world or chunk has changed since it was last indexed
+     */
+    synchronized void update(Hologram hologram) {
+        Entry entry = this.entries.get(hologram);
+        if (entry == null) {
+            // Not indexed, so it isn't tracked
+            return;
+        }
+        if (!entry.worldName.equals(hologram.getWorldName()) || entry.chunkX != toChunk(hologram.getDefaultX()) || entry.chunkZ != toChunk(hologram.getDefaultZ())) {
+            this.add(hologram);
+        }
+    }
+
+    synchronized void clear() {
+        this.worlds.clear();
+        this.entries.clear();
+    }
+
+    synchronized List<Hologram> getInChunk(String worldName, int chunkX, int chunkZ) {
+        HashMap<Long, Set<Hologram>> chunks = this.worlds.get(worldName);
+        if (chunks == null) {
+            return Collections.emptyList();
+        }
+        Set<Hologram> set = chunks.get(chunkKey(chunkX, chunkZ));
+        if (set == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(set);
+    }
+
+    synchronized List<Hologram> getInWorld(String worldName) {
+        HashMap<Long, Set<Hologram>> chunks = this.worlds.get(worldName);
+        if (chunks == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<Hologram> list = new ArrayList<>();
+        for (Set<Hologram> set : chunks.values()) {
+            list.addAll(set);
+        }
+        return list;
+    }
+
+    synchronized List<Hologram> getNear(String worldName, double x, double y, double z, double radius) {
+        HashMap<Long, Set<Hologram>> chunks = this.worlds.get(worldName);
+        if (chunks == null || radius < 0) {
+            return Collections.emptyList();
+        }
+        int minX = toChunk(x - radius);
+        int maxX = toChunk(x + radius);
+        int minZ = toChunk(z - radius);
+        int maxZ = toChunk(z + radius);
+        double radiusSquared = radius * radius;
+
+        ArrayList<Hologram> list = new ArrayList<>();
+        long area = ((long) maxX - minX + 1) * ((long) maxZ - minZ + 1);
+        if (area > chunks.size()) {
+            // Cheaper to look at every occupied chunk than to probe every chunk in range
+            for (Map.Entry<Long, Set<Hologram>> entry : chunks.entrySet()) {
+                int chunkX = (int) (entry.getKey() >> 32);
+                int chunkZ = (int) entry.getKey().longValue();
+                if (chunkX >= minX && chunkX <= maxX && chunkZ >= minZ && chunkZ <= maxZ) {
+                    addWithin(list, entry.getValue(), x, y, z, radiusSquared);
+                }
+            }
+        } else {
+            for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+                for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++) {
+                    Set<Hologram> set = chunks.get(chunkKey(chunkX, chunkZ));
+                    if (set != null) {
+                        addWithin(list, set, x, y, z, radiusSquared);
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    private static void addWithin(List<Hologram> list, Set<Hologram> holograms, double x, double y, double z, double radiusSquared) {
+        for (Hologram hologram : holograms) {
+            double dx = hologram.getDefaultX() - x;
+            double dy = hologram.getDefaultY() - y;
+            double dz = hologram.getDefaultZ() - z;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                list.add(hologram);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String worldName;
+        private final int chunkX;
+        private final int chunkZ;
+
+        Entry(String worldName, int chunkX, int chunkZ) {
+            this.worldName = worldName;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+}
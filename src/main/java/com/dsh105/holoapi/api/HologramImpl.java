@@ -13,22 +13,22 @@ import com.dsh105.holoapi.api.events.HoloLineUpdateEvent;
 import com.dsh105.holoapi.api.touch.TouchAction;
 import com.dsh105.holoapi.api.visibility.Visibility;
 import com.dsh105.holoapi.api.visibility.VisibilityDefault;
-import com.dsh105.holoapi.config.ConfigType;
 import com.dsh105.holoapi.config.Settings;
 import com.dsh105.holoapi.exceptions.DuplicateSaveIdException;
-import com.dsh105.holoapi.protocol.Injector;
+import com.dsh105.holoapi.protocol.InjectionManager;
 import com.dsh105.holoapi.util.TagIdGenerator;
+import com.dsh105.holoapi.util.ViewerIndex;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.google.common.base.Preconditions.*;
 
@@ -38,9 +38,16 @@ public class HologramImpl implements Hologram {
     public static int TAG_ENTITY_MULTIPLIER = 4;
 
     protected int firstTagId;
-    protected HashMap<String, Vector> playerToLocationMap = new HashMap<>();
+    // Stamp the entity ID range was last held under, to tell whether it is still this hologram's after being released
+    protected long tagIdStamp;
+    // Written on the main thread, but may be read from any thread
+    protected ConcurrentHashMap<String, Vector> playerToLocationMap = new ConcurrentHashMap<>();
     protected HashMap<TagSize, String> imageIdMap = new HashMap<>();
     protected ArrayList<TouchAction> touchActions = new ArrayList<>();
+    protected LinePacketTemplate[] lineTemplates;
+    protected RenderedLine[] renderedLines;
+    protected LineHashStore sentLines = new LineHashStore();
+    protected HologramMotion motion;
 
     private String saveId;
     private String worldName;
@@ -50,6 +57,8 @@ public class HologramImpl implements Hologram {
     private String[] tags;
 
     private boolean simple = false;
+    // Pooled holograms are reused by the TransientHologramManager and are never tracked or saved
+    private boolean pooled;
     private boolean touchEnabled;
     private Visibility visibility = new VisibilityDefault();
 
@@ -63,6 +72,7 @@ public class HologramImpl implements Hologram {
             this.tags = lines;
         }
         this.firstTagId = firstTagId;
+        this.tagIdStamp = TagIdGenerator.getStamp(firstTagId);
     }
 
     protected HologramImpl(String saveId, String worldName, double x, double y, double z, String... lines) {
@@ -76,6 +86,56 @@ public class HologramImpl implements Hologram {
         this.defZ = z;
     }
 
+    /**
+     * Prepares this hologram to be shown again with new content, without allocating a new one. Used to pool short
+     * lived holograms. The number of lines must not exceed the number this hologram was created with. Anything
+     * attached to the hologram while it was last shown is removed, so that none of it carries over to the next use
+     */
+    void reset(String worldName, double x, double y, double z, String... lines) {
+        this.clearAllPlayerViews();
+        this.saveId = String.valueOf(this.firstTagId);
+        this.worldName = worldName;
+        this.defX = x;
+        this.defY = y;
+        this.defZ = z;
+        this.tags = lines;
+        this.simple = true;
+        this.pooled = true;
+        this.touchActions.clear();
+        this.touchEnabled = false;
+        this.imageIdMap = new HashMap<>();
+        this.visibility = new VisibilityDefault();
+        HoloAPI.getVisibilityCache().invalidate(this);
+        this.motion = null;
+        this.invalidateTemplates();
+        this.renderedLines = null;
+        this.sentLines.clear();
+    }
+
+    /**
+     * Moves this hologram to a new range of entity IDs. Anyone still viewing it is shown it again under the new IDs
+     *
+     * @param firstTagId first ID of the new range, as returned by {@link com.dsh105.holoapi.util.TagIdGenerator#next(int)}
+     */
+    void reassignTagIds(int firstTagId) {
+        HashMap<Player, Vector> viewers = new HashMap<>();
+        for (Map.Entry<String, Vector> entry : this.playerToLocationMap.entrySet()) {
+            Player player = IdentUtil.getPlayerOf(entry.getKey());
+            if (player != null) {
+                viewers.put(player, entry.getValue());
+            }
+        }
+        this.clearAllPlayerViews();
+        this.firstTagId = firstTagId;
+        this.tagIdStamp = TagIdGenerator.getStamp(firstTagId);
+        this.invalidateTemplates();
+        this.sentLines.clear();
+        for (Map.Entry<Player, Vector> viewer : viewers.entrySet()) {
+            Vector location = viewer.getValue();
+            this.show(viewer.getKey(), location.getX(), location.getY(), location.getZ());
+        }
+    }
+
     @Override
     public boolean isSimple() {
         return this.simple;
@@ -83,7 +143,15 @@ public class HologramImpl implements Hologram {
 
     @Override
     public void setSimplicity(boolean flag) {
+        if (this.pooled) {
+            // Pooled holograms stay simple, so that they are never saved
+            return;
+        }
         this.simple = flag;
+        HoloManager manager = HoloAPI.getManager();
+        if (manager instanceof SimpleHoloManager) {
+            ((SimpleHoloManager) manager).updateSimplicity(this);
+        }
         if (!simple) {
             HoloAPI.getManager().clearFromFile(this);
         }
@@ -130,13 +198,13 @@ public class HologramImpl implements Hologram {
     @Override
     public boolean canBeSeenBy(Player player) {
         checkNotNull(player, "The Player object is null in HologramImpl#canBeSeenBy(Player)");
-        return getPlayerViews().containsKey(IdentUtil.getIdentificationForAsString(player));
+        return this.playerToLocationMap.containsKey(IdentUtil.getIdentificationForAsString(player));
     }
 
     @Override
     public Vector getPlayerView(Player player) {
         checkNotNull(player, "The Player object is null in HologramImpl#getPlayerView(Player)");
-        return getPlayerViews().get(IdentUtil.getIdentificationForAsString(player));
+        return this.playerToLocationMap.get(IdentUtil.getIdentificationForAsString(player));
     }
 
     @Override
@@ -186,6 +254,7 @@ public class HologramImpl implements Hologram {
     public void setVisibility(Visibility visibility) {
         checkNotNull(visibility, "The Visibilty object is null in HologramImpl#setVisibility(Visibility)");
         this.visibility = visibility;
+        HoloAPI.getVisibilityCache().invalidate(this);
         if (!this.isSimple()) {
             HoloAPI.getManager().saveToFile(this);
         }
@@ -199,7 +268,7 @@ public class HologramImpl implements Hologram {
     @Override
     public void setSaveId(String saveId) {
         checkArgument(!saveId.isEmpty(), "The saveId String in HologramImpl#setSaveId(String) cannot be empty");
-        if (HoloAPI.getConfig(ConfigType.DATA).getConfigurationSection("holograms." + saveId) != null) {
+        if (HoloAPI.getHologramStore().contains(saveId) || HoloAPI.getManager().getHologram(saveId) != null) {
             throw new DuplicateSaveIdException("Hologram Save IDs must be unique. A Hologram of ID " + saveId + " already exists in the HoloAPI data files!");
         }
 
@@ -211,7 +280,12 @@ public class HologramImpl implements Hologram {
         }
 
         // Set the new save id
+        String previousSaveId = this.saveId;
         this.saveId = saveId;
+        HoloManager manager = HoloAPI.getManager();
+        if (manager instanceof SimpleHoloManager) {
+            ((SimpleHoloManager) manager).updateSaveId(this, previousSaveId);
+        }
 
         if (!this.isSimple()) {
             // And save the data back to the file again under the new id
@@ -251,7 +325,9 @@ public class HologramImpl implements Hologram {
     public void changeWorld(String worldName, boolean obeyVisibility) {
         checkNotNull(Bukkit.getWorld(worldName), "The world used in HologramImpl#changeWorld(Stirng, boolean), does not exist.");
         this.clearAllPlayerViews();
+        this.invalidateTemplates();
         this.worldName = worldName;
+        this.updateIndex();
         if (!this.isSimple()) {
             HoloAPI.getManager().saveToFile(this);
         }
@@ -298,6 +374,7 @@ public class HologramImpl implements Hologram {
             return;
         }
         this.tags[index] = lineUpdateEvent.getNewLineContent();
+        this.invalidateTemplates();
         this.updateDisplay();
         if (!this.isSimple()) {
             HoloAPI.getManager().saveToFile(this);
@@ -312,25 +389,20 @@ public class HologramImpl implements Hologram {
             throw new IllegalArgumentException("Tag indicies cannot be less than 0!");
         }
         checkNotNull(observer, "The Player object in HologramImpl#updateLine(int, String, Player) is null");
-        this.updateNametag(observer, content, index);
+        String[] lines = new String[index + 1];
+        lines[index] = content;
+        this.updateNametags(Collections.singletonList(observer), lines);
     }
 
     @Override
     public void updateDisplay(Player observer) {
         checkNotNull(observer, "The Player object in HologramImpl#updateDisplay(Player) is null");
-        for (int index = 0; index < this.tags.length; index++) {
-            this.updateNametag(observer, this.tags[index], index);
-        }
+        this.updateNametags(Collections.singletonList(observer), this.tags.clone());
     }
 
     @Override
     public void updateDisplay() {
-        for (String ident : this.getPlayerViews().keySet()) {
-            Player player = IdentUtil.getPlayerOf(ident);
-            if (player != null) {
-                this.updateDisplay(player);
-            }
-        }
+        this.updateNametags(this.getViewers(), this.tags.clone());
     }
 
     @Override
@@ -345,19 +417,20 @@ public class HologramImpl implements Hologram {
             cont = new String[this.tags.length];
             System.arraycopy(content, 0, cont, 0, this.tags.length);
         }
-        for (String ident : this.playerToLocationMap.keySet()) {
-            Player p = IdentUtil.getPlayerOf(ident);
-            if (p != null) {
-                for (int index = 0; index < cont.length; index++) {
-                    HoloLineUpdateEvent lineUpdateEvent = new HoloLineUpdateEvent(this, this.tags[index], cont[index], index);
-                    Bukkit.getServer().getPluginManager().callEvent(lineUpdateEvent);
-                    if (lineUpdateEvent.isCancelled()) {
-                        continue;
-                    }
-                    this.tags[index] = lineUpdateEvent.getNewLineContent();
-                    this.updateNametag(p, this.tags[index], index);
+        this.invalidateTemplates();
+        List<Player> viewers = this.getViewers();
+        if (!viewers.isEmpty()) {
+            String[] updated = new String[cont.length];
+            for (int index = 0; index < cont.length; index++) {
+                HoloLineUpdateEvent lineUpdateEvent = new HoloLineUpdateEvent(this, this.tags[index], cont[index], index);
+                Bukkit.getServer().getPluginManager().callEvent(lineUpdateEvent);
+                if (lineUpdateEvent.isCancelled()) {
+                    continue;
                 }
+                this.tags[index] = lineUpdateEvent.getNewLineContent();
+                updated[index] = this.tags[index];
             }
+            this.updateNametags(viewers, updated);
         }
         if (!this.isSimple()) {
             HoloAPI.getManager().saveToFile(this);
@@ -378,9 +451,7 @@ public class HologramImpl implements Hologram {
         }
 
         if (observer != null) {
-            for (int index = 0; index < cont.length; index++) {
-                this.updateNametag(observer, cont[index], index);
-            }
+            this.updateNametags(Collections.singletonList(observer), cont);
         }
     }
 
@@ -428,20 +499,22 @@ public class HologramImpl implements Hologram {
 
     @Override
     public int[] getAllEntityIds() {
-        ArrayList<Integer> entityIdList = new ArrayList<>();
+        int[] ids = new int[this.getTagCount() * TAG_ENTITY_MULTIPLIER];
         for (int index = 0; index < this.getTagCount(); index++) {
             for (int i = 0; i < TAG_ENTITY_MULTIPLIER; i++) {
-                entityIdList.add(this.getHorseIndex(index) + i);
+                ids[index * TAG_ENTITY_MULTIPLIER + i] = this.getHorseIndex(index) + i;
             }
         }
+        return ids;
+    }
 
-        int[] ids = new int[entityIdList.size()];
-
-        for (int i = 0; i < ids.length; i++) {
-            ids[i] = entityIdList.get(i);
+    @Override
+    public int getLineIndex(int entityId) {
+        int offset = entityId - this.firstTagId;
+        if (offset < 0 || offset >= this.getTagCount() * TAG_ENTITY_MULTIPLIER) {
+            return -1;
         }
-
-        return ids;
+        return offset / TAG_ENTITY_MULTIPLIER;
     }
 
     @Override
@@ -473,13 +546,16 @@ public class HologramImpl implements Hologram {
     @Override
     public void show(Player observer, double x, double y, double z, boolean obeyVisibility) {
         checkNotNull(observer, "The Player object in HologramImpl#show(Player, double, double, double, boolean) is null");
-        if (obeyVisibility && !this.getVisibility().isVisibleTo(observer, this.getSaveId())) {
+        if (obeyVisibility && !HoloAPI.getVisibilityCache().isVisibleTo(observer, this)) {
             return;
         }
         for (int index = 0; index < this.getTagCount(); index++) {
             this.generate(observer, this.tags[index], index, -index * Settings.VERTICAL_LINE_SPACING.getValue(), x, y, z);
         }
-        this.playerToLocationMap.put(IdentUtil.getIdentificationForAsString(observer), new Vector(x, y, z));
+        this.playerToLocationMap.put(IdentUtil.getIdentificationForAsString(observer), this.toViewLocation(x, y, z));
+        if (this.motion != null) {
+            this.motion.forceKeyframe = true;
+        }
     }
 
     @Override
@@ -547,6 +623,8 @@ public class HologramImpl implements Hologram {
         this.defX = to.getX();
         this.defY = to.getY();
         this.defZ = to.getZ();
+        this.invalidateTemplates();
+        this.updateIndex();
         if (!this.isSimple()) {
             HoloAPI.getManager().saveToFile(this);
         }
@@ -556,6 +634,11 @@ public class HologramImpl implements Hologram {
                 this.move(p, to);
             }
         }
+        if (this.motion != null) {
+            // Viewers have already been moved here, so carry on moving from the new location
+            this.motion.sent(this.defX, this.defY, this.defZ);
+            this.motion.forceKeyframe = true;
+        }
     }
 
     @Override
@@ -567,7 +650,200 @@ public class HologramImpl implements Hologram {
             this.moveTag(observer, index, loc);
             loc.setY(loc.getY() - Settings.VERTICAL_LINE_SPACING.getValue());
         }
-        this.playerToLocationMap.put(IdentUtil.getIdentificationForAsString(observer), to);
+        // Each viewer gets its own copy, as the motion driver updates them in place
+        this.playerToLocationMap.put(IdentUtil.getIdentificationForAsString(observer), to.clone());
+    }
+
+    @Override
+    public void setVelocity(Vector velocity) {
+        checkNotNull(velocity, "The Vector object in HologramImpl#setVelocity(Vector) is null");
+        this.startMotion(HologramMotion.velocity(velocity.getX(), velocity.getY(), velocity.getZ()));
+    }
+
+    @Override
+    public Vector getVelocity() {
+        HologramMotion motion = this.motion;
+        if (motion == null || motion.hasTarget()) {
+            return null;
+        }
+        return new Vector(motion.velocityX, motion.velocityY, motion.velocityZ);
+    }
+
+    @Override
+    public void moveTo(Vector to, int ticks) {
+        checkNotNull(to, "The Vector object in HologramImpl#moveTo(Vector, int) is null");
+        this.startMotion(HologramMotion.target(this.defX, this.defY, this.defZ, to.getX(), to.getY(), to.getZ(), ticks));
+    }
+
+    @Override
+    public void stopMotion() {
+        if (this.motion != null) {
+            this.motion = null;
+            // Make sure viewers end up exactly where the hologram stopped
+            this.sendKeyframe();
+            if (!this.isSimple()) {
+                HoloAPI.getManager().saveToFile(this);
+            }
+        }
+    }
+
+    /**
+     * Drops any motion without updating viewers or saving. Used when the hologram is being removed
+     */
+    void cancelMotion() {
+        this.motion = null;
+    }
+
+    @Override
+    public boolean isMoving() {
+        return this.motion != null;
+    }
+
+    /**
+     * Gets the location to record for a viewer that has just been shown this hologram. While moving, every view is
+     * shifted by how far the hologram has moved since viewers were last sent its position, which a new view is not
+     * behind by
+     */
+    protected Vector toViewLocation(double x, double y, double z) {
+        HologramMotion motion = this.motion;
+        if (motion == null) {
+            return new Vector(x, y, z);
+        }
+        return new Vector(x - (this.defX - motion.sentDefaultX), y - (this.defY - motion.sentDefaultY), z - (this.defZ - motion.sentDefaultZ));
+    }
+
+    protected void startMotion(HologramMotion motion) {
+        if (this.motion != null) {
+            // Keep what viewers were last sent, so the new motion continues on from it
+            motion.sent(this.motion.sentDefaultX, this.motion.sentDefaultY, this.motion.sentDefaultZ);
+            motion.forceKeyframe = this.motion.forceKeyframe;
+        } else {
+            motion.sent(this.defX, this.defY, this.defZ);
+        }
+        this.motion = motion;
+        HoloAPI.getMotionDriver().add(this);
+    }
+
+    /**
+     * Advances the motion of this hologram by one tick. Called by the {@link
+     * com.dsh105.holoapi.api.HologramMotionDriver}
+     *
+     * @return true if the hologram is still moving
+     */
+    boolean tickMotion(int sendInterval, int keyframeInterval) {
+        HologramMotion motion = this.motion;
+        if (motion == null) {
+            return false;
+        }
+
+        boolean finished = false;
+        if (motion.hasTarget() && --motion.remainingTicks <= 0) {
+            this.defX = motion.targetX;
+            this.defY = motion.targetY;
+            this.defZ = motion.targetZ;
+            finished = true;
+        } else {
+            this.defX += motion.velocityX;
+            this.defY += motion.velocityY;
+            this.defZ += motion.velocityZ;
+        }
+        this.updateIndex();
+
+        motion.ticksSinceKeyframe++;
+        if (finished || ++motion.ticksSinceSend >= sendInterval) {
+            motion.ticksSinceSend = 0;
+            int dx = HologramMotion.toFixed(this.defX) - motion.sentX;
+            int dy = HologramMotion.toFixed(this.defY) - motion.sentY;
+            int dz = HologramMotion.toFixed(this.defZ) - motion.sentZ;
+            boolean keyframe = finished || motion.forceKeyframe || motion.ticksSinceKeyframe >= keyframeInterval
+                    || dx < Byte.MIN_VALUE || dx > Byte.MAX_VALUE || dy < Byte.MIN_VALUE || dy > Byte.MAX_VALUE || dz < Byte.MIN_VALUE || dz > Byte.MAX_VALUE;
+
+            double shiftX = this.defX - motion.sentDefaultX;
+            double shiftY = this.defY - motion.sentDefaultY;
+            double shiftZ = this.defZ - motion.sentDefaultZ;
+            for (Vector view : this.playerToLocationMap.values()) {
+                view.setX(view.getX() + shiftX);
+                view.setY(view.getY() + shiftY);
+                view.setZ(view.getZ() + shiftZ);
+            }
+
+            if (keyframe) {
+                this.sendKeyframe();
+                motion.ticksSinceKeyframe = 0;
+                motion.forceKeyframe = false;
+            } else if (dx != 0 || dy != 0 || dz != 0) {
+                this.sendRelativeMove((byte) dx, (byte) dy, (byte) dz);
+            }
+            motion.sent(this.defX, this.defY, this.defZ);
+        }
+
+        if (finished) {
+            this.motion = null;
+            if (!this.isSimple()) {
+                HoloAPI.getManager().saveToFile(this);
+            }
+        }
+        return !finished;
+    }
+
+    /**
+     * Teleports every line to its exact current location for all viewers. Only the skulls need to be moved, as the
+     * other entities of each line ride them
+     */
+    protected void sendKeyframe() {
+        double spacing = Settings.VERTICAL_LINE_SPACING.getValue();
+        for (Map.Entry<String, Vector> entry : this.playerToLocationMap.entrySet()) {
+            Player observer = IdentUtil.getPlayerOf(entry.getKey());
+            if (observer == null) {
+                continue;
+            }
+            Vector view = entry.getValue();
+            int x = HologramMotion.toFixed(view.getX());
+            int z = HologramMotion.toFixed(view.getZ());
+            for (int index = 0; index < this.getTagCount(); index++) {
+                int y = HologramMotion.toFixed(view.getY() - index * spacing + 55);
+                this.sendPackets(observer, this.createTeleport(this.getSkullIndex(index), x, y, z));
+                if (this.isTouchEnabled()) {
+                    this.sendPackets(observer, this.createTeleport(this.getTouchSkullIndex(index), x, y, z));
+                }
+            }
+        }
+    }
+
+    protected void sendRelativeMove(byte dx, byte dy, byte dz) {
+        ArrayList<WrappedPacket> packets = new ArrayList<>();
+        for (int index = 0; index < this.getTagCount(); index++) {
+            packets.add(this.createRelativeMove(this.getSkullIndex(index), dx, dy, dz));
+            if (this.isTouchEnabled()) {
+                packets.add(this.createRelativeMove(this.getTouchSkullIndex(index), dx, dy, dz));
+            }
+        }
+        WrappedPacket[] array = packets.toArray(new WrappedPacket[packets.size()]);
+        for (String ident : this.playerToLocationMap.keySet()) {
+            Player observer = IdentUtil.getPlayerOf(ident);
+            if (observer != null) {
+                // The same packets are shared between all viewers
+                this.sendPackets(observer, array);
+            }
+        }
+    }
+
+    protected WrappedPacket createTeleport(int entityId, int x, int y, int z) {
+        WrappedPacket teleport = new WrappedPacket(PacketType.Play.Server.ENTITY_TELEPORT);
+        teleport.getIntegers().write(0, entityId);
+        teleport.getIntegers().write(1, x);
+        teleport.getIntegers().write(2, y);
+        teleport.getIntegers().write(3, z);
+        return teleport;
+    }
+
+    protected WrappedPacket createRelativeMove(int entityId, byte dx, byte dy, byte dz) {
+        WrappedPacket move = new WrappedPacket(PacketType.Play.Server.REL_ENTITY_MOVE);
+        move.getIntegers().write(0, entityId);
+        move.getBytes().write(0, dx);
+        move.getBytes().write(1, dy);
+        move.getBytes().write(2, dz);
+        return move;
     }
 
     @Override
@@ -575,6 +851,7 @@ public class HologramImpl implements Hologram {
         checkNotNull(observer, "The Player object in HologramImpl#clear(Player) is null");
         clearTags(observer, this.getAllEntityIds());
         this.playerToLocationMap.remove(IdentUtil.getIdentificationForAsString(observer));
+        this.sentLines.reset(ViewerIndex.of(observer));
     }
 
     protected void setImageTagMap(HashMap<TagSize, String> map) {
@@ -606,7 +883,7 @@ public class HologramImpl implements Hologram {
             WrappedPacket packet = new WrappedPacket(PacketType.Play.Server.ENTITY_DESTROY);
             packet.getIntegerArrays().write(0, entityIds);
 
-            HoloAPI.getCore().getInjectionManager().getInjectorFor(observer).sendPacket(packet.getHandle());
+            this.sendPackets(observer, packet);
         }
     }
 
@@ -625,9 +902,7 @@ public class HologramImpl implements Hologram {
         teleportSkull.getIntegers().write(2, (int) Math.floor((to.getBlockY() + 55)* 32.0D));
         teleportSkull.getIntegers().write(3,(int) Math.floor( to.getBlockZ() * 32.0D));
 
-        Injector injector = HoloAPI.getCore().getInjectionManager().getInjectorFor(observer);
-        injector.sendPacket(teleportHorse.getHandle());
-        injector.sendPacket(teleportSkull.getHandle());
+        this.sendPackets(observer, teleportHorse, teleportSkull);
     }
 
     protected void moveTag(Player observer, int index, Vector to) {
@@ -648,42 +923,15 @@ public class HologramImpl implements Hologram {
 
     protected void generate(Player observer, String message, int index, double diffY, double x, double y, double z) {
         checkNotNull(observer, "The Player object in HologramImpl#generate(Player, String, int, double, double, double, double) is null");
-        String content = HoloAPI.getTagFormatter().format(this, observer, message);
-        ItemStack itemMatch = HoloAPI.getTagFormatter().matchItem(content);
+        RenderedLine rendered = this.render(observer, message, index);
+        ItemStack itemMatch = rendered.getItemMatch();
         if (itemMatch != null) {
             this.generateFloatingItem(observer, itemMatch, index, diffY, x, y, z);
         } else {
-            WrappedPacket horse = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY_LIVING);
-            horse.getIntegers().write(0, this.getHorseIndex(index));
-            horse.getIntegers().write(1, (int) EntityType.HORSE.getTypeId());
-            horse.getIntegers().write(2, (int) Math.floor(x * 32.0D));
-            horse.getIntegers().write(3, (int) Math.floor((y + diffY + 55) * 32.0D));
-            horse.getIntegers().write(4, (int) Math.floor(z * 32.0D));
-
-            WrappedDataWatcher dw = new WrappedDataWatcher();
-            dw.setObject(10, content);
-            dw.setObject(11, Byte.valueOf((byte) 1));
-            dw.setObject(12, Integer.valueOf(-1700000));
-
-            horse.getDataWatchers().write(0, dw);
-
-            WrappedPacket skull = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY);
-            skull.getIntegers().write(0, this.getSkullIndex(index));
-            skull.getIntegers().write(1, (int) Math.floor(x * 32.0D));
-            skull.getIntegers().write(2, (int) Math.floor((y + diffY + 55) * 32.0D));
-            skull.getIntegers().write(3, (int) Math.floor(z * 32.0D));
-            skull.getIntegers().write(9, 66);
-
-            WrappedPacket attach = new WrappedPacket(PacketType.Play.Server.ATTACH_ENTITY);
-            attach.getIntegers().write(0, 0);
-            attach.getIntegers().write(1, horse.getIntegers().read(0));
-            attach.getIntegers().write(2, skull.getIntegers().read(0));
-
-            Injector injector = HoloAPI.getCore().getInjectionManager().getInjectorFor(observer);
-            injector.sendPacket(horse.getHandle());
-            injector.sendPacket(skull.getHandle());
-            injector.sendPacket(attach.getHandle());
+            LinePacketTemplate template = this.getLineTemplate(index, x, y + diffY, z);
+            this.sendPackets(observer, template.getHorse(rendered.getContent()), template.getSkull(), template.getAttach());
         }
+        this.sentLines.update(ViewerIndex.of(observer), index, rendered.getContent().hashCode());
 
         if (this.isTouchEnabled()) {
             this.prepareTouchScreen(observer, index, diffY, x, y, z);
@@ -708,35 +956,7 @@ public class HologramImpl implements Hologram {
 
     protected void generateTouchScreen(int slimeSize, Player observer, int index, double diffY, double x, double y, double z) {
         checkNotNull(observer, "The Player object in HologramImpl#generateTouchScreen(int, Player, int, double, double, double, double) is null");
-        WrappedPacket touchSlime = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY_LIVING);
-        touchSlime.getIntegers().write(0, this.getTouchSlimeIndex(index));
-        touchSlime.getIntegers().write(1, (int) EntityType.SLIME.getTypeId());
-        touchSlime.getIntegers().write(2, (int) Math.floor(x * 32.0D));
-        touchSlime.getIntegers().write(3, (int) Math.floor((y + diffY) * 32.0D));
-        touchSlime.getIntegers().write(4, (int) Math.floor(z * 32.0D));
-
-        WrappedDataWatcher dw = new WrappedDataWatcher();
-        dw.setObject(0, Byte.valueOf((byte) 32));
-        dw.setObject(16, new Byte((byte) (slimeSize < 1 ? 1 : (slimeSize > 100 ? 100 : slimeSize))));
-
-        touchSlime.getDataWatchers().write(0, dw);
-
-        WrappedPacket touchSkull = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY);
-        touchSkull.getIntegers().write(0, this.getTouchSkullIndex(index));
-        touchSkull.getIntegers().write(1, (int) Math.floor(x * 32.0D));
-        touchSkull.getIntegers().write(2, (int) Math.floor((y + diffY) * 32.0D));
-        touchSkull.getIntegers().write(3, (int) Math.floor(z * 32.0D));
-        touchSkull.getIntegers().write(9, 66);
-
-        WrappedPacket attachTouch = new WrappedPacket(PacketType.Play.Server.ATTACH_ENTITY);
-        attachTouch.getIntegers().write(0, 0);
-        attachTouch.getIntegers().write(1, touchSlime.getIntegers().read(0));
-        attachTouch.getIntegers().write(2, touchSkull.getIntegers().read(0));
-
-        Injector injector = HoloAPI.getCore().getInjectionManager().getInjectorFor(observer);
-        injector.sendPacket(touchSlime.getHandle());
-        injector.sendPacket(touchSkull.getHandle());
-        injector.sendPacket(attachTouch.getHandle());
+        this.sendPackets(observer, this.getLineTemplate(index, x, y + diffY, z).getTouchScreen(slimeSize));
     }
 
     protected void generateFloatingItem(Player observer, ItemStack stack, int index, double diffY, double x, double y, double z) {
@@ -768,32 +988,99 @@ public class HologramImpl implements Hologram {
         attachItem.getIntegers().write(0, item.getIntegers().read(0));
         attachItem.getIntegers().write(0, itemSkull.getIntegers().read(0));
 
-        Injector injector = HoloAPI.getCore().getInjectionManager().getInjectorFor(observer);
-        injector.sendPacket(item.getHandle());
-        injector.sendPacket(meta.getHandle());
-        injector.sendPacket(itemSkull.getHandle());
-        injector.sendPacket(attachItem.getHandle());
+        this.sendPackets(observer, item, meta, itemSkull, attachItem);
+    }
+
+    /**
+     * Updates lines for a set of viewers through the {@link com.dsh105.holoapi.api.HologramRenderer}, which renders
+     * them off the main thread where it can
+     *
+     * @param observers viewers to update
+     * @param lines     content of each line. Lines that are null are left as they are
+     */
+    protected void updateNametags(List<Player> observers, String[] lines) {
+        HoloAPI.getHologramRenderer().render(this, observers, lines);
+    }
+
+    protected List<Player> getViewers() {
+        ArrayList<Player> viewers = new ArrayList<>(this.playerToLocationMap.size());
+        for (String ident : this.playerToLocationMap.keySet()) {
+            Player player = IdentUtil.getPlayerOf(ident);
+            if (player != null) {
+                viewers.add(player);
+            }
+        }
+        return viewers;
     }
 
     protected void updateNametag(Player observer, String message, int index) {
         checkNotNull(observer, "The Player object in HologramImpl#updateNametag(Player, String, int) is null");
-        WrappedDataWatcher dw = new WrappedDataWatcher();
-        String content = HoloAPI.getTagFormatter().format(this, observer, message);
+        RenderedLine rendered = this.render(observer, message, index);
+        // Only send metadata if the observer doesn't already see this exact content
+        if (this.sentLines.update(ViewerIndex.of(observer), index, rendered.getContent().hashCode())) {
+            this.sendPackets(observer, rendered.getMetadata(this.getHorseIndex(index)));
+        }
+    }
 
-        ItemStack itemMatch = HoloAPI.getTagFormatter().matchItem(content);
-        if (itemMatch != null) {
-            dw.setObject(10, AS_NMS_ITEM_COPY.invokeStatic(itemMatch));
-        } else {
-            dw.setObject(10, content);
-            dw.setObject(11, Byte.valueOf((byte) 1));
-            dw.setObject(12, Integer.valueOf(-1700000));
+    /**
+     * Formats a line for an observer. Lines that don't depend on the observer are formatted once per render tick and
+     * shared, along with their metadata packet, between every observer they apply to
+     */
+    protected RenderedLine render(Player observer, String message, int index) {
+        TagFormatter formatter = HoloAPI.getTagFormatter();
+        TagScope scope = formatter.getScope(message);
+        if (scope == TagScope.PLAYER) {
+            return new RenderedLine(message, null, 0, formatter.format(this, observer, message));
+        }
+
+        String worldName = scope == TagScope.WORLD ? observer.getWorld().getName() : null;
+        long tick = formatter.getRenderTick();
+        if (this.renderedLines == null || this.renderedLines.length <= index) {
+            this.renderedLines = new RenderedLine[Math.max(index + 1, this.tags.length)];
+        }
+        RenderedLine rendered = this.renderedLines[index];
+        if (rendered == null || !rendered.isFor(message, worldName, tick)) {
+            rendered = new RenderedLine(message, worldName, tick, formatter.format(this, observer, message));
+            this.renderedLines[index] = rendered;
+        }
+        return rendered;
+    }
+
+    /**
+     * Queues packets for an observer. Queued packets are flushed once per tick by the {@link
+     * com.dsh105.holoapi.protocol.InjectionManager}, rather than once per packet
+     */
+    protected void sendPackets(Player observer, WrappedPacket... packets) {
+        InjectionManager injectionManager = HoloAPI.getCore().getInjectionManager();
+        for (WrappedPacket packet : packets) {
+            injectionManager.queuePacket(observer, packet.getHandle());
         }
+    }
 
-        WrappedPacket metadata = new WrappedPacket(PacketType.Play.Server.ENTITY_METADATA);
-        metadata.getIntegers().write(0, this.getHorseIndex(index));
-        metadata.getWatchableObjectLists().write(0, dw.getWatchableObjects());
+    protected LinePacketTemplate getLineTemplate(int index, double x, double y, double z) {
+        if (this.lineTemplates == null || this.lineTemplates.length <= index) {
+            this.lineTemplates = new LinePacketTemplate[Math.max(index + 1, this.tags.length)];
+        }
+        LinePacketTemplate template = this.lineTemplates[index];
+        if (template == null || !template.isAt(x, y, z)) {
+            template = new LinePacketTemplate(this.getHorseIndex(index), this.getSkullIndex(index), this.getTouchSlimeIndex(index), this.getTouchSkullIndex(index), x, y, z);
+            this.lineTemplates[index] = template;
+        }
+        return template;
+    }
 
-        HoloAPI.getCore().getInjectionManager().getInjectorFor(observer).sendPacket(metadata.getHandle());
+    protected void updateIndex() {
+        HoloManager manager = HoloAPI.getManager();
+        if (manager instanceof SimpleHoloManager) {
+            ((SimpleHoloManager) manager).updateIndex(this);
+        }
+    }
+
+    /**
+     * Drops all cached spawn packets. Called whenever the location or content of the hologram changes
+     */
+    protected void invalidateTemplates() {
+        this.lineTemplates = null;
     }
 
     protected int getHorseIndex(int index) {
@@ -819,4 +1106,59 @@ public class HologramImpl implements Hologram {
         }
         return max;
     }
+
+    protected static class RenderedLine {
+
+        private final String message;
+        private final String worldName;
+        private final long tick;
+        private final String content;
+
+        private boolean itemMatched;
+        private ItemStack itemMatch;
+        private WrappedPacket metadata;
+
+        RenderedLine(String message, String worldName, long tick, String content) {
+            this.message = message;
+            this.worldName = worldName;
+            this.tick = tick;
+            this.content = content;
+        }
+
+        boolean isFor(String message, String worldName, long tick) {
+            return this.tick == tick && this.message.equals(message) && (this.worldName == null ? worldName == null : this.worldName.equals(worldName));
+        }
+
+        public String getContent() {
+            return this.content;
+        }
+
+        public synchronized ItemStack getItemMatch() {
+            if (!this.itemMatched) {
+                this.itemMatch = HoloAPI.getTagFormatter().matchItem(this.content);
+                this.itemMatched = true;
+            }
+            return this.itemMatch;
+        }
+
+        public synchronized WrappedPacket getMetadata(int entityId) {
+            if (this.metadata == null) {
+                WrappedDataWatcher dw = new WrappedDataWatcher();
+                ItemStack itemMatch = this.getItemMatch();
+                if (itemMatch != null) {
+                    dw.setObject(10, AS_NMS_ITEM_COPY.invokeStatic(itemMatch));
+                } else {
+                    dw.setObject(10, this.content);
+                    dw.setObject(11, Byte.valueOf((byte) 1));
+                    dw.setObject(12, Integer.valueOf(-1700000));
+                }
+
+                WrappedPacket metadata = new WrappedPacket(PacketType.Play.Server.ENTITY_METADATA);
+                metadata.getIntegers().write(0, entityId);
+                metadata.getWatchableObjectLists().write(0, dw.getWatchableObjects());
+                this.metadata = metadata;
+            }
+            return this.metadata;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dsh105.holoapi.api;
+
+/**
+ * Movement state of a hologram that is moving at a velocity or towards a target
+ */
+class HologramMotion {
+
+    final double velocityX;
+    final double velocityY;
+    final double velocityZ;
+    // Ticks left until the target is reached, or -1 if moving at a constant velocity
+    int remainingTicks;
+    final double targetX;
+    final double targetY;
+    final double targetZ;
+
+    // Last position sent to viewers, in fixed point (1/32 of a block)
+    int sentX;
+    int sentY;
+    int sentZ;
+    double sentDefaultX;
+    double sentDefaultY;
+    double sentDefaultZ;
+
+    int ticksSinceSend;
+    int ticksSinceKeyframe;
+    boolean forceKeyframe = true;
+
+    private HologramMotion(double velocityX, double velocityY, double velocityZ, int remainingTicks, double targetX, double targetY, double targetZ) {
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.velocityZ = velocityZ;
+        this.remainingTicks = remainingTicks;
+        this.targetX = targetX;
+        this.targetY = targetY;
+        this.targetZ = targetZ;
+    }
+
+    static HologramMotion velocity(double x, double y, double z) {
+        return new HologramMotion(x, y, z, -1, 0, 0, 0);
+    }
+
+    static HologramMotion target(double fromX, double fromY, double fromZ, double toX, double toY, double toZ, int ticks) {
+        ticks = Math.max(1, ticks);
+        return new HologramMotion((toX - fromX) / ticks, (toY - fromY) / ticks, (toZ - fromZ) / ticks, ticks, toX, toY, toZ);
+    }
+
+    boolean hasTarget() {
+        return this.remainingTicks >= 0;
+    }
+
+    void sent(double x, double y, double z) {
+        this.sentX = toFixed(x);
+        this.sentY = toFixed(y);
+        this.sentZ = toFixed(z);
+        this.sentDefaultX = x;
+        this.sentDefaultY = y;
+        this.sentDefaultZ = z;
+    }
+
+    static int toFixed(double coordinate) {
+        return (int) Math.floor(coordinate * 32.0D);
+    }
+}
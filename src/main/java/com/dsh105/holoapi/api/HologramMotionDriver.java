@@ -0,0 +1,64 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dsh105.holoapi.api;
+
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.config.Settings;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Moves every hologram with a velocity or target from a single task
+ * <p>
+ * Viewers are only sent a relative movement every few ticks, which their client interpolates over, and a full teleport
+ * every keyframe interval to correct any rounding drift
+ */
+public class HologramMotionDriver extends BukkitRunnable {
+
+    private ArrayList<HologramImpl> moving = new ArrayList<>();
+
+    private int sendInterval;
+    private int keyframeInterval;
+
+    public HologramMotionDriver() {
+        this.sendInterval = Math.max(1, Settings.MOTION_SEND_INTERVAL.getValue());
+        this.keyframeInterval = Math.max(this.sendInterval, Settings.MOTION_KEYFRAME_INTERVAL.getValue());
+        this.runTaskTimer(HoloAPI.getCore(), 1L, 1L);
+    }
+
+    @Override
+    public void run() {
+        Iterator<HologramImpl> i = this.moving.iterator();
+        while (i.hasNext()) {
+            if (!i.next().tickMotion(this.sendInterval, this.keyframeInterval)) {
+                i.remove();
+            }
+        }
+    }
+
+    public int getMovingCount() {
+        return this.moving.size();
+    }
+
+    void add(HologramImpl hologram) {
+        if (!this.moving.contains(hologram)) {
+            this.moving.add(hologram);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api;
+
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.protocol.InjectionManager;
+import com.dsh105.holoapi.protocol.PendingPackets;
+import com.dsh105.holoapi.util.ViewerIndex;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Renders hologram line updates off the main server thread
+ * <p>
+ * The main thread only takes a snapshot of the viewers and reserves each viewer's place in their packet queue. Lines
+ * containing tags that must be resolved on the main thread are rendered there as part of the snapshot, and everything
+ * else, from formatting to building the metadata packets, happens on a render thread. Each hologram is always rendered
+ * on the same thread, and packets take the place reserved for them, so updates never overtake the spawn or destroy
+ * packets queued around them
+ */
+public class HologramRenderer {
+
+    private final ExecutorService[] lanes;
+
+    /**
+     * Constructs a new renderer
+     *
+     * @param threads number of render threads. Rendering happens on the main thread if this is less than one
+     */
+    public HologramRenderer(int threads) {
+        if (threads <= 0) {
+            this.lanes = null;
+            return;
+        }
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("HoloAPI Render Thread #%d").setDaemon(true).build();
+        this.lanes = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            // One thread per lane keeps every update to a hologram in the order it was submitted
+            this.lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+    }
+
+    /**
+     * Gets whether lines are rendered off the main thread
+     *
+     * @return true if rendering is asynchronous
+     */
+    public boolean isAsync() {
+        return this.lanes != null;
+    }
+
+    public int getThreadCount() {
+        return this.lanes == null ? 0 : this.lanes.length;
+    }
+
+    /**
+     * Updates lines of a hologram for a set of viewers. Must be called from the main thread
+     *
+     * @param hologram  hologram to update
+     * @param observers viewers to update the lines for
+     * @param lines     content of each line. Lines that are null are left as they are
+     */
+    void render(HologramImpl hologram, List<Player> observers, String[] lines) {
+        if (observers.isEmpty()) {
+            return;
+        }
+        if (this.lanes == null) {
+            for (Player observer : observers) {
+                for (int index = 0; index < lines.length; index++) {
+                    if (lines[index] != null) {
+                        hologram.updateNametag(observer, lines[index], index);
+                    }
+                }
+            }
+            return;
+        }
+
+        TagFormatter formatter = HoloAPI.getTagFormatter();
+        boolean[] mainThread = new boolean[lines.length];
+        boolean anyMainThread = false;
+        // Entity IDs can be reassigned on the main thread while the task is waiting, so take them now
+        int[] entityIds = new int[lines.length];
+        for (int index = 0; index < lines.length; index++) {
+            if (lines[index] == null) {
+                continue;
+            }
+            entityIds[index] = hologram.getHorseIndex(index);
+            if (!formatter.isAsyncSafe(lines[index])) {
+                mainThread[index] = true;
+                anyMainThread = true;
+            }
+        }
+
+        InjectionManager injectionManager = HoloAPI.getCore().getInjectionManager();
+        ViewerSnapshot[] viewers = new ViewerSnapshot[observers.size()];
+        for (int i = 0; i < viewers.length; i++) {
+            Player observer = observers.get(i);
+            HologramImpl.RenderedLine[] rendered = null;
+            if (anyMainThread) {
+                rendered = new HologramImpl.RenderedLine[lines.length];
+                for (int index = 0; index < lines.length; index++) {
+                    if (mainThread[index]) {
+                        rendered[index] = hologram.render(observer, lines[index], index);
+                    }
+                }
+            }
+            int viewerIndex = ViewerIndex.of(observer);
+            viewers[i] = new ViewerSnapshot(observer, viewerIndex, hologram.sentLines.getEpoch(viewerIndex), observer.getWorld().getName(), rendered, injectionManager.queuePending(observer));
+        }
+
+        RenderTask task = new RenderTask(hologram, lines, entityIds, viewers);
+        try {
+            this.lanes[(System.identityHashCode(hologram) & Integer.MAX_VALUE) % this.lanes.length].execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down. Release the queue rather than leaving it held up
+            task.abandon();
+        }
+    }
+
+    /**
+     * Stops all render threads. Updates that have already been submitted are still rendered
+     */
+    public void shutdown() {
+        if (this.lanes != null) {
+            for (ExecutorService lane : this.lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    private static class ViewerSnapshot {
+
+        private final Player observer;
+        private final int index;
+        private final int epoch;
+        private final String worldName;
+        // Lines already rendered on the main thread, or null if there are none
+        private final HologramImpl.RenderedLine[] rendered;
+        private final PendingPackets pending;
+
+        ViewerSnapshot(Player observer, int index, int epoch, String worldName, HologramImpl.RenderedLine[] rendered, PendingPackets pending) {
+            this.observer = observer;
+            this.index = index;
+            this.epoch = epoch;
+            this.worldName = worldName;
+            this.rendered = rendered;
+            this.pending = pending;
+        }
+    }
+
+    private static class RenderTask implements Runnable {
+
+        private final HologramImpl hologram;
+        private final String[] lines;
+        private final int[] entityIds;
+        private final ViewerSnapshot[] viewers;
+
+        RenderTask(HologramImpl hologram, String[] lines, int[] entityIds, ViewerSnapshot[] viewers) {
+            this.hologram = hologram;
+            this.lines = lines;
+            this.entityIds = entityIds;
+            this.viewers = viewers;
+        }
+
+        @Override
+        public void run() {
+            TagFormatter formatter = HoloAPI.getTagFormatter();
+            long tick = formatter.getRenderTick();
+            // Lines that don't depend on the observer are rendered once for every viewer in this task
+            HashMap<String, HologramImpl.RenderedLine> shared = new HashMap<>();
+
+            for (ViewerSnapshot viewer : this.viewers) {
+                ArrayList<Object> packets = new ArrayList<>();
+                try {
+                    for (int index = 0; index < this.lines.length; index++) {
+                        String message = this.lines[index];
+                        if (message == null) {
+                            continue;
+                        }
+                        HologramImpl.RenderedLine rendered = viewer.rendered == null ? null : viewer.rendered[index];
+                        if (rendered == null) {
+                            TagScope scope = formatter.getScope(message);
+                            if (scope == TagScope.PLAYER) {
+                                rendered = new HologramImpl.RenderedLine(message, null, 0, formatter.format(this.hologram, viewer.observer, message));
+                            } else {
+                                String worldName = scope == TagScope.WORLD ? viewer.worldName : null;
+                                String key = worldName == null ? String.valueOf(index) : index + ":" + worldName;
+                                rendered = shared.get(key);
+                                if (rendered == null) {
+                                    rendered = new HologramImpl.RenderedLine(message, worldName, tick, formatter.format(this.hologram, viewer.observer, message));
+                                    shared.put(key, rendered);
+                                }
+                            }
+                        }
+                        if (this.hologram.sentLines.update(viewer.index, viewer.epoch, index, rendered.getContent().hashCode())) {
+                            packets.add(rendered.getMetadata(this.entityIds[index]).getHandle());
+                        }
+                    }
+                } catch (Throwable t) {
+                    HoloAPI.LOG.warning("Failed to render hologram (" + this.hologram.getSaveId() + ") for " + viewer.observer.getName() + ": " + t.getMessage());
+                } finally {
+                    viewer.pending.complete(packets.toArray());
+                }
+            }
+        }
+
+        void abandon() {
+            for (ViewerSnapshot viewer : this.viewers) {
+                viewer.pending.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api;
+
+import com.dsh105.commodus.IdentUtil;
+import com.dsh105.commodus.ServerUtil;
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.config.Settings;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.*;
+
+/**
+ * Streams holograms to players based on a view radius
+ * <p>
+ * Holograms are shown to a player as they come within the view radius and cleared as they leave it. Player positions
+ * are polled periodically and only re-evaluated once a player has moved far enough, rather than on every movement
+ */
+public class HologramStreamer extends BukkitRunnable {
+
+    // Positions are re-evaluated at least this often, so that moved or newly created holograms are picked up
+    private static final long FORCE_CHECK_MILLIS = 5000L;
+
+    private HashMap<String, CheckedPosition> lastChecked = new HashMap<>();
+    private HashMap<String, Set<Hologram>> streamed = new HashMap<>();
+
+    private boolean enabled;
+    private int viewRadius;
+    private double movementThreshold;
+
+    public HologramStreamer() {
+        this.enabled = Settings.STREAMING_ENABLED.getValue();
+        this.viewRadius = Settings.STREAMING_VIEW_RADIUS.getValue();
+        this.movementThreshold = Settings.STREAMING_MOVEMENT_THRESHOLD.getValue();
+
+        if (this.enabled) {
+            long interval = Math.max(1, Settings.STREAMING_CHECK_INTERVAL.getValue());
+            this.runTaskTimer(HoloAPI.getCore(), interval, interval);
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public int getViewRadius() {
+        return this.viewRadius;
+    }
+
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        for (Player player : ServerUtil.getOnlinePlayers()) {
+            String ident = IdentUtil.getIdentificationForAsString(player);
+            Location location = player.getLocation();
+            CheckedPosition last = this.lastChecked.get(ident);
+            if (last != null && !last.shouldCheck(location, this.movementThreshold, now)) {
+                continue;
+            }
+            this.update(player, location, now);
+        }
+    }
+
+    /**
+     * Forces the holograms streamed to a player to be re-evaluated on the next check
+     *
+     * @param player player to re-evaluate
+     */
+    public void invalidate(Player player) {
+        this.lastChecked.remove(IdentUtil.getIdentificationForAsString(player));
+    }
+
+    /**
+     * Postpones the next check for a player, unless they move far enough in the meantime
+     *
+     * @param player      player to postpone the check for
+     * @param delayMillis time in milliseconds until the player is checked
+     */
+    public void postpone(Player player, long delayMillis) {
+        this.lastChecked.put(IdentUtil.getIdentificationForAsString(player), new CheckedPosition(player.getLocation(), System.currentTimeMillis() + delayMillis));
+    }
+
+    /**
+     * Forgets all streaming data for a player. Called when a player leaves the server
+     *
+     * @param player player to forget
+     */
+    public void remove(Player player) {
+        String ident = IdentUtil.getIdentificationForAsString(player);
+        this.lastChecked.remove(ident);
+        this.streamed.remove(ident);
+    }
+
+    /**
+     * Streams a newly created hologram to all players within view range of it
+     *
+     * @param hologram hologram to stream
+     */
+    public void stream(Hologram hologram) {
+        Location origin = hologram.getDefaultLocation();
+        if (origin.getWorld() == null) {
+            return;
+        }
+        double radiusSquared = (double) this.viewRadius * this.viewRadius;
+        for (Player player : origin.getWorld().getPlayers()) {
+            if (player.getLocation().distanceSquared(origin) <= radiusSquared) {
+                this.showStreamed(player, hologram, this.getStreamed(IdentUtil.getIdentificationForAsString(player)));
+            }
+        }
+    }
+
+    public void update(Player player) {
+        this.update(player, player.getLocation(), System.currentTimeMillis());
+    }
+
+    private void update(Player player, Location location, long now) {
+        String ident = IdentUtil.getIdentificationForAsString(player);
+        this.lastChecked.put(ident, new CheckedPosition(location, now + FORCE_CHECK_MILLIS));
+        Set<Hologram> streamed = this.getStreamed(ident);
+
+        // Leave a margin before clearing, so that players on the edge of the radius don't see holograms flicker
+        double clearRadius = this.viewRadius + this.movementThreshold;
+        double clearRadiusSquared = clearRadius * clearRadius;
+        String worldName = location.getWorld().getName();
+        Map<Hologram, Plugin> tracked = HoloAPI.getManager().getAllHolograms();
+
+        Iterator<Hologram> i = streamed.iterator();
+        while (i.hasNext()) {
+            Hologram hologram = i.next();
+            if (!tracked.containsKey(hologram)) {
+                i.remove();
+                continue;
+            }
+            boolean inRange = worldName.equals(hologram.getWorldName()) && distanceSquared(hologram, location) <= clearRadiusSquared;
+            if (!inRange) {
+                if (hologram.getLocationFor(player) != null) {
+                    hologram.clear(player);
+                }
+                i.remove();
+            }
+        }
+
+        for (Hologram hologram : HoloAPI.getManager().getHologramsNear(location, this.viewRadius)) {
+            if (!streamed.contains(hologram)) {
+                this.showStreamed(player, hologram, streamed);
+            }
+        }
+    }
+
+    private void showStreamed(Player player, Hologram hologram, Set<Hologram> streamed) {
+        if (hologram.getLocationFor(player) == null) {
+            if (!HoloAPI.getVisibilityCache().isVisibleTo(player, hologram)) {
+                return;
+            }
+            if (hologram instanceof AnimatedHologram && !((AnimatedHologram) hologram).isAnimating()) {
+                ((AnimatedHologram) hologram).animate();
+            }
+            hologram.show(player, true);
+        }
+        streamed.add(hologram);
+    }
+
+    private Set<Hologram> getStreamed(String ident) {
+        Set<Hologram> set = this.streamed.get(ident);
+        if (set == null) {
+            set = new HashSet<>();
+            this.streamed.put(ident, set);
+        }
+        return set;
+    }
+
+    private static double distanceSquared(Hologram hologram, Location location) {
+        double dx = hologram.getDefaultX() - location.getX();
+        double dy = hologram.getDefaultY() - location.getY();
+        double dz = hologram.getDefaultZ() - location.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static class CheckedPosition {
+
+        private final String worldName;
+        private final double x;
+        private final double y;
+        private final double z;
+        private final long forceCheckAt;
+
+        CheckedPosition(Location location, long forceCheckAt) {
+            this.worldName = location.getWorld().getName();
+            this.x = location.getX();
+            this.y = location.getY();
+            this.z = location.getZ();
+            this.forceCheckAt = forceCheckAt;
+        }
+
+        boolean shouldCheck(Location location, double threshold, long now) {
+            if (now >= this.forceCheckAt || !this.worldName.equals(location.getWorld().getName())) {
+                return true;
+            }
+            double dx = location.getX() - this.x;
+            double dy = location.getY() - this.y;
+            double dz = location.getZ() - this.z;
+            return dx * dx + dy * dy + dz * dz >= threshold * threshold;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dsh105.holoapi.api;
+
+import java.util.Arrays;
+
+/**
+ * Remembers a hash of the content last sent to each viewer for each line of a hologram
+ * <p>
+ * Hashes are kept in a single array indexed by {@link com.dsh105.holoapi.util.ViewerIndex} and line index. Each
+ * viewer also has an epoch that moves on whenever they are reset, so that updates rendered for a view that has since
+ * been cleared are ignored
+ */
+class LineHashStore {
+
+    // Marks content that hasn't been sent. Real hashes of 0 are stored as 1 instead
+    private static final int UNKNOWN = 0;
+
+    private int lines;
+    private int[] hashes = new int[0];
+    private int[] epochs = new int[0];
+    // Moves every viewer's epoch on at once
+    private int generation;
+
+    /**
+     * Records the hash of the content sent to a viewer for a line
+     *
+     * @return true if the hash differs from the one previously recorded, meaning the content should be sent
+     */
+    synchronized boolean update(int viewer, int line, int hash) {
+        int slot = this.slot(viewer, line);
+        hash = hash == UNKNOWN ? 1 : hash;
+        if (this.hashes[slot] == hash) {
+            return false;
+        }
+        this.hashes[slot] = hash;
+        return true;
+    }
+
+    /**
+     * Records the hash of content rendered for a viewer at a particular epoch
+     *
+     * @return true if the viewer is still at the given epoch and the hash differs from the one previously recorded
+     */
+    synchronized boolean update(int viewer, int epoch, int line, int hash) {
+        if (this.getEpoch(viewer) != epoch) {
+            return false;
+        }
+        return this.update(viewer, line, hash);
+    }
+
+    /**
+     * Gets the current epoch of a viewer
+     */
+    synchronized int getEpoch(int viewer) {
+        return this.generation + (viewer < this.epochs.length ? this.epochs[viewer] : 0);
+    }
+
+    /**
+     * Forgets everything sent to a viewer. Called when the hologram is cleared for them
+     */
+    synchronized void reset(int viewer) {
+        if (viewer >= this.epochs.length) {
+            this.epochs = Arrays.copyOf(this.epochs, Math.max(viewer + 1, this.epochs.length * 2));
+        }
+        this.epochs[viewer]++;
+        int start = viewer * this.lines;
+        if (start < this.hashes.length) {
+            Arrays.fill(this.hashes, start, start + this.lines, UNKNOWN);
+        }
+    }
+
+    synchronized void clear() {
+        this.generation++;
+        Arrays.fill(this.hashes, UNKNOWN);
+    }
+
+    private int slot(int viewer, int line) {
+        if (line >= this.lines) {
+            // Re-stride to fit the extra lines, keeping what has already been recorded
+            int lines = Math.max(line + 1, this.lines * 2);
+            int viewers = this.lines == 0 ? 0 : this.hashes.length / this.lines;
+            int[] hashes = new int[Math.max(viewers, viewer + 1) * lines];
+            for (int i = 0; i < viewers; i++) {
+                System.arraycopy(this.hashes, i * this.lines, hashes, i * lines, this.lines);
+            }
+            this.lines = lines;
+            this.hashes = hashes;
+        } else if ((viewer + 1) * this.lines > this.hashes.length) {
+            this.hashes = Arrays.copyOf(this.hashes, Math.max((viewer + 1) * this.lines, this.hashes.length * 2));
+        }
+        return viewer * this.lines + line;
+    }
+}
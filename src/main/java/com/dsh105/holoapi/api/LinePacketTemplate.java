@@ -0,0 +1,153 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api;
+
+import com.captainbern.minecraft.protocol.PacketType;
+import com.captainbern.minecraft.wrapper.WrappedDataWatcher;
+import com.captainbern.minecraft.wrapper.WrappedPacket;
+import org.bukkit.entity.EntityType;
+
+/**
+ * Caches the spawn packets of a single hologram line at a fixed position
+ * <p>
+ * Skull, attach and touch screen packets don't depend on the observer, so they are built once and sent to every
+ * player. The horse spawn packet carries the formatted name, so it is only rebuilt when the formatted content differs
+ * from the one it was last built with
+ */
+class LinePacketTemplate {
+
+    private final int horseId;
+    private final int skullId;
+    private final int touchSlimeId;
+    private final int touchSkullId;
+
+    private final int fixedX;
+    private final int fixedY;
+    private final int fixedZ;
+
+    private WrappedPacket skull;
+    private WrappedPacket attach;
+
+    private String horseContent;
+    private WrappedPacket horse;
+
+    private int slimeSize = -1;
+    private WrappedPacket touchSlime;
+    private WrappedPacket touchSkull;
+    private WrappedPacket attachTouch;
+
+    LinePacketTemplate(int horseId, int skullId, int touchSlimeId, int touchSkullId, double x, double y, double z) {
+        this.horseId = horseId;
+        this.skullId = skullId;
+        this.touchSlimeId = touchSlimeId;
+        this.touchSkullId = touchSkullId;
+        this.fixedX = toFixed(x);
+        this.fixedY = toFixed(y);
+        this.fixedZ = toFixed(z);
+    }
+
+    static int toFixed(double coordinate) {
+        return (int) Math.floor(coordinate * 32.0D);
+    }
+
+    boolean isAt(double x, double y, double z) {
+        return this.fixedX == toFixed(x) && this.fixedY == toFixed(y) && this.fixedZ == toFixed(z);
+    }
+
+    WrappedPacket getHorse(String content) {
+        if (this.horse == null || !content.equals(this.horseContent)) {
+            WrappedPacket horse = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY_LIVING);
+            horse.getIntegers().write(0, this.horseId);
+            horse.getIntegers().write(1, (int) EntityType.HORSE.getTypeId());
+            horse.getIntegers().write(2, this.fixedX);
+            horse.getIntegers().write(3, this.fixedY + 55 * 32);
+            horse.getIntegers().write(4, this.fixedZ);
+
+            WrappedDataWatcher dw = new WrappedDataWatcher();
+            dw.setObject(10, content);
+            dw.setObject(11, Byte.valueOf((byte) 1));
+            dw.setObject(12, Integer.valueOf(-1700000));
+
+            horse.getDataWatchers().write(0, dw);
+
+            this.horse = horse;
+            this.horseContent = content;
+        }
+        return this.horse;
+    }
+
+    WrappedPacket getSkull() {
+        if (this.skull == null) {
+            WrappedPacket skull = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY);
+            skull.getIntegers().write(0, this.skullId);
+            skull.getIntegers().write(1, this.fixedX);
+            skull.getIntegers().write(2, this.fixedY + 55 * 32);
+            skull.getIntegers().write(3, this.fixedZ);
+            skull.getIntegers().write(9, 66);
+            this.skull = skull;
+        }
+        return this.skull;
+    }
+
+    WrappedPacket getAttach() {
+        if (this.attach == null) {
+            WrappedPacket attach = new WrappedPacket(PacketType.Play.Server.ATTACH_ENTITY);
+            attach.getIntegers().write(0, 0);
+            attach.getIntegers().write(1, this.horseId);
+            attach.getIntegers().write(2, this.skullId);
+            this.attach = attach;
+        }
+        return this.attach;
+    }
+
+    WrappedPacket[] getTouchScreen(int slimeSize) {
+        int size = slimeSize < 1 ? 1 : (slimeSize > 100 ? 100 : slimeSize);
+        if (this.touchSlime == null || this.slimeSize != size) {
+            WrappedPacket touchSlime = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY_LIVING);
+            touchSlime.getIntegers().write(0, this.touchSlimeId);
+            touchSlime.getIntegers().write(1, (int) EntityType.SLIME.getTypeId());
+            touchSlime.getIntegers().write(2, this.fixedX);
+            touchSlime.getIntegers().write(3, this.fixedY);
+            touchSlime.getIntegers().write(4, this.fixedZ);
+
+            WrappedDataWatcher dw = new WrappedDataWatcher();
+            dw.setObject(0, Byte.valueOf((byte) 32));
+            dw.setObject(16, Byte.valueOf((byte) size));
+
+            touchSlime.getDataWatchers().write(0, dw);
+
+            WrappedPacket touchSkull = new WrappedPacket(PacketType.Play.Server.SPAWN_ENTITY);
+            touchSkull.getIntegers().write(0, this.touchSkullId);
+            touchSkull.getIntegers().write(1, this.fixedX);
+            touchSkull.getIntegers().write(2, this.fixedY);
+            touchSkull.getIntegers().write(3, this.fixedZ);
+            touchSkull.getIntegers().write(9, 66);
+
+            WrappedPacket attachTouch = new WrappedPacket(PacketType.Play.Server.ATTACH_ENTITY);
+            attachTouch.getIntegers().write(0, 0);
+            attachTouch.getIntegers().write(1, this.touchSlimeId);
+            attachTouch.getIntegers().write(2, this.touchSkullId);
+
+            this.touchSlime = touchSlime;
+            this.touchSkull = touchSkull;
+            this.attachTouch = attachTouch;
+            this.slimeSize = size;
+        }
+        return new WrappedPacket[]{this.touchSlime, this.touchSkull, this.attachTouch};
+    }
+}
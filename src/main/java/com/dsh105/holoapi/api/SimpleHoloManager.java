@@ -17,38 +17,101 @@
 
 package com.dsh105.holoapi.api;
 
-import com.dsh105.commodus.GeneralUtil;
-import com.dsh105.commodus.config.YAMLConfig;
 import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.api.events.*;
 import com.dsh105.holoapi.api.touch.TouchAction;
 import com.dsh105.holoapi.api.visibility.Visibility;
 import com.dsh105.holoapi.config.ConfigType;
 import com.dsh105.holoapi.config.Settings;
+import com.dsh105.holoapi.data.BinaryHologramStore;
+import com.dsh105.holoapi.data.HologramRecord;
+import com.dsh105.holoapi.data.HologramStore;
+import com.dsh105.holoapi.data.YamlHologramStore;
 import com.dsh105.holoapi.image.AnimatedImageGenerator;
 import com.dsh105.holoapi.image.AnimatedTextGenerator;
 import com.dsh105.holoapi.image.Frame;
 import com.dsh105.holoapi.image.ImageGenerator;
+import com.dsh105.holoapi.util.Debugger;
+import com.dsh105.holoapi.util.SaveIdGenerator;
 import com.dsh105.holoapi.util.TagIdGenerator;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
-import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 
+import java.io.File;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default {@link com.dsh105.holoapi.api.HoloManager} implementation
+ * <p>
+ * Threading model: holograms are only ever tracked, untracked, shown, moved and saved on the main server thread. The
+ * registry and each hologram's viewer map are concurrent maps, so {@link #getHologram(String)}, {@link
+ * #getAllHolograms()}, {@link #getHologramByEntityId(int)} and {@link com.dsh105.holoapi.api.Hologram#canBeSeenBy(org.bukkit.entity.Player)}
+ * may be called from any thread, including netty threads and async tasks, without locking. Results read off the main
+ * thread reflect some recent state of the registry rather than an exact one
+ * <p>
+ * Holograms are also indexed by save ID, owning plugin and simplicity. The maps and lists returned by lookups are
+ * unmodifiable live views of these indexes rather than copies
+ * <p>
+ * Saved holograms in worlds without players may be deferred when loaded, in which case they are only built once a
+ * player enters their world or they are looked up by save ID on the main thread
+ */
 public class SimpleHoloManager implements HoloManager {
 
-    private YAMLConfig config;
-    private HashMap<Hologram, Plugin> holograms = new HashMap<>();
+    private HologramStore store;
+    private ConcurrentHashMap<Hologram, Plugin> holograms = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, Hologram> bySaveId = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Plugin, List<Hologram>> byPlugin = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Hologram, Plugin> complexHolograms = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Hologram, Plugin> simpleHolograms = new ConcurrentHashMap<>();
+    private HologramChunkIndex chunkIndex = new HologramChunkIndex();
+    private EntityIdIndex entityIdIndex = new EntityIdIndex();
+
+    // Holograms waiting to be written to the store
+    private LinkedHashSet<Hologram> pendingSaves = new LinkedHashSet<>();
+
+    // Saved holograms that haven't been built yet, by world name and then save ID. Only used on the main thread
+    private HashMap<String, LinkedHashMap<String, HologramRecord>> deferred = new HashMap<>();
+    // Changed whenever holograms are cleared, so that builds still waiting on images from before are dropped
+    private int loadGeneration;
+
+    private final Executor mainThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            if (Bukkit.isPrimaryThread()) {
+                command.run();
+            } else {
+                Bukkit.getScheduler().runTask(HoloAPI.getCore(), command);
+            }
+        }
+    };
 
     public SimpleHoloManager() {
-        this.config = HoloAPI.getConfig(ConfigType.DATA);
+        this.store = this.createStore(Settings.DATA_STORE.getValue());
+        if (this.store == null) {
+            HoloAPI.LOG.warning("Unknown hologram store \"" + Settings.DATA_STORE.getValue() + "\". Falling back to " + YamlHologramStore.NAME + ".");
+            this.store = this.createStore(YamlHologramStore.NAME);
+        }
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                applyPendingSaves();
+                store.flushAsync();
+            }
+        }.runTaskTimer(HoloAPI.getCore(), Settings.DATA_SAVE_INTERVAL.getValue(), Settings.DATA_SAVE_INTERVAL.getValue());
         new BukkitRunnable() {
             @Override
             public void run() {
@@ -68,24 +131,12 @@ public class SimpleHoloManager implements HoloManager {
 
     @Override
     public Map<Hologram, Plugin> getAllComplexHolograms() {
-        HashMap<Hologram, Plugin> map = new HashMap<>();
-        for (Map.Entry<Hologram, Plugin> entry : this.holograms.entrySet()) {
-            if (!entry.getKey().isSimple()) {
-                map.put(entry.getKey(), entry.getValue());
-            }
-        }
-        return Collections.unmodifiableMap(map);
+        return Collections.unmodifiableMap(this.complexHolograms);
     }
 
     @Override
     public Map<Hologram, Plugin> getAllSimpleHolograms() {
-        HashMap<Hologram, Plugin> map = new HashMap<>();
-        for (Map.Entry<Hologram, Plugin> entry : this.holograms.entrySet()) {
-            if (entry.getKey().isSimple()) {
-                map.put(entry.getKey(), entry.getValue());
-            }
-        }
-        return Collections.unmodifiableMap(map);
+        return Collections.unmodifiableMap(this.simpleHolograms);
     }
 
     public void clearAll() {
@@ -96,35 +147,146 @@ public class SimpleHoloManager implements HoloManager {
                 this.saveToFile(h);
             }
             h.clearAllPlayerViews();
+            if (h instanceof HologramImpl) {
+                TagIdGenerator.release(((HologramImpl) h).firstTagId);
+            }
+            HoloAPI.getVisibilityCache().release(h);
             i.remove();
         }
+        this.bySaveId.clear();
+        this.byPlugin.clear();
+        this.complexHolograms.clear();
+        this.simpleHolograms.clear();
+        this.chunkIndex.clear();
+        this.entityIdIndex.clear();
+        this.deferred.clear();
+        this.loadGeneration++;
+        this.flushSaves();
     }
 
     @Override
     public List<Hologram> getHologramsFor(Plugin owningPlugin) {
-        ArrayList<Hologram> list = new ArrayList<>();
-        for (Map.Entry<Hologram, Plugin> entry : this.holograms.entrySet()) {
-            if (entry.getValue().equals(owningPlugin)) {
-                list.add(entry.getKey());
+        return Collections.unmodifiableList(this.getPluginIndex(owningPlugin));
+    }
+
+    @Override
+    public Hologram getHologram(String hologramId) {
+        if (hologramId == null) {
+            return null;
+        }
+        Hologram hologram = this.bySaveId.get(hologramId);
+        if (hologram == null && !this.deferred.isEmpty() && Bukkit.isPrimaryThread()) {
+            HologramRecord record = this.removeDeferred(hologramId);
+            if (record != null) {
+                // Image holograms may still be waiting on their images, in which case they aren't available yet
+                this.prepare(record);
+                hologram = this.bySaveId.get(hologramId);
             }
         }
-        return Collections.unmodifiableList(list);
+        return hologram;
     }
 
     @Override
-    public Hologram getHologram(String hologramId) {
-        for (Hologram hologram : this.holograms.keySet()) {
-            if (hologram.getSaveId().equals(hologramId)) {
-                return hologram;
+    public Hologram getHologramByEntityId(int entityId) {
+        return this.entityIdIndex.get(entityId);
+    }
+
+    @Override
+    public List<Hologram> getHologramsInChunk(String worldName, int chunkX, int chunkZ) {
+        return Collections.unmodifiableList(this.chunkIndex.getInChunk(worldName, chunkX, chunkZ));
+    }
+
+    @Override
+    public List<Hologram> getHologramsInWorld(String worldName) {
+        return Collections.unmodifiableList(this.chunkIndex.getInWorld(worldName));
+    }
+
+    @Override
+    public List<Hologram> getHologramsNear(Location location, double radius) {
+        return Collections.unmodifiableList(this.chunkIndex.getNear(location.getWorld().getName(), location.getX(), location.getY(), location.getZ(), radius));
+    }
+
+    /**
+     * Updates the chunk index of a tracked hologram after it has been moved
+     *
+     * @param hologram hologram that was moved
+     */
+    public void updateIndex(Hologram hologram) {
+        this.chunkIndex.update(hologram);
+    }
+
+    /**
+     * Moves a tracked hologram to its new save ID in the save ID index
+     *
+     * @param hologram       hologram whose save ID was changed
+     * @param previousSaveId save ID the hologram had before
+     */
+    void updateSaveId(Hologram hologram, String previousSaveId) {
+        Plugin owningPlugin = this.holograms.get(hologram);
+        if (owningPlugin == null) {
+            return;
+        }
+        if (previousSaveId != null) {
+            this.bySaveId.remove(previousSaveId, hologram);
+        }
+        this.bySaveId.put(hologram.getSaveId(), hologram);
+    }
+
+    /**
+     * Moves a tracked hologram between the simple and complex indexes
+     *
+     * @param hologram hologram whose simplicity was changed
+     */
+    void updateSimplicity(Hologram hologram) {
+        Plugin owningPlugin = this.holograms.get(hologram);
+        if (owningPlugin == null) {
+            return;
+        }
+        if (hologram.isSimple()) {
+            this.complexHolograms.remove(hologram);
+            this.simpleHolograms.put(hologram, owningPlugin);
+        } else {
+            this.simpleHolograms.remove(hologram);
+            this.complexHolograms.put(hologram, owningPlugin);
+        }
+    }
+
+    private List<Hologram> getPluginIndex(Plugin owningPlugin) {
+        List<Hologram> list = this.byPlugin.get(owningPlugin);
+        if (list == null) {
+            List<Hologram> created = new CopyOnWriteArrayList<>();
+            list = this.byPlugin.putIfAbsent(owningPlugin, created);
+            if (list == null) {
+                list = created;
             }
         }
-        return null;
+        return list;
     }
 
     @Override
     public void track(Hologram hologram, Plugin owningPlugin) {
-        this.holograms.put(hologram, owningPlugin);
-        if (!hologram.isSimple() && this.config.getConfigurationSection("holograms." + hologram.getSaveId()) == null) {
+        if (hologram instanceof HologramImpl) {
+            // Takes the IDs back if the hologram was tracked before and released them when it stopped being tracked
+            HologramImpl impl = (HologramImpl) hologram;
+            long stamp = TagIdGenerator.reserve(impl.firstTagId, impl.getTagCount(), impl.tagIdStamp);
+            if (stamp == 0) {
+                // Another hologram was given these IDs while this one wasn't tracked, so it moves to a fresh range
+                impl.reassignTagIds(TagIdGenerator.next(impl.getTagCount()));
+                Debugger.getInstance().log(2, "Entity IDs of hologram " + hologram.getSaveId() + " were in use by another hologram. Moved it to new IDs");
+            } else {
+                impl.tagIdStamp = stamp;
+            }
+        }
+        Plugin previousPlugin = this.holograms.put(hologram, owningPlugin);
+        if (previousPlugin != null) {
+            this.getPluginIndex(previousPlugin).remove(hologram);
+        }
+        this.bySaveId.put(hologram.getSaveId(), hologram);
+        this.getPluginIndex(owningPlugin).add(hologram);
+        this.updateSimplicity(hologram);
+        this.chunkIndex.add(hologram);
+        this.entityIdIndex.add(hologram);
+        if (!hologram.isSimple() && !this.store.contains(hologram.getSaveId())) {
             this.saveToFile(hologram);
         }
         if (hologram instanceof AnimatedHologram && !((AnimatedHologram) hologram).isAnimating()) {
@@ -147,10 +309,21 @@ public class SimpleHoloManager implements HoloManager {
 
     @Override
     public void stopTracking(Hologram hologram) {
-        boolean removed = this.holograms.remove(hologram) != null;
-        if(!removed) return; // No need to go on if we weren't already tracking it...
-        
+        Plugin owningPlugin = this.holograms.remove(hologram);
+        if (owningPlugin == null) return; // No need to go on if we weren't already tracking it...
+        this.bySaveId.remove(hologram.getSaveId(), hologram);
+        this.getPluginIndex(owningPlugin).remove(hologram);
+        this.complexHolograms.remove(hologram);
+        this.simpleHolograms.remove(hologram);
+        this.chunkIndex.remove(hologram);
+        this.entityIdIndex.remove(hologram);
+        HoloAPI.getVisibilityCache().release(hologram);
+
         hologram.clearAllPlayerViews();
+        if (hologram instanceof HologramImpl) {
+            ((HologramImpl) hologram).cancelMotion();
+            TagIdGenerator.release(((HologramImpl) hologram).firstTagId);
+        }
         if (hologram instanceof AnimatedHologram && ((AnimatedHologram) hologram).isAnimating()) {
             ((AnimatedHologram) hologram).cancelAnimation();
         }
@@ -179,67 +352,134 @@ public class SimpleHoloManager implements HoloManager {
     @Override
     public void saveToFile(Hologram hologram) {
         if (!hologram.isSimple()) {
-            String path = "holograms." + hologram.getSaveId() + ".";
-            this.config.set(path + "worldName", hologram.getWorldName());
-            this.config.set(path + "x", hologram.getDefaultX());
-            this.config.set(path + "y", hologram.getDefaultY());
-            this.config.set(path + "z", hologram.getDefaultZ());
-            if (hologram instanceof AnimatedHologram) {
-                AnimatedHologram animatedHologram = (AnimatedHologram) hologram;
-                if (animatedHologram.isImageGenerated() && (HoloAPI.getAnimationLoader().exists(animatedHologram.getAnimationKey())) || HoloAPI.getAnimationLoader().existsAsUnloadedUrl(animatedHologram.getAnimationKey())) {
-                    this.config.set(path + "animatedImage.image", true);
-                    this.config.set(path + "animatedImage.key", animatedHologram.getAnimationKey());
-                } else {
-                    this.config.set(path + "animatedImage.image", false);
-                    int index = 0;
-                    for (Frame f : animatedHologram.getFrames()) {
-                        this.config.set(path + "animatedImage.frames." + index + ".delay", f.getDelay());
-                        int tagIndex = 0;
-                        for (String tag : f.getLines()) {
-                            this.config.set(path + "animatedImage.frames." + index + "." + tagIndex, tag.replace(ChatColor.COLOR_CHAR, '&'));
-                            tagIndex++;
-                        }
-                        index++;
-                    }
-                }
-            } else {
-                int index = 0;
-                for (StoredTag tag : hologram.serialise()) {
-                    this.config.set(path + "lines." + index + ".type", tag.isImage() ? "image" : "text");
-                    this.config.set(path + "lines." + index + ".value", tag.getContent().replace(ChatColor.COLOR_CHAR, '&'));
-                    index++;
-                }
+            // Written on the next flush, so that repeated changes are only saved once
+            this.pendingSaves.add(hologram);
+        }
+    }
+
+    @Override
+    public void flushSaves() {
+        this.applyPendingSaves();
+        this.store.flush();
+    }
+
+    /**
+     * Gets the store holograms are saved to
+     *
+     * @return store holograms are saved to
+     */
+    public HologramStore getStore() {
+        return this.store;
+    }
+
+    /**
+     * Creates a hologram store by name
+     *
+     * @param name name of the store, either {@value com.dsh105.holoapi.data.YamlHologramStore#NAME} or {@value
+     *             com.dsh105.holoapi.data.BinaryHologramStore#NAME}
+     * @return new store, or null if no store has the given name
+     */
+    public HologramStore createStore(String name) {
+        if (YamlHologramStore.NAME.equalsIgnoreCase(name)) {
+            return new YamlHologramStore(HoloAPI.getCore(), HoloAPI.getConfig(ConfigType.DATA), new File(HoloAPI.getCore().getDataFolder(), "data.yml"));
+        } else if (BinaryHologramStore.NAME.equalsIgnoreCase(name)) {
+            return new BinaryHologramStore(HoloAPI.getCore(), new File(HoloAPI.getCore().getDataFolder(), "holograms.dat"));
+        }
+        return null;
+    }
+
+    /**
+     * Copies every stored hologram into another store and switches to saving holograms there instead. Holograms the
+     * other store still holds from an earlier migration, but which have since been deleted, are removed from it
+     *
+     * @param target store to migrate to
+     * @return number of holograms migrated
+     */
+    public int migrateTo(HologramStore target) {
+        this.flushSaves();
+        List<HologramRecord> records = this.store.loadAll();
+        HashSet<String> saveIds = new HashSet<>();
+        for (HologramRecord record : records) {
+            saveIds.add(record.getSaveId());
+        }
+        for (String saveId : target.getSaveIds()) {
+            if (!saveIds.contains(saveId)) {
+                target.remove(saveId);
             }
-            for (TouchAction touch : hologram.getAllTouchActions()) {
-                if (touch.getSaveKey() != null) {
-                    Map<String, Object> map = touch.getDataToSave();
-                    if (map != null && !map.isEmpty()) {
-                        for (Map.Entry<String, Object> entry : map.entrySet()) {
-                            // Let the developer implementing the API handle how data is saved and loaded to and from holograms
-                            this.config.set(path + "touchactions." + touch.getSaveKey() + "." + entry.getKey(), entry.getValue());
-                        }
+        }
+        for (HologramRecord record : records) {
+            target.save(record);
+        }
+        target.flush();
+        this.store.close();
+        this.store = target;
+        return records.size();
+    }
+
+    private void applyPendingSaves() {
+        for (Hologram hologram : this.pendingSaves) {
+            if (!hologram.isSimple()) {
+                this.store.save(this.toRecord(hologram));
+            }
+        }
+        this.pendingSaves.clear();
+    }
+
+    private HologramRecord toRecord(Hologram hologram) {
+        HologramRecord record = new HologramRecord(hologram.getSaveId(), hologram.getWorldName(), hologram.getDefaultX(), hologram.getDefaultY(), hologram.getDefaultZ());
+        if (hologram instanceof AnimatedHologram) {
+            AnimatedHologram animatedHologram = (AnimatedHologram) hologram;
+            if (animatedHologram.isImageGenerated() && (HoloAPI.getAnimationLoader().exists(animatedHologram.getAnimationKey())) || HoloAPI.getAnimationLoader().existsAsUnloadedUrl(animatedHologram.getAnimationKey())) {
+                record.setAnimationKey(animatedHologram.getAnimationKey());
+            } else {
+                ArrayList<Frame> frames = new ArrayList<>();
+                for (Frame f : animatedHologram.getFrames()) {
+                    String[] lines = new String[f.getLines().length];
+                    for (int i = 0; i < lines.length; i++) {
+                        lines[i] = f.getLines()[i].replace(ChatColor.COLOR_CHAR, '&');
                     }
+                    frames.add(new Frame(f.getDelay(), lines));
                 }
+                record.setFrames(frames);
             }
-            Visibility visibility = hologram.getVisibility();
-            if (visibility != null && visibility.getSaveKey() != null) {
-                Map<String, Object> map = visibility.getDataToSave();
+        } else {
+            ArrayList<StoredTag> lines = new ArrayList<>();
+            for (StoredTag tag : hologram.serialise()) {
+                lines.add(new StoredTag(tag.getContent().replace(ChatColor.COLOR_CHAR, '&'), tag.isImage()));
+            }
+            record.setLines(lines);
+        }
+        for (TouchAction touch : hologram.getAllTouchActions()) {
+            if (touch.getSaveKey() != null) {
+                Map<String, Object> map = touch.getDataToSave();
                 if (map != null && !map.isEmpty()) {
-                    this.config.set(path + "visibility", null);
-                    for (Map.Entry<String, Object> entry : map.entrySet()) {
-                        // Let the developer implementing the API handle how data is saved and loaded to and from holograms
-                        this.config.set(path + "visibility." + visibility.getSaveKey() + "." + entry.getKey(), entry.getValue());
-                    }
+                    // Let the developer implementing the API handle how data is saved and loaded to and from holograms
+                    record.getTouchActions().put(touch.getSaveKey(), new LinkedHashMap<>(map));
                 }
             }
-            this.config.saveConfig();
         }
+        Visibility visibility = hologram.getVisibility();
+        if (visibility != null && visibility.getSaveKey() != null) {
+            Map<String, Object> map = visibility.getDataToSave();
+            if (map != null && !map.isEmpty()) {
+                record.getVisibility().put(visibility.getSaveKey(), new LinkedHashMap<>(map));
+            }
+        }
+        return record;
     }
 
     @Override
     public void clearFromFile(String hologramId) {
-        this.config.set("holograms." + hologramId + "", null);
-        this.config.saveConfig();
+        if (Bukkit.isPrimaryThread()) {
+            this.removeDeferred(hologramId);
+        }
+        this.store.remove(hologramId);
+        Iterator<Hologram> i = this.pendingSaves.iterator();
+        while (i.hasNext()) {
+            if (i.next().getSaveId().equals(hologramId)) {
+                i.remove();
+            }
+        }
     }
 
     @Override
@@ -247,143 +487,168 @@ public class SimpleHoloManager implements HoloManager {
         this.clearFromFile(hologram.getSaveId());
     }
 
-    public ArrayList<String> loadFileData() {
-        ArrayList<String> unprepared = new ArrayList<>();
-        ConfigurationSection cs = config.getConfigurationSection("holograms");
-        if (cs != null) {
-            for (String key : cs.getKeys(false)) {
-                String path = "holograms." + key + ".";
-                String worldName = config.getString(path + "worldName");
-                double x = config.getDouble(path + "x");
-                double y = config.getDouble(path + "y");
-                double z = config.getDouble(path + "z");
-                if (config.get(path + "animatedImage.image") != null) {
-                    if (config.getBoolean(path + "animatedImage.image")) {
-                        unprepared.add(key);
-                    } else {
-                        ArrayList<Frame> frameList = new ArrayList<>();
-                        ConfigurationSection frames = config.getConfigurationSection("holograms." + key + ".animatedImage.frames");
-                        if (frames != null) {
-                            for (String frameKey : frames.getKeys(false)) {
-                                ConfigurationSection lines = config.getConfigurationSection("holograms." + key + ".animatedImage.frames." + frameKey);
-                                if (lines != null) {
-                                    ArrayList<String> tagList = new ArrayList<>();
-                                    int delay = config.getInt("holograms." + key + ".animatedImage.frames." + frameKey + ".delay", 5);
-                                    for (String tagKey : lines.getKeys(false)) {
-                                        if (!tagKey.equalsIgnoreCase("delay")) {
-                                            tagList.add(config.getString("holograms." + key + ".animatedImage.frames." + frameKey + "." + tagKey));
-                                        }
-                                    }
-                                    if (!tagList.isEmpty()) {
-                                        frameList.add(new Frame(delay, tagList.toArray(new String[tagList.size()])));
-                                    }
-                                }
-                            }
-                        }
-
-                        if (!frameList.isEmpty()) {
-                            this.loadExtraData(new AnimatedHologramFactory(HoloAPI.getCore())
-                                            .withSaveId(key)
-                                            .withText(new AnimatedTextGenerator(frameList.toArray(new Frame[frameList.size()])))
-                                            .withLocation(new Vector(x, y, z), worldName)
-                                            .build(),
-                                    key);
-                        }
-                    }
-                } else {
-                    ConfigurationSection cs1 = config.getConfigurationSection("holograms." + key + ".lines");
-                    boolean containsImage = false;
-                    if (cs1 != null) {
-                        //ArrayList<String> lines = new ArrayList<String>();
-                        HologramFactory hf = new HologramFactory(HoloAPI.getCore());
-                        for (String key1 : cs1.getKeys(false)) {
-                            if (GeneralUtil.isInt(key1)) {
-                                String type = config.getString(path + "lines." + key1 + ".type");
-                                String value = config.getString(path + "lines." + key1 + ".value");
-                                if (type.equalsIgnoreCase("image")) {
-                                    containsImage = true;
-                                    break;
-                                } else {
-                                    hf.withText(value);
-                                }
-
-                            } else {
-                                HoloAPI.LOG.warning("Failed to load line section of " + key1 + " for Hologram of ID " + key + ".");
-                            }
-                        }
-                        if (containsImage) {
-                            unprepared.add(key);
-                            continue;
-                        }
-                        this.loadExtraData(hf.withSaveId(key).withLocation(new Vector(x, y, z), worldName).build(), key);
-                    }
+    /**
+     * Loads every saved hologram from the store
+     * <p>
+     * Holograms without images are built straight away. Image holograms are built on the main thread as soon as the
+     * images and animations they use have been loaded. Holograms in worlds without players are deferred until a
+     * player enters their world if {@link com.dsh105.holoapi.config.Settings#LOADING_DEFER_EMPTY_WORLDS} is enabled
+     *
+     * @return futures of the image holograms that are still waiting on their images
+     */
+    public List<ListenableFuture<Hologram>> loadFileData() {
+        ArrayList<ListenableFuture<Hologram>> pending = new ArrayList<>();
+        boolean deferEmptyWorlds = Settings.LOADING_DEFER_EMPTY_WORLDS.getValue();
+        for (HologramRecord record : this.store.loadAll()) {
+            SaveIdGenerator.observe(record.getSaveId());
+            if (deferEmptyWorlds && !this.hasPlayers(record.getWorldName())) {
+                LinkedHashMap<String, HologramRecord> records = this.deferred.get(record.getWorldName());
+                if (records == null) {
+                    records = new LinkedHashMap<>();
+                    this.deferred.put(record.getWorldName(), records);
                 }
+                records.put(record.getSaveId(), record);
+                continue;
+            }
+            ListenableFuture<Hologram> future = this.prepare(record);
+            if (!future.isDone()) {
+                pending.add(future);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Builds the deferred holograms of a world. Called when a player enters the world
+     *
+     * @param worldName name of the world to build deferred holograms in
+     */
+    public void loadDeferred(String worldName) {
+        LinkedHashMap<String, HologramRecord> records = this.deferred.remove(worldName);
+        if (records != null) {
+            for (HologramRecord record : records.values()) {
+                this.prepare(record);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of saved holograms that are waiting for a player to enter their world before they are built
+     *
+     * @return number of deferred holograms
+     */
+    public int getDeferredCount() {
+        int count = 0;
+        for (LinkedHashMap<String, HologramRecord> records : this.deferred.values()) {
+            count += records.size();
+        }
+        return count;
+    }
 
+    private HologramRecord removeDeferred(String hologramId) {
+        Iterator<LinkedHashMap<String, HologramRecord>> i = this.deferred.values().iterator();
+        while (i.hasNext()) {
+            LinkedHashMap<String, HologramRecord> records = i.next();
+            HologramRecord record = records.remove(hologramId);
+            if (record != null) {
+                if (records.isEmpty()) {
+                    i.remove();
+                }
+                return record;
             }
         }
-        return unprepared;
+        return null;
+    }
+
+    private boolean hasPlayers(String worldName) {
+        World world = worldName == null ? null : Bukkit.getWorld(worldName);
+        return world != null && !world.getPlayers().isEmpty();
+    }
+
+    private ListenableFuture<Hologram> prepare(final HologramRecord record) {
+        if (!record.hasImage()) {
+            return Futures.immediateFuture(this.build(record));
+        }
+
+        ArrayList<ListenableFuture<?>> dependencies = new ArrayList<>();
+        if (record.getAnimationKey() != null) {
+            dependencies.add(HoloAPI.getAnimationLoader().getFuture(record.getAnimationKey()));
+        } else if (record.getLines() != null) {
+            for (StoredTag line : record.getLines()) {
+                if (line.isImage()) {
+                    dependencies.add(HoloAPI.getImageLoader().getFuture(line.getContent()));
+                }
+            }
+        }
+
+        final SettableFuture<Hologram> result = SettableFuture.create();
+        final int generation = this.loadGeneration;
+        final AtomicInteger remaining = new AtomicInteger(dependencies.size());
+        Runnable build = new Runnable() {
+            @Override
+            public void run() {
+                if (remaining.decrementAndGet() == 0) {
+                    // Holograms were cleared or reloaded while this one was waiting
+                    result.set(generation == loadGeneration && !bySaveId.containsKey(record.getSaveId()) ? build(record) : null);
+                }
+            }
+        };
+        for (ListenableFuture<?> dependency : dependencies) {
+            dependency.addListener(build, this.mainThread);
+        }
+        return result;
     }
 
     public Hologram loadFromFile(String hologramId) {
-        String path = "holograms." + hologramId + ".";
-        String worldName = config.getString(path + "worldName");
-        double x = config.getDouble(path + "x");
-        double y = config.getDouble(path + "y");
-        double z = config.getDouble(path + "z");
+        HologramRecord record = this.store.load(hologramId);
+        return record == null ? null : this.build(record);
+    }
+
+    private Hologram build(HologramRecord record) {
+        String hologramId = record.getSaveId();
+        Vector location = new Vector(record.getX(), record.getY(), record.getZ());
         Hologram finalHologram = null;
-        if (config.get(path + "animatedImage.image") != null) {
-            if (config.getBoolean(path + "animatedImage.image")) {
-                AnimatedImageGenerator generator = HoloAPI.getAnimationLoader().getGenerator(config.getString(path + "animatedImage.key"));
-                if (generator != null) {
-                    finalHologram = new AnimatedHologramFactory(HoloAPI.getCore()).withSaveId(hologramId).withImage(generator).withLocation(new Vector(x, y, z), worldName).build();
-                }
+        if (record.getAnimationKey() != null) {
+            AnimatedImageGenerator generator = HoloAPI.getAnimationLoader().getGenerator(record.getAnimationKey());
+            if (generator != null) {
+                finalHologram = new AnimatedHologramFactory(HoloAPI.getCore()).withSaveId(hologramId).withImage(generator).withLocation(location, record.getWorldName()).build();
             }
-        } else {
-            ConfigurationSection cs1 = config.getConfigurationSection("holograms." + hologramId + ".lines");
+        } else if (record.getFrames() != null) {
+            if (!record.getFrames().isEmpty()) {
+                finalHologram = new AnimatedHologramFactory(HoloAPI.getCore())
+                        .withSaveId(hologramId)
+                        .withText(new AnimatedTextGenerator(record.getFrames().toArray(new Frame[record.getFrames().size()])))
+                        .withLocation(location, record.getWorldName())
+                        .build();
+            }
+        } else if (record.getLines() != null) {
             HologramFactory hf = new HologramFactory(HoloAPI.getCore());
-            //ArrayList<String> lines = new ArrayList<String>();
-            for (String key1 : cs1.getKeys(false)) {
-                if (GeneralUtil.isInt(key1)) {
-                    String type = config.getString(path + "lines." + key1 + ".type");
-                    String value = config.getString(path + "lines." + key1 + ".value");
-                    if (type.equalsIgnoreCase("image")) {
-                        ImageGenerator generator = HoloAPI.getImageLoader().getGenerator(value);
-                        if (generator != null) {
-                            hf.withImage(generator);
-                        }
-                    } else {
-                        hf.withText(value);
+            for (StoredTag line : record.getLines()) {
+                if (line.isImage()) {
+                    ImageGenerator generator = HoloAPI.getImageLoader().getGenerator(line.getContent());
+                    if (generator != null) {
+                        hf.withImage(generator);
                     }
                 } else {
-                    HoloAPI.LOG.warning("Failed to load line section of " + key1 + " for Hologram of ID " + hologramId + ".");
+                    hf.withText(line.getContent());
                 }
             }
             if (!hf.isEmpty()) {
-                finalHologram = hf.withSaveId(hologramId).withLocation(new Vector(x, y, z), worldName).build();
+                finalHologram = hf.withSaveId(hologramId).withLocation(location, record.getWorldName()).build();
             }
         }
         if (finalHologram != null) {
-            this.loadExtraData(finalHologram, hologramId);
+            this.loadExtraData(finalHologram, record);
         }
         return finalHologram;
     }
 
-    private void loadExtraData(Hologram hologram, String hologramKey) {
-        String[] sections = new String[]{"touchactions", "visibility"};
-        for (String sectionKey : sections) {
-            ConfigurationSection section = this.config.getConfigurationSection("holograms." + hologramKey + "." + sectionKey);
-            if (section != null) {
-                for (String objKey : section.getKeys(true)) {
-                    LinkedHashMap<String, Object> configMap = new LinkedHashMap<>();
-                    ConfigurationSection objKeySection = this.config.getConfigurationSection("holograms." + hologramKey + "." + sectionKey + "." + objKey);
-                    if (objKeySection != null) {
-                        for (String fullKey : objKeySection.getKeys(true)) {
-                            configMap.put(fullKey, objKeySection.get(fullKey));
-                        }
-                    }
-                    this.callDataLoadEvent(sectionKey, hologram, objKey, configMap);
-                }
-            }
+    private void loadExtraData(Hologram hologram, HologramRecord record) {
+        for (Map.Entry<String, LinkedHashMap<String, Object>> entry : record.getTouchActions().entrySet()) {
+            this.callDataLoadEvent("touchactions", hologram, entry.getKey(), new LinkedHashMap<>(entry.getValue()));
+        }
+        for (Map.Entry<String, LinkedHashMap<String, Object>> entry : record.getVisibility().entrySet()) {
+            this.callDataLoadEvent("visibility", hologram, entry.getKey(), new LinkedHashMap<>(entry.getValue()));
         }
     }
 
@@ -492,20 +757,12 @@ public class SimpleHoloManager implements HoloManager {
                 hologram.show((Player) e, true);
             }
         }
-        BukkitTask t = null;
 
         if (rise) {
-            t = HoloAPI.getCore().getServer().getScheduler().runTaskTimer(HoloAPI.getCore(), new Runnable() {
-                @Override
-                public void run() {
-                    Location l = hologram.getDefaultLocation();
-                    l.add(0.0D, 0.02D, 0.0D);
-                    hologram.move(l.toVector());
-                }
-            }, 1L, 1L);
+            hologram.setVelocity(new Vector(0.0D, 0.02D, 0.0D));
         }
 
-        new HologramRemoveTask(hologram, t).runTaskLater(HoloAPI.getCore(), secondsUntilRemoved * 20);
+        new HologramRemoveTask(hologram).runTaskLater(HoloAPI.getCore(), secondsUntilRemoved * 20);
         return hologram;
     }
 
@@ -515,7 +772,7 @@ public class SimpleHoloManager implements HoloManager {
     }
 
     @Override
-    public Hologram createSimpleHologram(Location location, int secondsUntilRemoved, final Vector velocity, String... lines) {
+    public Hologram createSimpleHologram(Location location, int secondsUntilRemoved, Vector velocity, String... lines) {
         int simpleId = TagIdGenerator.next(lines.length);
         final Hologram hologram = new HologramFactory(HoloAPI.getCore()).withFirstTagId(simpleId).withSaveId(simpleId + "").withText(lines).withLocation(location).withSimplicity(true).build();
         for (Entity e : hologram.getDefaultLocation().getWorld().getEntities()) {
@@ -524,34 +781,22 @@ public class SimpleHoloManager implements HoloManager {
             }
         }
 
-        BukkitTask t = HoloAPI.getCore().getServer().getScheduler().runTaskTimer(HoloAPI.getCore(), new Runnable() {
-            @Override
-            public void run() {
-                Location l = hologram.getDefaultLocation();
-                l.add(velocity);
-                hologram.move(l.toVector());
-            }
-        }, 1L, 1L);
+        hologram.setVelocity(velocity);
 
-        new HologramRemoveTask(hologram, t).runTaskLater(HoloAPI.getCore(), secondsUntilRemoved * 20);
+        new HologramRemoveTask(hologram).runTaskLater(HoloAPI.getCore(), secondsUntilRemoved * 20);
         return hologram;
     }
 
     class HologramRemoveTask extends BukkitRunnable {
 
-        BukkitTask task = null;
         private Hologram hologram;
 
-        HologramRemoveTask(Hologram hologram, BukkitTask task) {
+        HologramRemoveTask(Hologram hologram) {
             this.hologram = hologram;
-            this.task = task;
         }
 
         @Override
         public void run() {
-            if (this.task != null) {
-                task.cancel();
-            }
             stopTracking(hologram);
         }
     }
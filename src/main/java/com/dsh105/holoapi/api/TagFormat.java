@@ -28,4 +28,25 @@ public abstract class TagFormat implements ITagFormat {
     public String getValue(Hologram hologram, Player observer) {
         return getValue(observer);
     }
+
+    /**
+     * Gets the scope of the value of this format. Formats that don't depend on the observer should override this so
+     * that their lines can be shared between observers
+     *
+     * @return scope of this format. Defaults to {@link com.dsh105.holoapi.api.TagScope#PLAYER}
+     */
+    public TagScope getScope() {
+        return TagScope.PLAYER;
+    }
+
+    /**
+     * Gets whether the value of this format can be safely retrieved off the main server thread. Formats that only
+     * read immutable or thread safe state should override this so that their lines can be rendered asynchronously
+     *
+     * @return true if {@link #getValue(Hologram, org.bukkit.entity.Player)} may be called from any thread. Defaults
+     * to false
+     */
+    public boolean isAsyncSafe() {
+        return false;
+    }
 }
\ No newline at end of file
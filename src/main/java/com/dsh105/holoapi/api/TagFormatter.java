@@ -32,15 +32,36 @@ import org.bukkit.inventory.ItemStack;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class TagFormatter {
 
+    private static final Pattern ITEM_ID_PATTERN = Pattern.compile("%item:([0-9]+)(?:,([0-9]+))?%");
+    private static final Pattern ITEM_NAME_PATTERN = Pattern.compile("%item:([^0-9%]+)%");
+
+    // Enough to hold every distinct line of a large server's holograms without growing unbounded from chat bubbles
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+
     private HashMap<String, TagFormat> tagFormats = new HashMap<>();
     private HashMap<Pattern, DynamicTagFormat> dynamicTagFormats = new HashMap<>();
 
+    private final Map<String, TagTemplate> templates = new LinkedHashMap<String, TagTemplate>(64, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TagTemplate> eldest) {
+            return this.size() > MAX_CACHED_TEMPLATES;
+        }
+    };
+
+    private final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(64);
+        }
+    };
+
     public TagFormatter() {
         this.addFormat("%time%", new TagFormat() {
             @Override
@@ -49,6 +70,16 @@ public class TagFormatter {
                 c.add(Calendar.HOUR_OF_DAY, Settings.TIMEZONE_OFFSET.getValue());
                 return new SimpleDateFormat("h:mm a" + (Settings.TIMEZONE_SHOW_ZONE_MARKER.getValue() ? " z" : "")).format(c.getTime());
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.GLOBAL;
+            }
+
+            @Override
+            public boolean isAsyncSafe() {
+                return true;
+            }
         });
 
         this.addFormat("%mctime%", new TagFormat() {
@@ -56,6 +87,11 @@ public class TagFormatter {
             public String getValue(Player observer) {
                 return TimeUtil.format12(observer.getWorld().getTime());
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.WORLD;
+            }
         });
 
         this.addFormat("%name%", new TagFormat() {
@@ -63,6 +99,11 @@ public class TagFormatter {
             public String getValue(Player observer) {
                 return observer.getName();
             }
+
+            @Override
+            public boolean isAsyncSafe() {
+                return true;
+            }
         });
 
         this.addFormat("%displayname%", new TagFormat() {
@@ -91,6 +132,11 @@ public class TagFormatter {
             public String getValue(Player observer) {
                 return observer.getWorld().getName();
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.WORLD;
+            }
         });
 
         this.addFormat("%health%", new TagFormat() {
@@ -105,6 +151,11 @@ public class TagFormatter {
             public String getValue(Player observer) {
                 return String.valueOf(ServerUtil.getOnlinePlayers().size());
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.GLOBAL;
+            }
         });
 
         this.addFormat("%maxplayers%", new TagFormat() {
@@ -112,6 +163,16 @@ public class TagFormatter {
             public String getValue(Player observer) {
                 return String.valueOf(Bukkit.getMaxPlayers());
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.GLOBAL;
+            }
+
+            @Override
+            public boolean isAsyncSafe() {
+                return true;
+            }
         });
 
         this.addFormat(Pattern.compile("%date:(.+?)%"), new DynamicTagFormat() {
@@ -123,6 +184,16 @@ public class TagFormatter {
                 calendar.add(Calendar.HOUR_OF_DAY, Settings.TIMEZONE_OFFSET.getValue());
                 return format.format(calendar.getTime());
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.GLOBAL;
+            }
+
+            @Override
+            public boolean isAsyncSafe() {
+                return true;
+            }
         });
 
         this.addFormat(Pattern.compile("%serveronline:(.+?)%"), new DynamicTagFormat() {
@@ -130,6 +201,11 @@ public class TagFormatter {
             public String match(Matcher matcher, String lineContent, com.dsh105.holoapi.api.Hologram h, Player observer) {
                 return String.valueOf(HoloAPI.getBungeeProvider().getPlayerCount(matcher.group(1)));
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.GLOBAL;
+            }
         });
 
         this.addFormat(Settings.MULTICOLOR_CHARACTER.getValue(), new TagFormat() {
@@ -137,6 +213,16 @@ public class TagFormatter {
             public String getValue(Player observer) {
                 return HoloAPI.getHoloUpdater().getCurrentMultiColorFormat();
             }
+
+            @Override
+            public TagScope getScope() {
+                return TagScope.GLOBAL;
+            }
+
+            @Override
+            public boolean isAsyncSafe() {
+                return true;
+            }
         });
     }
 
@@ -147,7 +233,10 @@ public class TagFormatter {
      * @param format format to apply
      */
     public void addFormat(String tag, TagFormat format) {
-        this.tagFormats.put(tag, format);
+        synchronized (this.templates) {
+            this.tagFormats.put(tag, format);
+            this.invalidateTemplates();
+        }
     }
 
     /**
@@ -156,7 +245,10 @@ public class TagFormatter {
      * @param tag tag of the format to remove
      */
     public void removeFormat(String tag) {
-        this.tagFormats.remove(tag);
+        synchronized (this.templates) {
+            this.tagFormats.remove(tag);
+            this.invalidateTemplates();
+        }
     }
 
     /**
@@ -166,7 +258,10 @@ public class TagFormatter {
      * @param format  format to apply
      */
     public void addFormat(Pattern pattern, DynamicTagFormat format) {
-        this.dynamicTagFormats.put(pattern, format);
+        synchronized (this.templates) {
+            this.dynamicTagFormats.put(pattern, format);
+            this.invalidateTemplates();
+        }
     }
 
     /**
@@ -175,7 +270,10 @@ public class TagFormatter {
      * @param pattern pattern of the format to remove
      */
     public void removeFormat(Pattern pattern) {
-        this.dynamicTagFormats.remove(pattern);
+        synchronized (this.templates) {
+            this.dynamicTagFormats.remove(pattern);
+            this.invalidateTemplates();
+        }
     }
 
     public String formatForOldClient(String content) {
@@ -199,37 +297,92 @@ public class TagFormatter {
     }
 
     public String formatTags(Hologram h, Player observer, String content) {
-        for (Map.Entry<String, TagFormat> entry : this.tagFormats.entrySet()) {
-            if (entry.getKey() != null && entry.getValue() != null) {
-                String replacement = entry.getValue().getValue(h, observer);
-                if (replacement != null) {
-                    content = content.replace(entry.getKey(), replacement);
-                }
-            }
+        TagTemplate template = this.getTemplate(content);
+        if (template.isStatic()) {
+            return formatForOldClient(content);
         }
+        return formatForOldClient(template.render(h, observer, this.builders.get()));
+    }
 
-        for (Map.Entry<Pattern, DynamicTagFormat> entry : this.dynamicTagFormats.entrySet()) {
-            Matcher matcher = entry.getKey().matcher(content);
-            while (matcher.find()) {
-                content = content.replace(matcher.group(), entry.getValue().match(matcher, content, h, observer));
+    public String format(Hologram h, Player observer, String content) {
+        TagTemplate template = this.getTemplate(content);
+        if (template.isStatic()) {
+            // Nothing in the line depends on the observer, so the fully formatted result can be reused
+            String formatted = template.getBasicFormatted();
+            if (formatted == null) {
+                formatted = formatBasic(formatForOldClient(content));
+                template.setBasicFormatted(formatted);
             }
+            return formatted;
         }
+        content = formatForOldClient(template.render(h, observer, this.builders.get()));
+        content = formatBasic(content);
 
-
-        //content = matchDate(content);
-        content = formatForOldClient(content);
         return content;
     }
 
-    public String format(Hologram h, Player observer, String content) {
-        content = formatTags(h, observer, content);
-        content = formatBasic(content);
+    /**
+     * Gets whether a line of content contains no tags, in which case it formats the same way every time
+     *
+     * @param content content to check
+     * @return true if the content contains no tags
+     */
+    public boolean isStatic(String content) {
+        return this.getTemplate(content).isStatic();
+    }
 
-        return content;
+    /**
+     * Gets the scope of a line of content, determined by the narrowest scope of the tags it contains
+     *
+     * @param content content to check
+     * @return scope of the formatted content
+     */
+    public TagScope getScope(String content) {
+        return this.getTemplate(content).getScope();
+    }
+
+    /**
+     * Gets whether a line of content can be formatted off the main server thread, which is only the case if every tag
+     * it contains is safe to retrieve asynchronously
+     *
+     * @param content content to check
+     * @return true if the content may be formatted from any thread
+     * @see com.dsh105.holoapi.api.TagFormat#isAsyncSafe()
+     */
+    public boolean isAsyncSafe(String content) {
+        return this.getTemplate(content).isAsyncSafe();
+    }
+
+    /**
+     * Gets the current render tick, which moves on once per server tick. Shared lines formatted within the same render
+     * tick are reused rather than formatted again
+     *
+     * @return current render tick
+     */
+    public long getRenderTick() {
+        AnimationScheduler scheduler = HoloAPI.getAnimationScheduler();
+        return scheduler == null ? 0 : scheduler.getTick();
+    }
+
+    private TagTemplate getTemplate(String content) {
+        synchronized (this.templates) {
+            TagTemplate template = this.templates.get(content);
+            if (template == null) {
+                template = TagTemplate.compile(content, this.tagFormats, this.dynamicTagFormats);
+                this.templates.put(content, template);
+            }
+            return template;
+        }
+    }
+
+    private void invalidateTemplates() {
+        synchronized (this.templates) {
+            this.templates.clear();
+        }
     }
 
     public ItemStack matchItem(String content) {
-        Matcher matcher = Pattern.compile("%item:([0-9]+)(?:,([0-9]+))?%").matcher(content);
+        Matcher matcher = ITEM_ID_PATTERN.matcher(content);
         while (matcher.find()) {
             try {
                 int id = Integer.parseInt(matcher.group(1));
@@ -238,7 +391,7 @@ public class TagFormatter {
             } catch (NumberFormatException ignored) {
             }
         }
-        Matcher matcherStr = Pattern.compile("%item:([^0-9%]+)%").matcher(content);
+        Matcher matcherStr = ITEM_NAME_PATTERN.matcher(content);
         while (matcherStr.find()) {
             Material m = Material.matchMaterial(matcherStr.group(1));
             if (m != null) {
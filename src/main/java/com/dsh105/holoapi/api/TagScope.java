@@ -0,0 +1,55 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api;
+
+/**
+ * Describes which observers share the value of a tag
+ * <p>
+ * Lines only containing tags of a shared scope are formatted once and the result reused for every observer it applies
+ * to
+ */
+public enum TagScope {
+
+    /**
+     * The value is the same for every observer
+     */
+    GLOBAL,
+
+    /**
+     * The value is the same for every observer in the same world
+     */
+    WORLD,
+
+    /**
+     * The value may differ for each observer
+     */
+    PLAYER;
+
+    /**
+     * Gets the narrower of two scopes
+     *
+     * @param other scope to compare to
+     * @return the scope that is shared by fewer observers
+     */
+    public TagScope narrow(TagScope other) {
+        if (other == null) {
+            return PLAYER;
+        }
+        return other.ordinal() > this.ordinal() ? other : this;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api;
+
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A line of hologram content parsed into literal segments and the tags found between them
+ * <p>
+ * Parsing happens once per distinct line. Rendering only evaluates the tags that are actually present in the line
+ */
+class TagTemplate {
+
+    private final String content;
+    // There is always one more literal than there are nodes: literal, node, literal, ..., literal
+    private final String[] literals;
+    private final Node[] nodes;
+    private final int literalLength;
+    private final TagScope scope;
+    private final boolean asyncSafe;
+
+    private String basicFormatted;
+
+    private TagTemplate(String content, String[] literals, Node[] nodes) {
+        this.content = content;
+        this.literals = literals;
+        this.nodes = nodes;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+
+        TagScope scope = TagScope.GLOBAL;
+        boolean asyncSafe = true;
+        for (Node node : nodes) {
+            scope = scope.narrow(node.getScope());
+            asyncSafe &= node.isAsyncSafe();
+        }
+        this.scope = scope;
+        this.asyncSafe = asyncSafe;
+    }
+
+    static TagTemplate compile(String content, Map<String, TagFormat> tagFormats, Map<Pattern, DynamicTagFormat> dynamicTagFormats) {
+        ArrayList<Span> spans = new ArrayList<>();
+        for (Map.Entry<String, TagFormat> entry : tagFormats.entrySet()) {
+            String key = entry.getKey();
+            if (key == null || key.isEmpty() || entry.getValue() == null) {
+                continue;
+            }
+            int index = content.indexOf(key);
+            while (index >= 0) {
+                spans.add(new Span(index, index + key.length(), new TagNode(key, entry.getValue())));
+                index = content.indexOf(key, index + key.length());
+            }
+        }
+
+        for (Map.Entry<Pattern, DynamicTagFormat> entry : dynamicTagFormats.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            Matcher matcher = entry.getKey().matcher(content);
+            while (matcher.find()) {
+                if (matcher.end() > matcher.start()) {
+                    spans.add(new Span(matcher.start(), matcher.end(), new DynamicNode(entry.getKey(), matcher.group(), entry.getValue())));
+                }
+            }
+        }
+
+        if (spans.isEmpty()) {
+            return new TagTemplate(content, new String[]{content}, new Node[0]);
+        }
+
+        Collections.sort(spans);
+        ArrayList<String> literals = new ArrayList<>();
+        ArrayList<Node> nodes = new ArrayList<>();
+        int position = 0;
+        for (Span span : spans) {
+            if (span.start < position) {
+                // Overlaps a tag that has already been placed
+                continue;
+            }
+            literals.add(content.substring(position, span.start));
+            nodes.add(span.node);
+            position = span.end;
+        }
+        literals.add(content.substring(position));
+        return new TagTemplate(content, literals.toArray(new String[literals.size()]), nodes.toArray(new Node[nodes.size()]));
+    }
+
+    /**
+     * Gets whether this template contains no tags at all, in which case it renders to its original content
+     *
+     * @return true if there are no tags in this template
+     */
+    boolean isStatic() {
+        return this.nodes.length == 0;
+    }
+
+    /**
+     * Gets the narrowest scope of all tags in this template
+     *
+     * @return scope of the rendered result of this template
+     */
+    TagScope getScope() {
+        return this.scope;
+    }
+
+    /**
+     * Gets whether every tag in this template can be evaluated off the main server thread
+     *
+     * @return true if this template can be rendered from any thread
+     */
+    boolean isAsyncSafe() {
+        return this.asyncSafe;
+    }
+
+    String getContent() {
+        return this.content;
+    }
+
+    String getBasicFormatted() {
+        return this.basicFormatted;
+    }
+
+    void setBasicFormatted(String basicFormatted) {
+        this.basicFormatted = basicFormatted;
+    }
+
+    String render(Hologram hologram, Player observer, StringBuilder builder) {
+        if (this.isStatic()) {
+            return this.content;
+        }
+        builder.setLength(0);
+        builder.ensureCapacity(this.literalLength + this.nodes.length * 16);
+        for (int i = 0; i < this.nodes.length; i++) {
+            builder.append(this.literals[i]);
+            builder.append(this.nodes[i].evaluate(hologram, observer, this.content));
+        }
+        builder.append(this.literals[this.nodes.length]);
+        return builder.toString();
+    }
+
+    private static class Span implements Comparable<Span> {
+
+        private final int start;
+        private final int end;
+        private final Node node;
+
+        Span(int start, int end, Node node) {
+            this.start = start;
+            this.end = end;
+            this.node = node;
+        }
+
+        @Override
+        public int compareTo(Span other) {
+            if (this.start != other.start) {
+                return this.start < other.start ? -1 : 1;
+            }
+            // Prefer the longest tag starting at the same position
+            return other.end < this.end ? -1 : (other.end == this.end ? 0 : 1);
+        }
+    }
+
+    private static abstract class Node {
+
+        abstract String evaluate(Hologram hologram, Player observer, String lineContent);
+
+        abstract TagScope getScope();
+
+        abstract boolean isAsyncSafe();
+    }
+
+    private static class TagNode extends Node {
+
+        private final String tag;
+        private final TagFormat format;
+
+        TagNode(String tag, TagFormat format) {
+            this.tag = tag;
+            this.format = format;
+        }
+
+        @Override
+        String evaluate(Hologram hologram, Player observer, String lineContent) {
+            String value = this.format.getValue(hologram, observer);
+            return value == null ? this.tag : value;
+        }
+
+        @Override
+        TagScope getScope() {
+            return this.format.getScope();
+        }
+
+        @Override
+        boolean isAsyncSafe() {
+            return this.format.isAsyncSafe();
+        }
+    }
+
+    private static class DynamicNode extends Node {
+
+        private final Pattern pattern;
+        private final String match;
+        private final DynamicTagFormat format;
+
+        DynamicNode(Pattern pattern, String match, DynamicTagFormat format) {
+            this.pattern = pattern;
+            this.match = match;
+            this.format = format;
+        }
+
+        @Override
+        String evaluate(Hologram hologram, Player observer, String lineContent) {
+            Matcher matcher = this.pattern.matcher(this.match);
+            if (!matcher.find()) {
+                return this.match;
+            }
+            String value = this.format.match(matcher, lineContent, hologram, observer);
+            return value == null ? this.match : value;
+        }
+
+        @Override
+        TagScope getScope() {
+            return this.format.getScope();
+        }
+
+        @Override
+        boolean isAsyncSafe() {
+            return this.format.isAsyncSafe();
+        }
+    }
+}
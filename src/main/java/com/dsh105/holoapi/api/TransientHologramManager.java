@@ -0,0 +1,272 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dsh105.holoapi.api;
+
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.config.Settings;
+import com.dsh105.holoapi.util.TagIdGenerator;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.util.Vector;
+
+import java.util.*;
+
+/**
+ * Shows short lived holograms, such as indicators and chat bubbles
+ * <p>
+ * Transient holograms aren't tracked by the {@link com.dsh105.holoapi.api.HoloManager}, don't fire any events and are
+ * only shown to players within a radius of where they appear. A single task removes all of them, and
+ * holograms that have expired are kept in a pool, along with their entity IDs, to be reused by the next one with the
+ * same number of lines
+ */
+public class TransientHologramManager extends BukkitRunnable {
+
+    private static final int MAX_LINES = 30;
+    // Holograms following a player are only moved this often
+    private static final int FOLLOW_INTERVAL = 10;
+    private static final Vector RISE = new Vector(0.0D, 0.02D, 0.0D);
+
+    private HashMap<Integer, ArrayDeque<HologramImpl>> pool = new HashMap<>();
+    private ArrayList<Active> active = new ArrayList<>();
+    private HashMap<String, ArrayList<Hologram>> groups = new HashMap<>();
+
+    private int viewRadius;
+    private int poolSize;
+    private int pooled;
+    private long tick;
+
+    public TransientHologramManager() {
+        this.viewRadius = Settings.TRANSIENT_VIEW_RADIUS.getValue();
+        this.poolSize = Settings.TRANSIENT_POOL_SIZE.getValue();
+        this.runTaskTimer(HoloAPI.getCore(), 1L, 1L);
+    }
+
+    /**
+     * Shows a transient hologram to all players near a location
+     *
+     * @param location       location to show the hologram at
+     * @param secondsVisible time in seconds until the hologram is removed
+     * @param rise           whether the hologram should slowly rise
+     * @param lines          content of the hologram
+     * @return the hologram shown. It must not be used after it has been removed, as it may be reused
+     */
+    public Hologram spawn(Location location, int secondsVisible, boolean rise, String... lines) {
+        return this.spawn(location, secondsVisible, rise ? RISE : null, null, lines);
+    }
+
+    /**
+     * Shows a transient hologram to all players near a location
+     *
+     * @param location       location to show the hologram at
+     * @param secondsVisible time in seconds until the hologram is removed
+     * @param velocity       distance moved every tick. May be null
+     * @param group          group to add the hologram to until it is removed. May be null
+     * @param lines          content of the hologram
+     * @return the hologram shown. It must not be used after it has been removed, as it may be reused
+     */
+    public Hologram spawn(Location location, int secondsVisible, Vector velocity, String group, String... lines) {
+        return this.start(new Active(this.acquire(location, lines), secondsVisible, velocity, group));
+    }
+
+    /**
+     * Shows a transient hologram that follows a player
+     *
+     * @param player         player to follow
+     * @param location       location to initially show the hologram at
+     * @param offsetY        height above the player's eyes to keep the hologram at
+     * @param secondsVisible time in seconds until the hologram is removed
+     * @param rise           whether the hologram should slowly rise above the player
+     * @param group          group to add the hologram to until it is removed. May be null
+     * @param lines          content of the hologram
+     * @return the hologram shown. It must not be used after it has been removed, as it may be reused
+     */
+    public Hologram spawnFollowing(Player player, Location location, double offsetY, int secondsVisible, boolean rise, String group, String... lines) {
+        Active active = new Active(this.acquire(location, lines), secondsVisible, rise ? RISE : null, group);
+        active.following = player;
+        active.offsetY = offsetY;
+        return this.start(active);
+    }
+
+    /**
+     * Gets the velocity used by rising holograms
+     *
+     * @return velocity of rising holograms
+     */
+    public static Vector getRiseVelocity() {
+        return RISE.clone();
+    }
+
+    /**
+     * Gets the holograms in a group that haven't been removed yet, oldest first
+     *
+     * @param group group to get
+     * @return holograms in the group
+     */
+    public List<Hologram> getActive(String group) {
+        ArrayList<Hologram> list = this.groups.get(group);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    public int getActiveCount() {
+        return this.active.size();
+    }
+
+    public int getPooledCount() {
+        return this.pooled;
+    }
+
+    /**
+     * Removes every transient hologram
+     */
+    public void clear() {
+        for (Active active : this.active) {
+            this.recycle(active);
+        }
+        this.active.clear();
+    }
+
+    @Override
+    public void run() {
+        long now = ++this.tick;
+        Iterator<Active> i = this.active.iterator();
+        while (i.hasNext()) {
+            Active active = i.next();
+            if (now >= active.expireTick) {
+                i.remove();
+                this.recycle(active);
+                continue;
+            }
+
+            if (active.following != null) {
+                if ((now - active.startTick) % FOLLOW_INTERVAL != 0) {
+                    continue;
+                }
+                if (!active.following.isOnline()) {
+                    active.following = null;
+                    if (active.velocity != null) {
+                        active.hologram.setVelocity(active.velocity);
+                    }
+                    continue;
+                }
+                if (active.velocity != null) {
+                    active.offsetY += active.velocity.getY();
+                }
+                Location eye = active.following.getEyeLocation();
+                // Glide to the player's current position over the time until the next update
+                active.hologram.moveTo(new Vector(eye.getX(), eye.getY() + active.offsetY, eye.getZ()), FOLLOW_INTERVAL);
+            }
+        }
+    }
+
+    private Hologram start(Active active) {
+        active.startTick = this.tick;
+        active.expireTick = this.tick + Math.max(1, active.secondsVisible * 20);
+        if (active.following == null && active.velocity != null) {
+            active.hologram.setVelocity(active.velocity);
+        }
+        this.active.add(active);
+        if (active.group != null) {
+            ArrayList<Hologram> list = this.groups.get(active.group);
+            if (list == null) {
+                list = new ArrayList<>();
+                this.groups.put(active.group, list);
+            }
+            list.add(active.hologram);
+        }
+
+        Location location = active.hologram.getDefaultLocation();
+        if (location.getWorld() != null) {
+            double radiusSquared = (double) this.viewRadius * this.viewRadius;
+            for (Player player : location.getWorld().getPlayers()) {
+                if (player.getLocation().distanceSquared(location) <= radiusSquared) {
+                    active.hologram.show(player, true);
+                }
+            }
+        }
+        return active.hologram;
+    }
+
+    private HologramImpl acquire(Location location, String... lines) {
+        if (lines.length > MAX_LINES) {
+            lines = Arrays.copyOf(lines, MAX_LINES);
+        }
+        String worldName = location.getWorld().getName();
+        ArrayDeque<HologramImpl> deque = this.pool.get(lines.length);
+        HologramImpl hologram = deque == null ? null : deque.poll();
+        if (hologram != null) {
+            this.pooled--;
+        } else {
+            int firstTagId = TagIdGenerator.next(lines.length);
+            hologram = new HologramImpl(firstTagId, String.valueOf(firstTagId), worldName, location.getX(), location.getY(), location.getZ(), lines);
+        }
+        hologram.reset(worldName, location.getX(), location.getY(), location.getZ(), lines);
+        return hologram;
+    }
+
+    private void recycle(Active active) {
+        HologramImpl hologram = active.hologram;
+        hologram.cancelMotion();
+        hologram.clearAllPlayerViews();
+        if (active.group != null) {
+            ArrayList<Hologram> list = this.groups.get(active.group);
+            if (list != null) {
+                list.remove(hologram);
+                if (list.isEmpty()) {
+                    this.groups.remove(active.group);
+                }
+            }
+        }
+
+        if (this.pooled >= this.poolSize) {
+            TagIdGenerator.release(hologram.firstTagId);
+            return;
+        }
+        int lines = hologram.getTagCount();
+        ArrayDeque<HologramImpl> deque = this.pool.get(lines);
+        if (deque == null) {
+            deque = new ArrayDeque<>();
+            this.pool.put(lines, deque);
+        }
+        deque.push(hologram);
+        this.pooled++;
+    }
+
+    private static class Active {
+
+        private final HologramImpl hologram;
+        private final int secondsVisible;
+        private final Vector velocity;
+        private final String group;
+
+        private long startTick;
+        private long expireTick;
+
+        private Player following;
+        private double offsetY;
+
+        Active(HologramImpl hologram, int secondsVisible, Vector velocity, String group) {
+            this.hologram = hologram;
+            this.secondsVisible = secondsVisible;
+            this.velocity = velocity;
+            this.group = group;
+        }
+    }
+}
@@ -31,12 +31,18 @@ public class HoloTouchEvent extends HoloEvent {
     private final Player who;
     private final TouchAction touchAction;
     private final Action clickAction;
+    private final int lineIndex;
 
     public HoloTouchEvent(Hologram hologram, Player who, TouchAction touchAction, Action clickAction) {
+        this(hologram, who, touchAction, clickAction, -1);
+    }
+
+    public HoloTouchEvent(Hologram hologram, Player who, TouchAction touchAction, Action clickAction, int lineIndex) {
         super(hologram);
         this.who = who;
         this.touchAction = touchAction;
         this.clickAction = clickAction;
+        this.lineIndex = lineIndex;
     }
 
     /**
@@ -65,4 +71,13 @@ public class HoloTouchEvent extends HoloEvent {
     public Action getClickAction() {
         return clickAction;
     }
+
+    /**
+     * Gets the index of the line that was touched
+     *
+     * @return index of the touched line, or -1 if unknown
+     */
+    public int getLineIndex() {
+        return lineIndex;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api.visibility;
+
+import org.bukkit.event.player.PlayerEvent;
+
+import java.util.Set;
+
+/**
+ * Represents a visibility whose result for a player can change in response to events
+ * <p>
+ * Results of {@link com.dsh105.holoapi.api.visibility.Visibility#isVisibleTo(org.bukkit.entity.Player, String)} are
+ * cached by the {@link com.dsh105.holoapi.api.visibility.VisibilityCache}. Implementing this lets a visibility name the
+ * events that should cause them to be recalculated for the player involved
+ */
+public interface DynamicVisibility extends Visibility {
+
+    /**
+     * Gets the events that may change whether a hologram with this visibility is visible to the player involved
+     *
+     * @return events that invalidate cached results for their player, or null if results should never be cached
+     */
+    public Set<Class<? extends PlayerEvent>> getInvalidatingEvents();
+}
@@ -0,0 +1,231 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.api.visibility;
+
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.api.Hologram;
+import com.dsh105.holoapi.config.Settings;
+import com.dsh105.holoapi.util.ViewerIndex;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.IllegalPluginAccessException;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Caches whether each hologram is visible to each player
+ * <p>
+ * Every hologram is given a slot, and each player (by {@link com.dsh105.holoapi.util.ViewerIndex}) has a bitset of the
+ * slots that have been evaluated and a bitset of those that turned out visible. Results are recalculated when a player
+ * joins or changes world, when a hologram's visibility is changed, on an explicit invalidate or on an event declared
+ * by a {@link com.dsh105.holoapi.api.visibility.DynamicVisibility}. As permissions can change without any event at all,
+ * a player's results are also recalculated once they are older than the configured recheck interval
+ * <p>
+ * Only holograms tracked by the {@link com.dsh105.holoapi.api.HoloManager} are given a slot, as their slot is freed
+ * once they stop being tracked. Visibility of any other hologram, and any check made off the main server thread, is
+ * evaluated on every call instead
+ */
+public class VisibilityCache implements Listener {
+
+    private final IdentityHashMap<Hologram, Integer> slots = new IdentityHashMap<>();
+    private final BitSet usedSlots = new BitSet();
+    private final Set<Class<? extends PlayerEvent>> registeredEvents = new HashSet<>();
+
+    private BitSet[] evaluated = new BitSet[0];
+    private BitSet[] visible = new BitSet[0];
+    private long[] evaluatedAt = new long[0];
+    private long recheckMillis;
+
+    public VisibilityCache() {
+        this.recheckMillis = Math.max(0, Settings.VISIBILITY_RECHECK_INTERVAL.getValue()) * 1000L;
+    }
+
+    /**
+     * Gets whether a hologram is visible to a player, using the cached result if there is one
+     *
+     * @param player   player in question
+     * @param hologram hologram to check
+     * @return true if the hologram can be shown to the player
+     */
+    public boolean isVisibleTo(Player player, Hologram hologram) {
+        Visibility visibility = hologram.getVisibility();
+        if (visibility == null || visibility instanceof VisibilityDefault) {
+            return true;
+        }
+        if (visibility instanceof DynamicVisibility && ((DynamicVisibility) visibility).getInvalidatingEvents() == null) {
+            return visibility.isVisibleTo(player, hologram.getSaveId());
+        }
+        if (!Bukkit.isPrimaryThread() || !HoloAPI.getManager().getAllHolograms().containsKey(hologram)) {
+            return visibility.isVisibleTo(player, hologram.getSaveId());
+        }
+
+        int viewer = ViewerIndex.of(player);
+        this.ensureViewer(viewer);
+        long now = System.currentTimeMillis();
+        if (this.recheckMillis > 0 && now - this.evaluatedAt[viewer] >= this.recheckMillis) {
+            this.evaluated[viewer].clear();
+            this.evaluatedAt[viewer] = now;
+        }
+
+        int slot = this.slotOf(hologram);
+        if (!this.evaluated[viewer].get(slot)) {
+            this.visible[viewer].set(slot, visibility.isVisibleTo(player, hologram.getSaveId()));
+            this.evaluated[viewer].set(slot);
+        }
+        return this.visible[viewer].get(slot);
+    }
+
+    /**
+     * Forgets all cached results for a player
+     *
+     * @param player player to recalculate visibility for
+     */
+    public void invalidate(Player player) {
+        int viewer = ViewerIndex.of(player);
+        if (viewer < this.evaluated.length && this.evaluated[viewer] != null) {
+            this.evaluated[viewer].clear();
+            this.evaluatedAt[viewer] = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Forgets all cached results for a hologram. Called whenever the visibility of a hologram is changed
+     *
+     * @param hologram hologram to recalculate visibility for
+     */
+    public void invalidate(Hologram hologram) {
+        Integer slot = this.slots.get(hologram);
+        if (slot != null) {
+            this.clearSlot(slot);
+        }
+        Visibility visibility = hologram.getVisibility();
+        if (visibility instanceof DynamicVisibility) {
+            this.register(((DynamicVisibility) visibility).getInvalidatingEvents());
+        }
+    }
+
+    /**
+     * Forgets all cached results
+     */
+    public void invalidateAll() {
+        for (BitSet evaluated : this.evaluated) {
+            if (evaluated != null) {
+                evaluated.clear();
+            }
+        }
+    }
+
+    /**
+     * Frees the slot of a hologram. Called when a hologram is no longer tracked
+     *
+     * @param hologram hologram to forget
+     */
+    public void release(Hologram hologram) {
+        Integer slot = this.slots.remove(hologram);
+        if (slot != null) {
+            this.clearSlot(slot);
+            this.usedSlots.clear(slot);
+        }
+    }
+
+    public int getSlotCount() {
+        return this.slots.size();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Viewer indexes are reused, so never trust what was cached for the previous owner
+        this.invalidate(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        this.invalidate(event.getPlayer());
+    }
+
+    private void register(Set<Class<? extends PlayerEvent>> events) {
+        if (events == null) {
+            return;
+        }
+        for (final Class<? extends PlayerEvent> eventClass : events) {
+            if (!this.registeredEvents.add(eventClass)) {
+                continue;
+            }
+            try {
+                Bukkit.getPluginManager().registerEvent(eventClass, this, EventPriority.LOWEST, new EventExecutor() {
+                    @Override
+                    public void execute(Listener listener, Event event) throws EventException {
+                        // Handlers are also called for subclasses of the registered event
+                        if (eventClass.isInstance(event)) {
+                            invalidate(((PlayerEvent) event).getPlayer());
+                        }
+                    }
+                }, HoloAPI.getCore());
+            } catch (IllegalPluginAccessException e) {
+                HoloAPI.LOG.warning("Could not listen for " + eventClass.getSimpleName() + " to invalidate hologram visibility: " + e.getMessage());
+            }
+        }
+    }
+
+    private int slotOf(Hologram hologram) {
+        Integer slot = this.slots.get(hologram);
+        if (slot == null) {
+            slot = this.usedSlots.nextClearBit(0);
+            this.usedSlots.set(slot);
+            this.slots.put(hologram, slot);
+            // Anything left over from the previous owner of the slot is stale
+            this.clearSlot(slot);
+        }
+        return slot;
+    }
+
+    private void clearSlot(int slot) {
+        for (BitSet evaluated : this.evaluated) {
+            if (evaluated != null) {
+                evaluated.clear(slot);
+            }
+        }
+    }
+
+    private void ensureViewer(int viewer) {
+        if (viewer >= this.evaluated.length) {
+            int length = Math.max(viewer + 1, this.evaluated.length * 2);
+            this.evaluated = Arrays.copyOf(this.evaluated, length);
+            this.visible = Arrays.copyOf(this.visible, length);
+            this.evaluatedAt = Arrays.copyOf(this.evaluatedAt, length);
+        }
+        if (this.evaluated[viewer] == null) {
+            this.evaluated[viewer] = new BitSet();
+            this.visible[viewer] = new BitSet();
+            this.evaluatedAt[viewer] = System.currentTimeMillis();
+        }
+    }
+}
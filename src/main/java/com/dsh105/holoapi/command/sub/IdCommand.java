@@ -22,7 +22,6 @@ import com.dsh105.command.CommandEvent;
 import com.dsh105.command.CommandListener;
 import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.api.Hologram;
-import com.dsh105.holoapi.config.ConfigType;
 import com.dsh105.holoapi.config.Lang;
 
 public class IdCommand implements CommandListener {
@@ -40,7 +39,7 @@ public class IdCommand implements CommandListener {
             return true;
         }
 
-        if (HoloAPI.getConfig(ConfigType.DATA).getConfigurationSection("holograms." + event.variable("new_id")) != null) {
+        if (HoloAPI.getHologramStore().contains(event.variable("new_id")) || HoloAPI.getManager().getHologram(event.variable("new_id")) != null) {
             event.respond(Lang.HOLOGRAM_DUPLICATE_ID.getValue("id", event.variable("new_id")));
             return true;
         }
@@ -0,0 +1,64 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.command.sub;
+
+import com.dsh105.command.Command;
+import com.dsh105.command.CommandEvent;
+import com.dsh105.command.CommandListener;
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.api.HoloManager;
+import com.dsh105.holoapi.api.SimpleHoloManager;
+import com.dsh105.holoapi.config.ConfigType;
+import com.dsh105.holoapi.config.Lang;
+import com.dsh105.holoapi.config.Settings;
+import com.dsh105.holoapi.data.HologramStore;
+
+public class MigrateCommand implements CommandListener {
+
+    @Command(
+            command = "migrate <store>",
+            description = "Move all saved holograms to a different store",
+            permission = "holoapi.holo.migrate",
+            help = {"Valid stores are yaml (data.yml) and binary (holograms.dat)", "HoloAPI saves holograms to the new store from then on"}
+    )
+    public boolean command(CommandEvent event) {
+        HoloManager manager = HoloAPI.getManager();
+        if (!(manager instanceof SimpleHoloManager)) {
+            return true;
+        }
+        SimpleHoloManager holoManager = (SimpleHoloManager) manager;
+        String from = holoManager.getStore().getName();
+        String to = event.variable("store").toLowerCase();
+        if (from.equalsIgnoreCase(to)) {
+            event.respond(Lang.STORE_ALREADY_IN_USE.getValue("store", from));
+            return true;
+        }
+
+        HologramStore target = holoManager.createStore(to);
+        if (target == null) {
+            event.respond(Lang.STORE_NOT_FOUND.getValue("store", event.variable("store")));
+            return true;
+        }
+
+        int count = holoManager.migrateTo(target);
+        Settings.DATA_STORE.setValue(target.getName());
+        HoloAPI.getConfig(ConfigType.MAIN).saveConfig();
+        event.respond(Lang.STORE_MIGRATED.getValue("count", String.valueOf(count), "from", from, "to", target.getName()));
+        return true;
+    }
+}
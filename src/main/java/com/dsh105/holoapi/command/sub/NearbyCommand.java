@@ -22,7 +22,6 @@ import com.dsh105.command.Command;
 import com.dsh105.command.CommandEvent;
 import com.dsh105.command.CommandListener;
 import com.dsh105.commodus.GeneralUtil;
-import com.dsh105.commodus.GeometryUtil;
 import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.api.Hologram;
 import com.dsh105.holoapi.config.Lang;
@@ -47,8 +46,8 @@ public class NearbyCommand implements CommandListener {
         }
 
         ArrayList<Hologram> nearby = new ArrayList<Hologram>();
-        for (Hologram hologram : HoloAPI.getManager().getAllComplexHolograms().keySet()) {
-            if (GeometryUtil.getNearbyEntities(hologram.getDefaultLocation(), radius).contains(event.sender())) {
+        for (Hologram hologram : HoloAPI.getManager().getHologramsNear(event.sender().getLocation(), radius)) {
+            if (!hologram.isSimple()) {
                 nearby.add(hologram);
             }
         }
@@ -32,6 +32,9 @@ public class ReloadCommand implements CommandListener {
             permission = "holoapi.holo.reload"
     )
     public boolean command(CommandEvent event) {
+        // Make sure nothing still waiting to be saved is lost
+        HoloAPI.getManager().flushSaves();
+
         // Reload config files
         HoloAPI.getConfig(ConfigType.MAIN).reloadConfig();
         HoloAPI.getConfig(ConfigType.DATA).reloadConfig();
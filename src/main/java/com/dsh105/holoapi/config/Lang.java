@@ -93,6 +93,9 @@ public class Lang extends Options {
             HOLOGRAM_HIDE = new LangSetting("hologram_hide", "{c1}Hologram {c2}%id% {c1}hidden for {c2}%player%{c1}."),
             HOLOGRAM_DUPLICATE_ID = new LangSetting("hologram_duplicate_id", "{c1}Hologram save IDs must be unique. A hologram of ID {c2}%id% {c1}already exists in the HoloAPI data files!"),
             HOLOGRAM_SET_ID = new LangSetting("hologram_set_id", "{c1}Save ID of hologram {c2}%oldid% {c1}set to {c2}%newid%{c1}."),
+            STORE_MIGRATED = new LangSetting("store_migrated", "{c1}Migrated {c2}%count% {c1}holograms from the {c2}%from% {c1}store to the {c2}%to% {c1}store."),
+            STORE_NOT_FOUND = new LangSetting("store_not_found", "{c1}Hologram store {c2}%store% {c1}not found. Valid stores are {c2}yaml {c1}and {c2}binary{c1}."),
+            STORE_ALREADY_IN_USE = new LangSetting("store_already_in_use", "{c1}Holograms are already saved to the {c2}%store% {c1}store."),
             NO_NEARBY_HOLOGRAMS = new LangSetting("no_nearby_holograms", "{c1}There are no holograms within a radius of {c2}%radius%{c1}."),
             COMPLEX_HOLOGRAMS_CLEARED = new LangSetting("complex_holograms_cleared", "{c1}All complex holograms cleared."),
             SIMPLE_HOLOGRAMS_CLEARED = new LangSetting("simple_holograms_cleared", "{c1}All simple holograms cleared."),
@@ -99,6 +99,7 @@ public class Settings extends Options {
 
     public static final Setting<String> TRANSPARENCY_WITH_BORDER = new Setting<>("transparency.withBorder", " &r ");
     public static final Setting<String> TRANSPARENCY_WITHOUT_BORDER = new Setting<>("transparency.noBorder", " ");
+    public static final Setting<Integer> IMAGE_MAX_LINE_LENGTH = new Setting<>("imageMaxLineLength", 0);
 
     public static final Setting<Integer> TIMEZONE_OFFSET = new Setting<>("timezone.offset", 0);
     public static final Setting<Boolean> TIMEZONE_SHOW_ZONE_MARKER = new Setting<>("timezone.showZoneMarker", true);
@@ -107,6 +108,24 @@ public class Settings extends Options {
     public static final Setting<String> MULTICOLOR_COLOURS = new Setting<>("multicolorFormat.colours", "&d,&5,&1,&9,&b,&a,&e,&6,&c,&3");
     public static final Setting<Integer> MULTICOLOR_DELAY = new Setting<>("multicolorFormat.delay", 5);
 
+    public static final Setting<Integer> DATA_SAVE_INTERVAL = new Setting<>("dataSaveIntervalTicks", 100);
+    public static final Setting<String> DATA_STORE = new Setting<>("dataStore", "yaml");
+
+    public static final Setting<Boolean> STREAMING_ENABLED = new Setting<>("streaming.enabled", false);
+    public static final Setting<Integer> STREAMING_VIEW_RADIUS = new Setting<>("streaming.viewRadius", 64);
+    public static final Setting<Integer> STREAMING_CHECK_INTERVAL = new Setting<>("streaming.checkIntervalTicks", 10);
+    public static final Setting<Double> STREAMING_MOVEMENT_THRESHOLD = new Setting<>("streaming.movementThreshold", 4D);
+    public static final Setting<Integer> TRANSIENT_VIEW_RADIUS = new Setting<>("transientHolograms.viewRadius", 48);
+    public static final Setting<Integer> TRANSIENT_POOL_SIZE = new Setting<>("transientHolograms.poolSize", 64);
+    public static final Setting<Integer> MOTION_SEND_INTERVAL = new Setting<>("motion.sendIntervalTicks", 3);
+    public static final Setting<Integer> MOTION_KEYFRAME_INTERVAL = new Setting<>("motion.keyframeIntervalTicks", 40);
+    public static final Setting<Integer> RENDER_THREADS = new Setting<>("render.threads", 2);
+    public static final Setting<Integer> VISIBILITY_RECHECK_INTERVAL = new Setting<>("visibility.recheckIntervalSeconds", 30);
+    public static final Setting<Integer> LOADING_THREADS = new Setting<>("loading.threads", 4);
+    public static final Setting<Boolean> LOADING_DEFER_EMPTY_WORLDS = new Setting<>("loading.deferEmptyWorlds", true);
+    public static final Setting<Boolean> IMAGE_CACHE_ENABLED = new Setting<>("imageCache.enabled", true);
+    public static final Setting<Integer> IMAGE_CACHE_MAX_SIZE = new Setting<>("imageCache.maxSizeMegabytes", 32);
+
     public static final Setting<Boolean> CHATBUBBLES_SHOW = new Setting<>("chatBubbles.show", false);
     public static final Setting<Boolean> CHATBUBBLES_RISE = new Setting<>("chatBubbles.rise", true);
     public static final Setting<Boolean> CHATBUBBLES_FOLLOW_PLAYER = new Setting<>("chatBubbles.followPlayer", true);
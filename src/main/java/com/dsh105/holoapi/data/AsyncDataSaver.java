@@ -0,0 +1,279 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.data;
+
+import com.dsh105.commodus.config.YAMLConfig;
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.util.Debugger;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a snapshot of a {@link com.dsh105.commodus.config.YAMLConfig} to disk off the main thread
+ * <p>
+ * Only sections marked as dirty through {@link #markDirty(String)} are copied on the calling thread. The writer keeps
+ * its own copy of every section and applies the changed ones to it before serialising and writing asynchronously.
+ * Files are written to a temporary file first and then moved over the original, so a crash mid-write never leaves a
+ * truncated file behind
+ */
+public class AsyncDataSaver {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Plugin plugin;
+    private final YAMLConfig config;
+    private final File file;
+    private final String[] sections;
+
+    // Paths of sections changed since the last snapshot. Only used from the thread taking snapshots
+    private final LinkedHashSet<String> dirty = new LinkedHashSet<>();
+    private boolean rebuild = true;
+    // Copies of changed sections waiting to be picked up by the writer, in the order they were taken
+    private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+
+    private final Object writeLock = new Object();
+    private long generation;
+    private volatile long queuedGeneration;
+    // Copy of every section as last written. Only used while holding the write lock
+    private final LinkedHashMap<String, Map<String, Object>> sectionCopies = new LinkedHashMap<>();
+    private long writtenGeneration;
+
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /**
+     * Constructs a new saver
+     *
+     * @param plugin   plugin to schedule asynchronous writes under
+     * @param config   config to take snapshots of
+     * @param file     file to write snapshots to
+     * @param sections top level sections of the config to include in snapshots
+     */
+    public AsyncDataSaver(Plugin plugin, YAMLConfig config, File file, String... sections) {
+        this.plugin = plugin;
+        this.config = config;
+        this.file = file;
+        this.sections = sections;
+    }
+
+    /**
+     * Marks a section of the config as changed, so that it is copied in the next snapshot. Sections that no longer
+     * exist by then are removed from the saved file
+     *
+     * @param path path of the changed section, which must be directly below one of the top level sections
+     */
+    public void markDirty(String path) {
+        this.dirty.add(path);
+    }
+
+    /**
+     * Copies every section of the config again in the next snapshot. Used when the config has been reloaded
+     */
+    public void reset() {
+        this.rebuild = true;
+        this.dirty.clear();
+    }
+
+    /**
+     * Takes a snapshot of the changed sections of the config and writes it to disk asynchronously
+     */
+    public void saveAsync() {
+        final long snapshotStart = System.nanoTime();
+        final long generation = this.snapshot();
+        final long snapshotNanos = System.nanoTime() - snapshotStart;
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                write(generation, snapshotNanos);
+            }
+        }.runTaskAsynchronously(this.plugin);
+    }
+
+    /**
+     * Takes a snapshot of the changed sections of the config and writes it to disk, blocking until it is written
+     */
+    public void save() {
+        long snapshotStart = System.nanoTime();
+        long generation = this.snapshot();
+        this.write(generation, System.nanoTime() - snapshotStart);
+    }
+
+    /**
+     * Gets the time taken by the most recent flush, including both taking the snapshot and writing it
+     *
+     * @return time in milliseconds taken by the most recent flush
+     */
+    public double getLastFlushMillis() {
+        return toMillis(this.lastFlushNanos);
+    }
+
+    /**
+     * Gets the longest time taken by a flush
+     *
+     * @return longest flush time in milliseconds
+     */
+    public double getMaxFlushMillis() {
+        return toMillis(this.maxFlushNanos);
+    }
+
+    /**
+     * Gets the average time taken by a flush
+     *
+     * @return average flush time in milliseconds
+     */
+    public double getAverageFlushMillis() {
+        long count = this.flushCount.get();
+        return count == 0 ? 0 : toMillis(this.totalFlushNanos.get() / count);
+    }
+
+    public long getFlushCount() {
+        return this.flushCount.get();
+    }
+
+    /**
+     * Copies the changed sections and queues them for the writer
+     *
+     * @return generation of the snapshot
+     */
+    private long snapshot() {
+        if (this.rebuild) {
+            this.rebuild = false;
+            this.changes.add(new Change(null, null));
+            for (String sectionKey : this.sections) {
+                ConfigurationSection section = this.config.getConfigurationSection(sectionKey);
+                if (section != null) {
+                    for (String key : section.getKeys(false)) {
+                        this.dirty.add(sectionKey + "." + key);
+                    }
+                }
+            }
+        }
+
+        for (String path : this.dirty) {
+            ConfigurationSection section = this.config.getConfigurationSection(path);
+            LinkedHashMap<String, Object> values = null;
+            if (section != null) {
+                values = new LinkedHashMap<>();
+                for (String key : section.getKeys(true)) {
+                    Object value = section.get(key);
+                    if (!(value instanceof ConfigurationSection)) {
+                        values.put(key, value);
+                    }
+                }
+            }
+            this.changes.add(new Change(path, values));
+        }
+        this.dirty.clear();
+
+        long generation = ++this.generation;
+        this.queuedGeneration = generation;
+        return generation;
+    }
+
+    private void write(long generation, long snapshotNanos) {
+        long writeStart = System.nanoTime();
+        synchronized (this.writeLock) {
+            if (generation <= this.writtenGeneration) {
+                // A newer snapshot has already been written
+                return;
+            }
+
+            // Everything queued up to here is applied, which may include changes from snapshots taken after this one
+            long appliedGeneration = this.queuedGeneration;
+            Change change;
+            while ((change = this.changes.poll()) != null) {
+                if (change.path == null) {
+                    this.sectionCopies.clear();
+                } else if (change.values == null) {
+                    this.sectionCopies.remove(change.path);
+                } else {
+                    this.sectionCopies.put(change.path, change.values);
+                }
+            }
+
+            YamlConfiguration snapshot = new YamlConfiguration();
+            for (Map.Entry<String, Map<String, Object>> section : this.sectionCopies.entrySet()) {
+                for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                    snapshot.set(section.getKey() + "." + entry.getKey(), entry.getValue());
+                }
+            }
+
+            File temp = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), UTF_8));
+                try {
+                    writer.write(snapshot.saveToString());
+                } finally {
+                    writer.close();
+                }
+                try {
+                    Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                this.writtenGeneration = Math.max(generation, appliedGeneration);
+            } catch (IOException e) {
+                HoloAPI.LOG.warning("Failed to save " + this.file.getName() + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        long flushNanos = snapshotNanos + (System.nanoTime() - writeStart);
+        this.lastFlushNanos = flushNanos;
+        if (flushNanos > this.maxFlushNanos) {
+            this.maxFlushNanos = flushNanos;
+        }
+        this.totalFlushNanos.addAndGet(flushNanos);
+        this.flushCount.incrementAndGet();
+        Debugger.getInstance().log(5, "Saved " + this.file.getName() + " in " + toMillis(flushNanos) + "ms (snapshot: " + toMillis(snapshotNanos) + "ms)");
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static class Change {
+
+        // Path of the changed section, or null if every section is about to be copied again
+        private final String path;
+        // Copy of the section, or null if it was removed
+        private final Map<String, Object> values;
+
+        Change(String path, Map<String, Object> values) {
+            this.path = path;
+            this.values = values;
+        }
+    }
+}
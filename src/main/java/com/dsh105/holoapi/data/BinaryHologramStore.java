@@ -0,0 +1,733 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.data;
+
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.api.StoredTag;
+import com.dsh105.holoapi.image.Frame;
+import com.dsh105.holoapi.util.Debugger;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Stores holograms in a compact, append-only binary log
+ * <p>
+ * Every save or removal of a hologram appends a single record to the end of the file, so writing a change costs the
+ * size of that hologram alone no matter how many holograms are stored. Only the position of the latest record of each
+ * hologram is kept in memory, and records are read back through a memory-mapped view of the file. Once enough of the
+ * file is taken up by records that have since been replaced, the live records are copied into a fresh file
+ * <p>
+ * Each record is written as its length, a CRC32 checksum and then the record itself. A record that is cut short or
+ * fails its checksum marks the end of the log, so a crash mid-write only ever loses the changes being written. A file
+ * that isn't a log this version can read is moved aside rather than written to
+ */
+public class BinaryHologramStore implements HologramStore {
+
+    public static final String NAME = "binary";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // "HOLO"
+    private static final int MAGIC = 0x484F4C4F;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    // Length and checksum
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private static final byte CONTENT_LINES = 0;
+    private static final byte CONTENT_ANIMATED_IMAGE = 1;
+    private static final byte CONTENT_FRAMES = 2;
+
+    // Compact once at least this much of the file is taken up by records that have been replaced or removed
+    private static final long MIN_COMPACT_BYTES = 256 * 1024;
+
+    private final Plugin plugin;
+    private final File file;
+
+    // Held while writing to the file, so that appends and compaction never overlap
+    private final Object writeLock = new Object();
+    // Guards the index, the mapped view and the pending changes below
+    private final Object lock = new Object();
+
+    private HashMap<String, Position> positions = new HashMap<>();
+    // Changes not yet handed to the writer, and changes the writer is still appending. Removals are kept as removal records
+    private LinkedHashMap<String, byte[]> pending = new LinkedHashMap<>();
+    private HashMap<String, byte[]> writing = new HashMap<>();
+
+    private MappedByteBuffer mapped;
+    private long fileLength;
+    private long liveBytes;
+    // Set if the file could not be read, in which case nothing is written to it until it is reloaded
+    private boolean unreadable;
+
+    public BinaryHologramStore(Plugin plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+        this.reload();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the size of the log on disk
+     *
+     * @return size of the log in bytes
+     */
+    public long getFileLength() {
+        synchronized (this.lock) {
+            return this.fileLength;
+        }
+    }
+
+    /**
+     * Gets the number of bytes in the log taken up by the latest record of each stored hologram
+     *
+     * @return size of all live records in bytes
+     */
+    public long getLiveBytes() {
+        synchronized (this.lock) {
+            return this.liveBytes;
+        }
+    }
+
+    @Override
+    public List<HologramRecord> loadAll() {
+        Set<String> saveIds = this.getSaveIds();
+        ArrayList<HologramRecord> records = new ArrayList<>(saveIds.size());
+        for (String saveId : saveIds) {
+            HologramRecord record = this.load(saveId);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public HologramRecord load(String saveId) {
+        byte[] body = this.getBody(saveId);
+        if (body == null || body[0] == OP_REMOVE) {
+            return null;
+        }
+        try {
+            return decode(body);
+        } catch (IOException e) {
+            HoloAPI.LOG.warning("Failed to read hologram of ID " + saveId + " from " + this.file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Set<String> getSaveIds() {
+        LinkedHashSet<String> saveIds = new LinkedHashSet<>();
+        synchronized (this.lock) {
+            saveIds.addAll(this.positions.keySet());
+            saveIds.addAll(this.writing.keySet());
+            saveIds.addAll(this.pending.keySet());
+            // Holograms removed but not yet written are still in the index
+            Iterator<String> i = saveIds.iterator();
+            while (i.hasNext()) {
+                String saveId = i.next();
+                byte[] body = this.pending.get(saveId);
+                if (body == null) {
+                    body = this.writing.get(saveId);
+                }
+                if (body != null && body[0] == OP_REMOVE) {
+                    i.remove();
+                }
+            }
+        }
+        return saveIds;
+    }
+
+    @Override
+    public boolean contains(String saveId) {
+        synchronized (this.lock) {
+            byte[] body = this.pending.get(saveId);
+            if (body == null) {
+                body = this.writing.get(saveId);
+            }
+            return body != null ? body[0] != OP_REMOVE : this.positions.containsKey(saveId);
+        }
+    }
+
+    @Override
+    public void save(HologramRecord record) {
+        byte[] body;
+        try {
+            body = encode(record);
+        } catch (IOException e) {
+            HoloAPI.LOG.warning("Failed to encode hologram of ID " + record.getSaveId() + ": " + e.getMessage());
+            return;
+        }
+        synchronized (this.lock) {
+            this.pending.put(record.getSaveId(), body);
+        }
+    }
+
+    @Override
+    public void remove(String saveId) {
+        if (!this.contains(saveId)) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_REMOVE);
+            writeString(out, saveId);
+            out.close();
+            synchronized (this.lock) {
+                this.pending.put(saveId, bytes.toByteArray());
+            }
+        } catch (IOException e) {
+            HoloAPI.LOG.warning("Failed to encode removal of hologram of ID " + saveId + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void flushAsync() {
+        final LinkedHashMap<String, byte[]> batch = this.takePending();
+        if (batch == null) {
+            return;
+        }
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                write(batch);
+            }
+        }.runTaskAsynchronously(this.plugin);
+    }
+
+    @Override
+    public void flush() {
+        LinkedHashMap<String, byte[]> batch = this.takePending();
+        if (batch != null) {
+            this.write(batch);
+        }
+    }
+
+    @Override
+    public void reload() {
+        synchronized (this.writeLock) {
+            synchronized (this.lock) {
+                this.pending.clear();
+                this.writing.clear();
+                this.positions.clear();
+                this.mapped = null;
+                this.fileLength = HEADER_SIZE;
+                this.liveBytes = 0;
+                this.unreadable = false;
+                try {
+                    this.scan();
+                } catch (IOException e) {
+                    this.unreadable = true;
+                    HoloAPI.LOG.severe("Failed to read " + this.file.getName() + ": " + e.getMessage() + ". Changes to holograms will not be saved until it can be read");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.flush();
+        synchronized (this.lock) {
+            // Lets the mapping go once nothing else refers to it
+            this.mapped = null;
+        }
+    }
+
+    private LinkedHashMap<String, byte[]> takePending() {
+        synchronized (this.lock) {
+            if (this.pending.isEmpty()) {
+                return null;
+            }
+            LinkedHashMap<String, byte[]> batch = this.pending;
+            this.pending = new LinkedHashMap<>();
+            this.writing.putAll(batch);
+            return batch;
+        }
+    }
+
+    private byte[] getBody(String saveId) {
+        Position position;
+        MappedByteBuffer mapped;
+        synchronized (this.lock) {
+            byte[] body = this.pending.get(saveId);
+            if (body == null) {
+                body = this.writing.get(saveId);
+            }
+            if (body != null) {
+                return body;
+            }
+            position = this.positions.get(saveId);
+            if (position == null) {
+                return null;
+            }
+            try {
+                mapped = this.map();
+            } catch (IOException e) {
+                HoloAPI.LOG.warning("Failed to map " + this.file.getName() + ": " + e.getMessage());
+                return null;
+            }
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position((int) position.offset + RECORD_HEADER_SIZE);
+        byte[] body = new byte[position.length - RECORD_HEADER_SIZE];
+        buffer.get(body);
+        return body;
+    }
+
+    /**
+     * Maps the whole file, unless the current mapping already covers it. Must be called while holding the lock
+     */
+    private MappedByteBuffer map() throws IOException {
+        if (this.mapped == null || this.mapped.capacity() < this.fileLength) {
+            RandomAccessFile raf = new RandomAccessFile(this.file, "r");
+            try {
+                // The mapping stays valid after the file is closed
+                this.mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, this.fileLength);
+            } finally {
+                raf.close();
+            }
+        }
+        return this.mapped;
+    }
+
+    /**
+     * Reads the position of the latest record of every hologram. Must be called while holding both locks
+     */
+    private void scan() throws IOException {
+        if (!this.file.exists() || this.file.length() == 0) {
+            this.writeHeader(this.file);
+            return;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(this.file, "r");
+        MappedByteBuffer buffer = null;
+        String problem = null;
+        try {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC) {
+                problem = "it is not a HoloAPI hologram store";
+            } else {
+                int version = raf.readInt();
+                if (version != VERSION) {
+                    problem = "it uses unsupported version " + version;
+                } else {
+                    buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                }
+            }
+        } finally {
+            raf.close();
+        }
+        if (problem != null) {
+            // Appending to a file that couldn't be read would bury whatever it holds, so start a new one beside it
+            this.moveAside(problem);
+            this.writeHeader(this.file);
+            return;
+        }
+        buffer.position(HEADER_SIZE);
+
+        CRC32 crc = new CRC32();
+        long start = System.nanoTime();
+        int records = 0;
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int offset = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(offset);
+                break;
+            }
+            byte[] body = new byte[length];
+            buffer.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(offset);
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            byte op = in.readByte();
+            String saveId = readString(in);
+            Position previous = op == OP_REMOVE ? this.positions.remove(saveId) : this.positions.put(saveId, new Position(offset, RECORD_HEADER_SIZE + length));
+            if (previous != null) {
+                this.liveBytes -= previous.length;
+            }
+            if (op != OP_REMOVE) {
+                this.liveBytes += RECORD_HEADER_SIZE + length;
+            }
+            records++;
+        }
+
+        this.fileLength = buffer.position();
+        this.mapped = buffer;
+        if (buffer.hasRemaining()) {
+            // Anything after this was cut short by a crash. It is cut off, so that none of it is left behind later appends
+            HoloAPI.LOG.warning("Discarding " + buffer.remaining() + " bytes of incomplete data at the end of " + this.file.getName());
+            try {
+                RandomAccessFile out = new RandomAccessFile(this.file, "rw");
+                try {
+                    out.getChannel().truncate(this.fileLength);
+                } finally {
+                    out.close();
+                }
+                this.mapped = null;
+            } catch (IOException e) {
+                // Some platforms refuse to truncate a file that is still mapped. Appends then overwrite the data instead
+                HoloAPI.LOG.warning("Failed to truncate " + this.file.getName() + ": " + e.getMessage());
+            }
+        }
+        Debugger.getInstance().log(3, "Read " + records + " records (" + this.positions.size() + " holograms) from " + this.file.getName() + " in " + ((System.nanoTime() - start) / 1000000L) + "ms");
+    }
+
+    private void write(LinkedHashMap<String, byte[]> batch) {
+        synchronized (this.writeLock) {
+            long offset;
+            synchronized (this.lock) {
+                if (this.unreadable) {
+                    HoloAPI.LOG.warning("Not writing to " + this.file.getName() + " as it could not be read");
+                    this.requeue(batch);
+                    return;
+                }
+                offset = this.fileLength;
+            }
+
+            HashMap<String, Position> written = new HashMap<>();
+            CRC32 crc = new CRC32();
+            try {
+                RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+                try {
+                    FileChannel channel = raf.getChannel();
+                    long position = offset;
+                    for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+                        byte[] body = entry.getValue();
+                        crc.reset();
+                        crc.update(body);
+                        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length);
+                        buffer.putInt(body.length);
+                        buffer.putInt((int) crc.getValue());
+                        buffer.put(body);
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                        written.put(entry.getKey(), new Position(position - RECORD_HEADER_SIZE - body.length, RECORD_HEADER_SIZE + body.length));
+                    }
+                    channel.force(false);
+                    offset = position;
+                } finally {
+                    raf.close();
+                }
+            } catch (IOException e) {
+                HoloAPI.LOG.warning("Failed to write to " + this.file.getName() + ": " + e.getMessage());
+                synchronized (this.lock) {
+                    this.requeue(batch);
+                }
+                return;
+            }
+
+            boolean compact;
+            synchronized (this.lock) {
+                for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+                    String saveId = entry.getKey();
+                    Position previous = entry.getValue()[0] == OP_REMOVE ? this.positions.remove(saveId) : this.positions.put(saveId, written.get(saveId));
+                    if (previous != null) {
+                        this.liveBytes -= previous.length;
+                    }
+                    if (entry.getValue()[0] != OP_REMOVE) {
+                        this.liveBytes += written.get(saveId).length;
+                    }
+                    if (this.writing.get(saveId) == entry.getValue()) {
+                        this.writing.remove(saveId);
+                    }
+                }
+                this.fileLength = offset;
+                long dead = this.fileLength - HEADER_SIZE - this.liveBytes;
+                compact = dead >= MIN_COMPACT_BYTES && dead > this.liveBytes;
+            }
+            if (compact) {
+                this.compact();
+            }
+        }
+    }
+
+    /**
+     * Puts changes that could not be written back, unless they have been superseded, so the next flush tries again.
+     * Must be called while holding the lock
+     */
+    private void requeue(LinkedHashMap<String, byte[]> batch) {
+        for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+            if (this.writing.get(entry.getKey()) == entry.getValue()) {
+                this.writing.remove(entry.getKey());
+                if (!this.pending.containsKey(entry.getKey())) {
+                    this.pending.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Renames a file that can't be read as a log, so that it is kept as it is
+     */
+    private void moveAside(String problem) throws IOException {
+        File corrupt = new File(this.file.getParentFile(), this.file.getName() + ".corrupt");
+        for (int i = 1; corrupt.exists(); i++) {
+            corrupt = new File(this.file.getParentFile(), this.file.getName() + ".corrupt." + i);
+        }
+        Files.move(this.file.toPath(), corrupt.toPath());
+        HoloAPI.LOG.severe("Could not read " + this.file.getName() + " as " + problem + ". It has been moved to " + corrupt.getName() + " and a new store started");
+    }
+
+    /**
+     * Copies the latest record of every hologram into a new file and replaces the log with it. Must be called while
+     * holding the write lock
+     */
+    private void compact() {
+        long start = System.nanoTime();
+        MappedByteBuffer source;
+        HashMap<String, Position> positions;
+        long previousLength;
+        synchronized (this.lock) {
+            try {
+                source = this.map();
+            } catch (IOException e) {
+                HoloAPI.LOG.warning("Failed to map " + this.file.getName() + " for compaction: " + e.getMessage());
+                return;
+            }
+            positions = new HashMap<>(this.positions);
+            previousLength = this.fileLength;
+        }
+
+        File temp = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+        HashMap<String, Position> compacted = new HashMap<>();
+        long length;
+        try {
+            this.writeHeader(temp);
+            RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                long position = HEADER_SIZE;
+                for (Map.Entry<String, Position> entry : positions.entrySet()) {
+                    Position from = entry.getValue();
+                    ByteBuffer record = source.duplicate();
+                    record.position((int) from.offset);
+                    record.limit((int) from.offset + from.length);
+                    compacted.put(entry.getKey(), new Position(position, from.length));
+                    while (record.hasRemaining()) {
+                        position += channel.write(record, position);
+                    }
+                }
+                channel.force(false);
+                length = position;
+            } finally {
+                raf.close();
+            }
+            try {
+                Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Some platforms refuse to replace a file that is still mapped. The log is still intact, so just try later
+            Debugger.getInstance().log(2, "Failed to compact " + this.file.getName() + ": " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        synchronized (this.lock) {
+            this.positions = compacted;
+            this.fileLength = length;
+            this.liveBytes = length - HEADER_SIZE;
+            this.mapped = null;
+        }
+        Debugger.getInstance().log(3, "Compacted " + this.file.getName() + " from " + previousLength + " to " + length + " bytes in " + ((System.nanoTime() - start) / 1000000L) + "ms");
+    }
+
+    private void writeHeader(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] encode(HologramRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_SAVE);
+        writeString(out, record.getSaveId());
+        writeString(out, record.getWorldName());
+        out.writeDouble(record.getX());
+        out.writeDouble(record.getY());
+        out.writeDouble(record.getZ());
+
+        if (record.getAnimationKey() != null) {
+            out.writeByte(CONTENT_ANIMATED_IMAGE);
+            writeString(out, record.getAnimationKey());
+        } else if (record.getFrames() != null) {
+            out.writeByte(CONTENT_FRAMES);
+            out.writeInt(record.getFrames().size());
+            for (Frame frame : record.getFrames()) {
+                out.writeInt(frame.getDelay());
+                out.writeInt(frame.getLines().length);
+                for (String line : frame.getLines()) {
+                    writeString(out, line);
+                }
+            }
+        } else {
+            out.writeByte(CONTENT_LINES);
+            List<StoredTag> lines = record.getLines() == null ? Collections.<StoredTag>emptyList() : record.getLines();
+            out.writeInt(lines.size());
+            for (StoredTag line : lines) {
+                out.writeBoolean(line.isImage());
+                writeString(out, line.getContent());
+            }
+        }
+
+        writeSections(out, record.getTouchActions());
+        writeSections(out, record.getVisibility());
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static HologramRecord decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        in.readByte();
+        HologramRecord record = new HologramRecord(readString(in), readString(in), in.readDouble(), in.readDouble(), in.readDouble());
+
+        byte content = in.readByte();
+        if (content == CONTENT_ANIMATED_IMAGE) {
+            record.setAnimationKey(readString(in));
+        } else if (content == CONTENT_FRAMES) {
+            int frameCount = in.readInt();
+            ArrayList<Frame> frames = new ArrayList<>(frameCount);
+            for (int i = 0; i < frameCount; i++) {
+                int delay = in.readInt();
+                String[] lines = new String[in.readInt()];
+                for (int j = 0; j < lines.length; j++) {
+                    lines[j] = readString(in);
+                }
+                frames.add(new Frame(delay, lines));
+            }
+            record.setFrames(frames);
+        } else {
+            int lineCount = in.readInt();
+            ArrayList<StoredTag> lines = new ArrayList<>(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                boolean image = in.readBoolean();
+                lines.add(new StoredTag(readString(in), image));
+            }
+            record.setLines(lines);
+        }
+
+        readSections(in, record.getTouchActions());
+        readSections(in, record.getVisibility());
+        return record;
+    }
+
+    private static void writeSections(DataOutputStream out, Map<String, LinkedHashMap<String, Object>> sections) throws IOException {
+        out.writeInt(sections.size());
+        for (Map.Entry<String, LinkedHashMap<String, Object>> section : sections.entrySet()) {
+            writeString(out, section.getKey());
+            // Touch action and visibility data can hold anything the config can, so leave it to the config to write
+            YamlConfiguration data = new YamlConfiguration();
+            for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                if (!(entry.getValue() instanceof ConfigurationSection)) {
+                    data.set(entry.getKey(), entry.getValue());
+                }
+            }
+            writeString(out, data.saveToString());
+        }
+    }
+
+    private static void readSections(DataInputStream in, Map<String, LinkedHashMap<String, Object>> sections) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = readString(in);
+            YamlConfiguration data = new YamlConfiguration();
+            try {
+                data.loadFromString(readString(in));
+            } catch (InvalidConfigurationException e) {
+                throw new IOException("Invalid data for " + key, e);
+            }
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            for (String fullKey : data.getKeys(true)) {
+                map.put(fullKey, data.get(fullKey));
+            }
+            sections.put(key, map);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static class Position {
+
+        private final long offset;
+        private final int length;
+
+        Position(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
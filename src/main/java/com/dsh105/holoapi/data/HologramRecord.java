@@ -0,0 +1,167 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.data;
+
+import com.dsh105.holoapi.api.StoredTag;
+import com.dsh105.holoapi.image.Frame;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The saved state of a single hologram, independent of how it is stored
+ * <p>
+ * A record holds either a list of lines, the key of an animated image or a set of animation frames. Line and frame
+ * content is kept with colour codes in their '&' form
+ */
+public class HologramRecord {
+
+    private final String saveId;
+    private final String worldName;
+    private final double x;
+    private final double y;
+    private final double z;
+
+    private List<StoredTag> lines;
+    private String animationKey;
+    private List<Frame> frames;
+
+    private LinkedHashMap<String, LinkedHashMap<String, Object>> touchActions = new LinkedHashMap<>();
+    private LinkedHashMap<String, LinkedHashMap<String, Object>> visibility = new LinkedHashMap<>();
+
+    public HologramRecord(String saveId, String worldName, double x, double y, double z) {
+        this.saveId = saveId;
+        this.worldName = worldName;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public String getSaveId() {
+        return saveId;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Gets whether this record is of an animated hologram
+     *
+     * @return true if the record holds an animated image key or animation frames
+     */
+    public boolean isAnimated() {
+        return this.animationKey != null || this.frames != null;
+    }
+
+    /**
+     * Gets whether the hologram in this record needs an image or animation to be loaded before it can be built
+     *
+     * @return true if the hologram uses an animated image or has an image line
+     */
+    public boolean hasImage() {
+        if (this.animationKey != null) {
+            return true;
+        }
+        if (this.lines != null) {
+            for (StoredTag line : this.lines) {
+                if (line.isImage()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public List<StoredTag> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<StoredTag> lines) {
+        this.lines = lines;
+        this.animationKey = null;
+        this.frames = null;
+    }
+
+    public String getAnimationKey() {
+        return animationKey;
+    }
+
+    public void setAnimationKey(String animationKey) {
+        this.animationKey = animationKey;
+        this.lines = null;
+        this.frames = null;
+    }
+
+    public List<Frame> getFrames() {
+        return frames;
+    }
+
+    public void setFrames(List<Frame> frames) {
+        this.frames = frames;
+        this.lines = null;
+        this.animationKey = null;
+    }
+
+    /**
+     * Gets the saved touch action data, keyed by the save key of each touch action
+     *
+     * @return touch action data of this record
+     */
+    public LinkedHashMap<String, LinkedHashMap<String, Object>> getTouchActions() {
+        return touchActions;
+    }
+
+    /**
+     * Gets the saved visibility data, keyed by the save key of the visibility
+     *
+     * @return visibility data of this record
+     */
+    public LinkedHashMap<String, LinkedHashMap<String, Object>> getVisibility() {
+        return visibility;
+    }
+
+    /**
+     * Copies this record under a different save ID
+     *
+     * @param saveId save ID of the copy
+     * @return copy of this record
+     */
+    public HologramRecord withSaveId(String saveId) {
+        HologramRecord copy = new HologramRecord(saveId, this.worldName, this.x, this.y, this.z);
+        copy.lines = this.lines == null ? null : new ArrayList<>(this.lines);
+        copy.animationKey = this.animationKey;
+        copy.frames = this.frames == null ? null : new ArrayList<>(this.frames);
+        copy.touchActions = new LinkedHashMap<>(this.touchActions);
+        copy.visibility = new LinkedHashMap<>(this.visibility);
+        return copy;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.data;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores the saved state of holograms
+ * <p>
+ * Changes made through {@link #save(HologramRecord)} and {@link #remove(String)} are visible to {@link #load(String)}
+ * straight away, but are only guaranteed to be on disk once the store has been flushed. Stores are only used from the
+ * main server thread, although they may write to disk on another
+ */
+public interface HologramStore {
+
+    /**
+     * Gets the name of this store, as used in the config and by the migrate command
+     *
+     * @return name of this store
+     */
+    public String getName();
+
+    /**
+     * Reads every hologram in the store
+     *
+     * @return records of all stored holograms
+     */
+    public List<HologramRecord> loadAll();
+
+    /**
+     * Reads a single hologram from the store
+     *
+     * @param saveId save ID of the hologram to read
+     * @return record of the hologram, or null if it isn't stored
+     */
+    public HologramRecord load(String saveId);
+
+    public boolean contains(String saveId);
+
+    /**
+     * Gets the save IDs of every hologram in the store, without reading the holograms themselves
+     *
+     * @return save IDs of all stored holograms
+     */
+    public Set<String> getSaveIds();
+
+    /**
+     * Stores a hologram, replacing anything previously stored under the same save ID
+     *
+     * @param record record to store
+     */
+    public void save(HologramRecord record);
+
+    public void remove(String saveId);
+
+    /**
+     * Writes any outstanding changes to disk off the main thread
+     */
+    public void flushAsync();
+
+    /**
+     * Writes any outstanding changes to disk, blocking until they are written
+     */
+    public void flush();
+
+    /**
+     * Discards anything not yet flushed and reads the store from disk again
+     */
+    public void reload();
+
+    /**
+     * Writes any outstanding changes to disk and releases anything the store holds open. The store is not used again
+     * afterwards
+     */
+    public void close();
+}
@@ -0,0 +1,234 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.data;
+
+import com.dsh105.commodus.GeneralUtil;
+import com.dsh105.commodus.config.YAMLConfig;
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.api.StoredTag;
+import com.dsh105.holoapi.image.Frame;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Stores holograms in the "holograms" section of data.yml
+ */
+public class YamlHologramStore implements HologramStore {
+
+    public static final String NAME = "yaml";
+
+    private final YAMLConfig config;
+    private final AsyncDataSaver dataSaver;
+    private boolean dirty;
+
+    public YamlHologramStore(Plugin plugin, YAMLConfig config, File file) {
+        this.config = config;
+        this.dataSaver = new AsyncDataSaver(plugin, config, file, "holograms");
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public AsyncDataSaver getDataSaver() {
+        return this.dataSaver;
+    }
+
+    @Override
+    public List<HologramRecord> loadAll() {
+        // The config may have been reloaded since the last save, so the saver copies everything again
+        this.dataSaver.reset();
+        ArrayList<HologramRecord> records = new ArrayList<>();
+        ConfigurationSection cs = this.config.getConfigurationSection("holograms");
+        if (cs != null) {
+            for (String key : cs.getKeys(false)) {
+                HologramRecord record = this.load(key);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public HologramRecord load(String saveId) {
+        if (!this.contains(saveId)) {
+            return null;
+        }
+        String path = "holograms." + saveId + ".";
+        HologramRecord record = new HologramRecord(saveId, this.config.getString(path + "worldName"), this.config.getDouble(path + "x"), this.config.getDouble(path + "y"), this.config.getDouble(path + "z"));
+        if (this.config.get(path + "animatedImage.image") != null) {
+            if (this.config.getBoolean(path + "animatedImage.image")) {
+                record.setAnimationKey(this.config.getString(path + "animatedImage.key"));
+            } else {
+                ArrayList<Frame> frameList = new ArrayList<>();
+                ConfigurationSection frames = this.config.getConfigurationSection(path + "animatedImage.frames");
+                if (frames != null) {
+                    for (String frameKey : frames.getKeys(false)) {
+                        ConfigurationSection lines = frames.getConfigurationSection(frameKey);
+                        if (lines != null) {
+                            ArrayList<String> tagList = new ArrayList<>();
+                            int delay = lines.getInt("delay", 5);
+                            for (String tagKey : lines.getKeys(false)) {
+                                if (!tagKey.equalsIgnoreCase("delay")) {
+                                    tagList.add(lines.getString(tagKey));
+                                }
+                            }
+                            if (!tagList.isEmpty()) {
+                                frameList.add(new Frame(delay, tagList.toArray(new String[tagList.size()])));
+                            }
+                        }
+                    }
+                }
+                record.setFrames(frameList);
+            }
+        } else {
+            ArrayList<StoredTag> lines = new ArrayList<>();
+            ConfigurationSection cs1 = this.config.getConfigurationSection(path + "lines");
+            if (cs1 != null) {
+                for (String key1 : cs1.getKeys(false)) {
+                    if (GeneralUtil.isInt(key1)) {
+                        String type = cs1.getString(key1 + ".type");
+                        String value = cs1.getString(key1 + ".value");
+                        lines.add(new StoredTag(value, "image".equalsIgnoreCase(type)));
+                    } else {
+                        HoloAPI.LOG.warning("Failed to load line section of " + key1 + " for Hologram of ID " + saveId + ".");
+                    }
+                }
+            }
+            record.setLines(lines);
+        }
+        this.loadSections(path + "touchactions", record.getTouchActions());
+        this.loadSections(path + "visibility", record.getVisibility());
+        return record;
+    }
+
+    @Override
+    public boolean contains(String saveId) {
+        return this.config.getConfigurationSection("holograms." + saveId) != null;
+    }
+
+    @Override
+    public Set<String> getSaveIds() {
+        ConfigurationSection cs = this.config.getConfigurationSection("holograms");
+        return cs == null ? new LinkedHashSet<String>() : new LinkedHashSet<>(cs.getKeys(false));
+    }
+
+    @Override
+    public void save(HologramRecord record) {
+        String path = "holograms." + record.getSaveId() + ".";
+        // Start from scratch, so that nothing is left behind from lines or frames that have since been removed
+        this.config.set("holograms." + record.getSaveId(), null);
+        this.config.set(path + "worldName", record.getWorldName());
+        this.config.set(path + "x", record.getX());
+        this.config.set(path + "y", record.getY());
+        this.config.set(path + "z", record.getZ());
+        if (record.getAnimationKey() != null) {
+            this.config.set(path + "animatedImage.image", true);
+            this.config.set(path + "animatedImage.key", record.getAnimationKey());
+        } else if (record.getFrames() != null) {
+            this.config.set(path + "animatedImage.image", false);
+            int index = 0;
+            for (Frame f : record.getFrames()) {
+                this.config.set(path + "animatedImage.frames." + index + ".delay", f.getDelay());
+                int tagIndex = 0;
+                for (String tag : f.getLines()) {
+                    this.config.set(path + "animatedImage.frames." + index + "." + tagIndex, tag);
+                    tagIndex++;
+                }
+                index++;
+            }
+        } else if (record.getLines() != null) {
+            int index = 0;
+            for (StoredTag tag : record.getLines()) {
+                this.config.set(path + "lines." + index + ".type", tag.isImage() ? "image" : "text");
+                this.config.set(path + "lines." + index + ".value", tag.getContent());
+                index++;
+            }
+        }
+        this.saveSections(path + "touchactions", record.getTouchActions());
+        this.saveSections(path + "visibility", record.getVisibility());
+        this.dataSaver.markDirty("holograms." + record.getSaveId());
+        this.dirty = true;
+    }
+
+    @Override
+    public void remove(String saveId) {
+        this.config.set("holograms." + saveId, null);
+        this.dataSaver.markDirty("holograms." + saveId);
+        this.dirty = true;
+    }
+
+    @Override
+    public void flushAsync() {
+        if (this.dirty) {
+            this.dirty = false;
+            this.dataSaver.saveAsync();
+        }
+    }
+
+    @Override
+    public void flush() {
+        this.dirty = false;
+        this.dataSaver.save();
+    }
+
+    @Override
+    public void reload() {
+        this.config.reloadConfig();
+        this.dataSaver.reset();
+        this.dirty = false;
+    }
+
+    @Override
+    public void close() {
+        this.flush();
+    }
+
+    private void loadSections(String path, Map<String, LinkedHashMap<String, Object>> sections) {
+        ConfigurationSection section = this.config.getConfigurationSection(path);
+        if (section == null) {
+            return;
+        }
+        for (String objKey : section.getKeys(false)) {
+            LinkedHashMap<String, Object> configMap = new LinkedHashMap<>();
+            ConfigurationSection objKeySection = section.getConfigurationSection(objKey);
+            if (objKeySection != null) {
+                for (String fullKey : objKeySection.getKeys(true)) {
+                    configMap.put(fullKey, objKeySection.get(fullKey));
+                }
+            }
+            sections.put(objKey, configMap);
+        }
+    }
+
+    private void saveSections(String path, Map<String, LinkedHashMap<String, Object>> sections) {
+        for (Map.Entry<String, LinkedHashMap<String, Object>> section : sections.entrySet()) {
+            for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                if (!(entry.getValue() instanceof ConfigurationSection)) {
+                    this.config.set(path + "." + section.getKey() + "." + entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+}
@@ -26,13 +26,18 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Represents a generator used to produce animated image frames from either a GIF or set of images
@@ -46,6 +51,8 @@ public class AnimatedImageGenerator implements Generator {
     private String key;
     private int maxHeight;
     private GIFFrame largestFrame;
+    // Lines of each frame that differ from the previous one, worked out once so that playback only sends those
+    private String[][] changes;
 
     /**
      * Constructs an AnimatedImageGenerator for use in an AnimatedHologram
@@ -84,11 +91,10 @@ public class AnimatedImageGenerator implements Generator {
      */
     public AnimatedImageGenerator(File gifFile, int frameRate, int height, ImageChar imgChar, boolean requiresBorder) {
         try {
-            this.frames = this.readGif(gifFile);
+            this.read(ImageIO.createImageInputStream(gifFile), height, imgChar, requiresBorder, false);
         } catch (IOException e) {
             throw new RuntimeException("Cannot read file " + gifFile.getPath(), e);
         }
-        this.prepare(height, imgChar, requiresBorder);
         this.prepareFrameRate(frameRate);
     }
 
@@ -115,11 +121,10 @@ public class AnimatedImageGenerator implements Generator {
      */
     public AnimatedImageGenerator(File gifFile, int height, ImageChar imgChar, boolean requiresBorder) {
         try {
-            this.frames = this.readGif(gifFile);
+            this.read(ImageIO.createImageInputStream(gifFile), height, imgChar, requiresBorder, false);
         } catch (IOException e) {
             throw new RuntimeException("Cannot read file " + gifFile.getPath(), e);
         }
-        this.prepare(height, imgChar, requiresBorder);
     }
 
     /**
@@ -147,11 +152,10 @@ public class AnimatedImageGenerator implements Generator {
      */
     public AnimatedImageGenerator(InputStream input, int frameRate, int height, ImageChar imgChar, boolean requiresBorder) {
         try {
-            this.frames = this.readGif(input);
+            this.read(ImageIO.createImageInputStream(input), height, imgChar, requiresBorder, false);
         } catch (IOException e) {
             throw new RuntimeException("Cannot read input", e);
         }
-        this.prepare(height, imgChar, requiresBorder);
         this.prepareFrameRate(frameRate);
     }
 
@@ -178,11 +182,10 @@ public class AnimatedImageGenerator implements Generator {
      */
     public AnimatedImageGenerator(InputStream input, int height, ImageChar imgChar, boolean requiresBorder) {
         try {
-            this.frames = this.readGif(input);
+            this.read(ImageIO.createImageInputStream(input), height, imgChar, requiresBorder, false);
         } catch (IOException e) {
             throw new RuntimeException("Cannot read input", e);
         }
-        this.prepare(height, imgChar, requiresBorder);
     }
 
     /**
@@ -317,143 +320,170 @@ public class AnimatedImageGenerator implements Generator {
         this.key = key;
     }
 
-    protected void prepare(int height, ImageChar imgChar) {
-        this.prepare(height, imgChar, false);
-    }
-
-    protected void prepare(int height, ImageChar imgChar, boolean requiresBorder) {
-        this.calculateMaxHeight();
-        for (GIFFrame frame : frames) {
-            int imageHeight = (int) ((frame.image.getHeight() / (double) this.maxHeight) * height);
-            frame.imageGenerator = new ImageGenerator(frame.image, imageHeight, imgChar, requiresBorder);
+    // Fills the generator with frames read from the image cache instead of a GIF
+    void load(ImageCache.Entry entry, ImageChar imgChar, boolean requiresBorder) {
+        ArrayList<GIFFrame> frames = new ArrayList<>(entry.getFrames().size());
+        GIFFrame largestFrame = null;
+        for (int i = 0; i < entry.getFrames().size(); i++) {
+            Frame cached = entry.getFrames().get(i);
+            GIFFrame frame = new GIFFrame(new ImageGenerator(null, cached.getLines(), cached.getLines().length, imgChar, requiresBorder), cached.getDelay());
+            frame.repeats = entry.getRepeats(i);
+            if (largestFrame == null || cached.getLines().length > largestFrame.getLines().length) {
+                largestFrame = frame;
+            }
+            frames.add(frame);
         }
+        this.frames = ImmutableList.copyOf(frames);
+        this.changes = Frame.diff(this.frames);
+        this.maxHeight = entry.getMaxHeight();
+        this.largestFrame = largestFrame;
     }
 
     protected void prepareFrameRate(int frameRate) {
         for (GIFFrame frame : this.frames) {
-            frame.delay = frameRate;
+            // Merged frames keep showing for as long as the frames they replaced
+            frame.delay = frameRate * frame.repeats;
         }
     }
 
-    protected void calculateMaxHeight() {
-        int maxHeight = 0;
-        GIFFrame largestFrame = this.frames.get(0);
-        for (GIFFrame frame : frames) {
-            if (frame.image.getHeight() > maxHeight) {
-                maxHeight = frame.image.getHeight();
-                largestFrame = frame;
-            }
+    /**
+     * Reads a GIF one frame at a time, converting each frame to lines as soon as it has been composited. Only the
+     * frames being converted and the last frame that a later one may be restored to are held as images
+     *
+     * @param input           input to read the GIF from
+     * @param height          height of the display
+     * @param imgChar         {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder  whether the display requires a border
+     * @param mergeDuplicates whether identical consecutive frames are merged into one, adding their delays together
+     * @throws java.io.IOException if the GIF could not be read
+     */
+    void read(ImageInputStream input, final int height, final ImageChar imgChar, final boolean requiresBorder, boolean mergeDuplicates) throws IOException {
+        if (input == null) {
+            throw new IOException("GIF input could not be opened");
         }
-        this.maxHeight = maxHeight;
-        this.largestFrame = largestFrame;
-    }
-
-    protected ImmutableList<GIFFrame> readGif(InputStream input) throws IOException {
-        GIFFrame[] frames;
-
         ImageReader reader = ImageIO.getImageReadersBySuffix("GIF").next();
-        reader.setInput(ImageIO.createImageInputStream(input));
-        frames = readGIF(reader);
-
-        return ImmutableList.copyOf(frames);
-    }
-
-    private ImmutableList<GIFFrame> readGif(File inputFile) throws IOException {
-        GIFFrame[] frames;
-
-        ImageReader reader = ImageIO.getImageReadersBySuffix("GIF").next();
-        reader.setInput(ImageIO.createImageInputStream(inputFile));
-        frames = readGIF(reader);
-
-        return ImmutableList.copyOf(frames);
-    }
-
-    // Source: https://stackoverflow.com/questions/8933893/convert-animated-gif-frames-to-separate-bufferedimages-java
-    private GIFFrame[] readGIF(ImageReader reader) throws IOException {
-        ArrayList<GIFFrame> frames = new ArrayList<>(2);
-
+        ArrayList<GIFFrame> frames = new ArrayList<>();
+        ArrayDeque<PendingFrame> converting = new ArrayDeque<>();
+        int maxConverting = Runtime.getRuntime().availableProcessors();
         int width = -1;
-        int height = -1;
+        int screenHeight = -1;
+        try {
+            reader.setInput(input);
 
-        IIOMetadata metadata = reader.getStreamMetadata();
-        if (metadata != null) {
-            IIOMetadataNode globalRoot = (IIOMetadataNode) metadata.getAsTree(metadata.getNativeMetadataFormatName());
+            // Source: https://stackoverflow.com/questions/8933893/convert-animated-gif-frames-to-separate-bufferedimages-java
+            IIOMetadata metadata = reader.getStreamMetadata();
+            if (metadata != null) {
+                IIOMetadataNode globalRoot = (IIOMetadataNode) metadata.getAsTree(metadata.getNativeMetadataFormatName());
 
-            NodeList globalScreenDescriptor = globalRoot.getElementsByTagName("LogicalScreenDescriptor");
+                NodeList globalScreenDescriptor = globalRoot.getElementsByTagName("LogicalScreenDescriptor");
 
-            if (globalScreenDescriptor != null && globalScreenDescriptor.getLength() > 0) {
-                IIOMetadataNode screenDescriptor = (IIOMetadataNode) globalScreenDescriptor.item(0);
+                if (globalScreenDescriptor != null && globalScreenDescriptor.getLength() > 0) {
+                    IIOMetadataNode screenDescriptor = (IIOMetadataNode) globalScreenDescriptor.item(0);
 
-                if (screenDescriptor != null) {
-                    width = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenWidth"));
-                    height = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenHeight"));
+                    if (screenDescriptor != null) {
+                        width = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenWidth"));
+                        screenHeight = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenHeight"));
+                    }
                 }
             }
-        }
-
-        BufferedImage master = null;
-        Graphics2D masterGraphics = null;
 
-        for (int frameIndex = 0; ; frameIndex++) {
-            BufferedImage image;
-            try {
-                image = reader.read(frameIndex);
-            } catch (IndexOutOfBoundsException io) {
-                break;
-            }
+            BufferedImage master = null;
+            Graphics2D masterGraphics = null;
+            // Last frame that wasn't disposed by restoring the one before it
+            BufferedImage restorable = null;
+
+            for (int frameIndex = 0; ; frameIndex++) {
+                BufferedImage image;
+                try {
+                    image = reader.read(frameIndex);
+                } catch (IndexOutOfBoundsException io) {
+                    break;
+                }
 
-            if (width == -1 || height == -1) {
-                width = image.getWidth();
-                height = image.getHeight();
-            }
+                if (width == -1 || screenHeight == -1) {
+                    width = image.getWidth();
+                    screenHeight = image.getHeight();
+                }
 
-            IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(frameIndex).getAsTree("javax_imageio_gif_image_1.0");
-            IIOMetadataNode gce = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension").item(0);
-            int delay = Integer.valueOf(gce.getAttribute("delayTime"));
-            String disposal = gce.getAttribute("disposalMethod");
-
-            int x = 0;
-            int y = 0;
-
-            if (master == null) {
-                master = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-                masterGraphics = master.createGraphics();
-                masterGraphics.setBackground(new Color(0, 0, 0, 0));
-            } else {
-                NodeList children = root.getChildNodes();
-                for (int nodeIndex = 0; nodeIndex < children.getLength(); nodeIndex++) {
-                    Node nodeItem = children.item(nodeIndex);
-                    if (nodeItem.getNodeName().equals("ImageDescriptor")) {
-                        NamedNodeMap map = nodeItem.getAttributes();
-                        x = Integer.valueOf(map.getNamedItem("imageLeftPosition").getNodeValue());
-                        y = Integer.valueOf(map.getNamedItem("imageTopPosition").getNodeValue());
+                IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(frameIndex).getAsTree("javax_imageio_gif_image_1.0");
+                IIOMetadataNode gce = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension").item(0);
+                int delay = Integer.valueOf(gce.getAttribute("delayTime"));
+                String disposal = gce.getAttribute("disposalMethod");
+
+                int x = 0;
+                int y = 0;
+
+                if (master == null) {
+                    master = new BufferedImage(width, screenHeight, BufferedImage.TYPE_INT_ARGB);
+                    masterGraphics = master.createGraphics();
+                    masterGraphics.setBackground(new Color(0, 0, 0, 0));
+                } else {
+                    NodeList children = root.getChildNodes();
+                    for (int nodeIndex = 0; nodeIndex < children.getLength(); nodeIndex++) {
+                        Node nodeItem = children.item(nodeIndex);
+                        if (nodeItem.getNodeName().equals("ImageDescriptor")) {
+                            NamedNodeMap map = nodeItem.getAttributes();
+                            x = Integer.valueOf(map.getNamedItem("imageLeftPosition").getNodeValue());
+                            y = Integer.valueOf(map.getNamedItem("imageTopPosition").getNodeValue());
+                        }
                     }
                 }
-            }
-            masterGraphics.drawImage(image, x, y, null);
-
-            BufferedImage copy = new BufferedImage(master.getColorModel(), master.copyData(null), master.isAlphaPremultiplied(), null);
-            frames.add(new GIFFrame(copy, (int) Math.ceil(delay / 2.5D), disposal));
+                masterGraphics.drawImage(image, x, y, null);
 
-            if (disposal.equals("restoreToPrevious")) {
-                BufferedImage from = null;
-                for (int i = frameIndex - 1; i >= 0; i--) {
-                    if (!frames.get(i).disposal.equals("restoreToPrevious") || frameIndex == 0) {
-                        from = frames.get(i).image;
-                        break;
+                final BufferedImage copy = new BufferedImage(master.getColorModel(), master.copyData(null), master.isAlphaPremultiplied(), null);
+                if (converting.size() >= maxConverting) {
+                    this.collect(converting.poll(), frames, mergeDuplicates);
+                }
+                converting.add(new PendingFrame(ColourMap.fork(new Callable<ImageGenerator>() {
+                    @Override
+                    public ImageGenerator call() {
+                        // Every composited frame is the size of the whole GIF, so each one is converted at full height
+                        return new ImageGenerator(copy, height, imgChar, requiresBorder);
+                    }
+                }), (int) Math.ceil(delay / 2.5D)));
+
+                if (disposal.equals("restoreToPrevious")) {
+                    if (restorable == null) {
+                        masterGraphics.clearRect(0, 0, width, screenHeight);
+                    } else {
+                        master = new BufferedImage(restorable.getColorModel(), restorable.copyData(null), restorable.isAlphaPremultiplied(), null);
+                        masterGraphics = master.createGraphics();
+                        masterGraphics.setBackground(new Color(0, 0, 0, 0));
+                    }
+                } else {
+                    restorable = copy;
+                    if (disposal.equals("restoreToBackgroundColor")) {
+                        masterGraphics.clearRect(x, y, image.getWidth(), image.getHeight());
                     }
                 }
-
-                master = new BufferedImage(from.getColorModel(), from.copyData(null), from.isAlphaPremultiplied(), null);
-                masterGraphics = master.createGraphics();
-                masterGraphics.setBackground(new Color(0, 0, 0, 0));
-            } else if (disposal.equals("restoreToBackgroundColor")) {
-                masterGraphics.clearRect(x, y, image.getWidth(), image.getHeight());
             }
+            while (!converting.isEmpty()) {
+                this.collect(converting.poll(), frames, mergeDuplicates);
+            }
+        } finally {
+            reader.dispose();
+            input.close();
+        }
+
+        if (frames.isEmpty()) {
+            throw new IOException("GIF has no frames");
         }
-        reader.dispose();
+        this.frames = ImmutableList.copyOf(frames);
+        this.changes = Frame.diff(this.frames);
+        this.maxHeight = screenHeight;
+        // Every frame is the same size
+        this.largestFrame = frames.get(0);
+    }
 
-        return frames.toArray(new GIFFrame[frames.size()]);
+    private void collect(PendingFrame pending, List<GIFFrame> frames, boolean mergeDuplicates) {
+        ImageGenerator generator = pending.conversion.join();
+        GIFFrame last = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+        if (mergeDuplicates && last != null && Arrays.equals(last.getLines(), generator.getLines())) {
+            last.delay += pending.delay;
+            last.repeats++;
+        } else {
+            frames.add(new GIFFrame(generator, pending.delay));
+        }
     }
 
     @Override
@@ -470,6 +500,19 @@ public class AnimatedImageGenerator implements Generator {
         return this.frames;
     }
 
+    /**
+     * Gets the lines of a frame that differ from the frame shown before it, which for the first frame is the last one
+     *
+     * @param index index of the frame
+     * @return lines of the frame that changed. Lines that are the same as in the previous frame are null
+     */
+    public String[] getChangedLines(int index) {
+        if (this.changes == null || index >= this.changes.length) {
+            return this.frames.get(index).getLines();
+        }
+        return this.changes[index];
+    }
+
     /**
      * Gets the maximum frame height
      *
@@ -487,4 +530,15 @@ public class AnimatedImageGenerator implements Generator {
     public GIFFrame getLargestFrame() {
         return largestFrame;
     }
+
+    private static class PendingFrame {
+
+        private final ForkJoinTask<ImageGenerator> conversion;
+        private final int delay;
+
+        PendingFrame(ForkJoinTask<ImageGenerator> conversion, int delay) {
+            this.conversion = conversion;
+            this.delay = delay;
+        }
+    }
 }
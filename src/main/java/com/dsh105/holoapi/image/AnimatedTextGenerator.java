@@ -29,6 +29,8 @@ public class AnimatedTextGenerator {
     private int maxHeight;
     private ArrayList<Frame> frames = new ArrayList<>();
     private Frame largestFrame;
+    // Lines of each frame that differ from the previous one, worked out once so that playback only sends those
+    private String[][] changes;
 
     /**
      * Constructs an AnimatedTextGenerator for use in an AnimatedHologram
@@ -51,6 +53,7 @@ public class AnimatedTextGenerator {
                 f.setLines(lines.toArray(new String[lines.size()]));
             }
         }
+        this.changes = Frame.diff(this.frames);
     }
 
     protected void calculateMaxHeight() {
@@ -84,6 +87,19 @@ public class AnimatedTextGenerator {
         return frames;
     }
 
+    /**
+     * Gets the lines of a frame that differ from the frame shown before it, which for the first frame is the last one
+     *
+     * @param index index of the frame
+     * @return lines of the frame that changed. Lines that are the same as in the previous frame are null
+     */
+    public String[] getChangedLines(int index) {
+        if (this.changes == null || index >= this.changes.length) {
+            return this.frames.get(index).getLines();
+        }
+        return this.changes[index];
+    }
+
     /**
      * Gets the maximum frame height
      *
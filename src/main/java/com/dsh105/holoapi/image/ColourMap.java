@@ -20,6 +20,16 @@ package com.dsh105.holoapi.image;
 import org.bukkit.ChatColor;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class ColourMap {
     protected static final Color[] colors = {
@@ -41,20 +51,217 @@ public class ColourMap {
             new Color(255, 255, 255),
     };
 
+    // Images at least this large are converted a few rows at a time in parallel
+    private static final int PARALLEL_THRESHOLD = 128 * 128;
+    private static final int ROWS_PER_TASK = 16;
+
+    // Holds the closest colour to each colour, with 5 bits per channel. Cached, as ChatColor.values() copies its array
+    private static final ChatColor[] CHAT_COLOURS = Arrays.copyOf(ChatColor.values(), colors.length);
+    private static final byte[] LOOKUP = new byte[32 * 32 * 32];
+    private static final int[][] PALETTE = new int[colors.length][];
+
+    // 4x4 Bayer matrix, spread across the gap between neighbouring chat colour levels
+    private static final int[] BAYER_OFFSETS = new int[16];
+
+    // Workers are daemon threads, so the pool never holds up a shutdown
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    static {
+        for (int i = 0; i < colors.length; i++) {
+            PALETTE[i] = new int[]{colors[i].getRed(), colors[i].getGreen(), colors[i].getBlue()};
+        }
+        int[] bayer = {0, 8, 2, 10, 12, 4, 14, 6, 3, 11, 1, 9, 15, 7, 13, 5};
+        for (int i = 0; i < bayer.length; i++) {
+            BAYER_OFFSETS[i] = (int) Math.round(((bayer[i] + 0.5) / 16.0 - 0.5) * 85);
+        }
+        for (int r = 0; r < 32; r++) {
+            for (int g = 0; g < 32; g++) {
+                for (int b = 0; b < 32; b++) {
+                    // Centre of the range of colours that fall into this entry
+                    LOOKUP[(r << 10) | (g << 5) | b] = (byte) findClosest((r << 3) | 4, (g << 3) | 4, (b << 3) | 4);
+                }
+            }
+        }
+    }
+
     protected static ChatColor getClosest(Color color) {
-        if (color.getAlpha() < 128) return null;
+        return getClosest(color.getRGB());
+    }
 
-        int index = 0;
-        double best = -1;
+    /**
+     * Gets the closest chat colour to a colour
+     *
+     * @param argb colour in the default ARGB colour model
+     * @return closest chat colour, or null if the colour is mostly transparent
+     */
+    protected static ChatColor getClosest(int argb) {
+        if ((argb >>> 24) < 128) return null;
+        return CHAT_COLOURS[LOOKUP[index((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF)]];
+    }
+
+    /**
+     * Converts pixels to chat colours
+     *
+     * @param pixels    pixels in the default ARGB colour model, row by row
+     * @param width     width of the image
+     * @param height    height of the image
+     * @param quantizer way to match pixels to chat colours
+     * @return chat colours, indexed by x and then y. Mostly transparent pixels are null
+     */
+    protected static ChatColor[][] getClosest(int[] pixels, int width, int height, Quantizer quantizer) {
+        ChatColor[][] colours = new ChatColor[width][height];
+        if (quantizer == Quantizer.FLOYD_STEINBERG) {
+            // Each pixel depends on the ones before it, so this can't be split up
+            diffuse(pixels, width, height, colours);
+        } else if (width * height < PARALLEL_THRESHOLD) {
+            convert(pixels, width, colours, 0, height, quantizer);
+        } else {
+            invoke(new ConvertRows(pixels, width, colours, 0, height, quantizer));
+        }
+        return colours;
+    }
+
+    /**
+     * Runs tasks in parallel on the conversion pool and waits for them to finish
+     *
+     * @param tasks tasks to run
+     */
+    protected static void invokeAll(final Collection<? extends ForkJoinTask<?>> tasks) {
+        invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Starts a task on the conversion pool without waiting for it
+     *
+     * @param task task to start
+     * @return the started task, which can be joined to wait for its result
+     */
+    protected static <T> ForkJoinTask<T> fork(Callable<T> task) {
+        ForkJoinTask<T> forkJoinTask = ForkJoinTask.adapt(task);
+        if (ForkJoinTask.inForkJoinPool()) {
+            return forkJoinTask.fork();
+        }
+        POOL.execute(forkJoinTask);
+        return forkJoinTask;
+    }
+
+    private static void invoke(ForkJoinTask<?> task) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            // Already part of a conversion, such as one frame of an animation
+            task.invoke();
+        } else {
+            POOL.invoke(task);
+        }
+    }
+
+    /**
+     * Gets the pixels of an image in the default ARGB colour model, row by row
+     *
+     * @param image image to get the pixels of
+     * @return pixels of the image. May be the image's own pixel data, so must not be modified
+     */
+    protected static int[] getPixels(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == width
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0) {
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            if (buffer.getNumBanks() == 1 && buffer.getOffset() == 0 && buffer.getData().length == width * height) {
+                // Already stored as ARGB, so the pixels can be read without copying
+                return buffer.getData();
+            }
+        }
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    private static void convert(int[] pixels, int width, ChatColor[][] colours, int fromRow, int toRow, Quantizer quantizer) {
+        byte[] lookup = quantizer == Quantizer.PERCEPTUAL ? PerceptualLookup.LOOKUP : LOOKUP;
+        boolean ordered = quantizer == Quantizer.ORDERED;
+        for (int y = fromRow; y < toRow; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int argb = pixels[offset + x];
+                if ((argb >>> 24) < 128) {
+                    continue;
+                }
+                int red = (argb >> 16) & 0xFF;
+                int green = (argb >> 8) & 0xFF;
+                int blue = argb & 0xFF;
+                if (ordered) {
+                    int threshold = BAYER_OFFSETS[((y & 3) << 2) | (x & 3)];
+                    red = clamp(red + threshold);
+                    green = clamp(green + threshold);
+                    blue = clamp(blue + threshold);
+                }
+                colours[x][y] = CHAT_COLOURS[lookup[index(red, green, blue)]];
+            }
+        }
+    }
 
+    private static void diffuse(int[] pixels, int width, int height, ChatColor[][] colours) {
+        // Errors are kept at 16 times their size, so that the 7/16, 3/16, 5/16 and 1/16 shares stay whole numbers. Both
+        // rows have a spare column either side, so the edges need no special cases
+        int[][] current = new int[3][width + 2];
+        int[][] next = new int[3][width + 2];
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int argb = pixels[offset + x];
+                if ((argb >>> 24) < 128) {
+                    continue;
+                }
+                int red = clamp(((argb >> 16) & 0xFF) + current[0][x + 1] / 16);
+                int green = clamp(((argb >> 8) & 0xFF) + current[1][x + 1] / 16);
+                int blue = clamp((argb & 0xFF) + current[2][x + 1] / 16);
+                int match = LOOKUP[index(red, green, blue)];
+                colours[x][y] = CHAT_COLOURS[match];
+                spread(current[0], next[0], x, red - PALETTE[match][0]);
+                spread(current[1], next[1], x, green - PALETTE[match][1]);
+                spread(current[2], next[2], x, blue - PALETTE[match][2]);
+            }
+            int[][] done = current;
+            current = next;
+            next = done;
+            for (int[] channel : next) {
+                Arrays.fill(channel, 0);
+            }
+        }
+    }
+
+    private static void spread(int[] current, int[] next, int x, int error) {
+        current[x + 2] += error * 7;
+        next[x] += error * 3;
+        next[x + 1] += error * 5;
+        next[x + 2] += error;
+    }
+
+    private static int index(int red, int green, int blue) {
+        return ((red >> 3) << 10) | ((green >> 3) << 5) | (blue >> 3);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    private static int findClosest(int red, int green, int blue) {
         for (int i = 0; i < ColourMap.colors.length; i++) {
-            if (areIdentical(ColourMap.colors[i], color)) {
-                return ChatColor.values()[i];
+            if (areIdentical(ColourMap.colors[i], red, green, blue)) {
+                return i;
             }
         }
 
+        int index = 0;
+        double best = -1;
         for (int i = 0; i < ColourMap.colors.length; i++) {
-            double distance = getDistance(color, ColourMap.colors[i]);
+            double distance = getDistance(red, green, blue, ColourMap.colors[i]);
             if (distance < best || best == -1) {
                 best = distance;
                 index = i;
@@ -62,24 +269,108 @@ public class ColourMap {
         }
 
         // Minecraft has 15 colors
-        return ChatColor.values()[index];
+        return index;
     }
 
-    private static boolean areIdentical(Color c1, Color c2) {
-        return Math.abs(c1.getRed() - c2.getRed()) <= 5 &&
-                Math.abs(c1.getGreen() - c2.getGreen()) <= 5 &&
-                Math.abs(c1.getBlue() - c2.getBlue()) <= 5;
+    private static boolean areIdentical(Color c1, int red, int green, int blue) {
+        return Math.abs(c1.getRed() - red) <= 5 &&
+                Math.abs(c1.getGreen() - green) <= 5 &&
+                Math.abs(c1.getBlue() - blue) <= 5;
 
     }
 
-    private static double getDistance(Color c1, Color c2) {
-        double rmean = (c1.getRed() + c2.getRed()) / 2.0;
-        double r = c1.getRed() - c2.getRed();
-        double g = c1.getGreen() - c2.getGreen();
-        int b = c1.getBlue() - c2.getBlue();
+    private static double getDistance(int red, int green, int blue, Color c2) {
+        double rmean = (red + c2.getRed()) / 2.0;
+        double r = red - c2.getRed();
+        double g = green - c2.getGreen();
+        int b = blue - c2.getBlue();
         double weightR = 2 + rmean / 256.0;
         double weightG = 4.0;
         double weightB = 2 + (255 - rmean) / 256.0;
         return weightR * r * r + weightG * g * g + weightB * b * b;
     }
-}
\ No newline at end of file
+
+    // Only built the first time an image uses perceptual matching
+    private static class PerceptualLookup {
+
+        private static final byte[] LOOKUP = new byte[32 * 32 * 32];
+
+        static {
+            double[][] palette = new double[colors.length][];
+            for (int i = 0; i < colors.length; i++) {
+                palette[i] = toLab(colors[i].getRed(), colors[i].getGreen(), colors[i].getBlue());
+            }
+            for (int r = 0; r < 32; r++) {
+                for (int g = 0; g < 32; g++) {
+                    for (int b = 0; b < 32; b++) {
+                        double[] lab = toLab((r << 3) | 4, (g << 3) | 4, (b << 3) | 4);
+                        int index = 0;
+                        double best = Double.MAX_VALUE;
+                        for (int i = 0; i < palette.length; i++) {
+                            // CIE76 colour difference, squared
+                            double dL = lab[0] - palette[i][0];
+                            double dA = lab[1] - palette[i][1];
+                            double dB = lab[2] - palette[i][2];
+                            double distance = dL * dL + dA * dA + dB * dB;
+                            if (distance < best) {
+                                best = distance;
+                                index = i;
+                            }
+                        }
+                        LOOKUP[(r << 10) | (g << 5) | b] = (byte) index;
+                    }
+                }
+            }
+        }
+
+        // sRGB to CIELAB with a D65 white point
+        private static double[] toLab(int red, int green, int blue) {
+            double r = toLinear(red);
+            double g = toLinear(green);
+            double b = toLinear(blue);
+            double x = labCurve((0.4124 * r + 0.3576 * g + 0.1805 * b) / 0.95047);
+            double y = labCurve(0.2126 * r + 0.7152 * g + 0.0722 * b);
+            double z = labCurve((0.0193 * r + 0.1192 * g + 0.9505 * b) / 1.08883);
+            return new double[]{116 * y - 16, 500 * (x - y), 200 * (y - z)};
+        }
+
+        private static double toLinear(int channel) {
+            double value = channel / 255.0;
+            return value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4);
+        }
+
+        private static double labCurve(double value) {
+            return value > 216.0 / 24389.0 ? Math.cbrt(value) : (24389.0 / 27.0 * value + 16) / 116.0;
+        }
+    }
+
+    private static class ConvertRows extends RecursiveAction {
+
+        private final int[] pixels;
+        private final int width;
+        private final ChatColor[][] colours;
+        private final int fromRow;
+        private final int toRow;
+        private final Quantizer quantizer;
+
+        ConvertRows(int[] pixels, int width, ChatColor[][] colours, int fromRow, int toRow, Quantizer quantizer) {
+            this.pixels = pixels;
+            this.width = width;
+            this.colours = colours;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.quantizer = quantizer;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toRow - this.fromRow <= ROWS_PER_TASK) {
+                convert(this.pixels, this.width, this.colours, this.fromRow, this.toRow, this.quantizer);
+                return;
+            }
+            int middle = (this.fromRow + this.toRow) >>> 1;
+            invokeAll(new ConvertRows(this.pixels, this.width, this.colours, this.fromRow, middle, this.quantizer),
+                    new ConvertRows(this.pixels, this.width, this.colours, middle, this.toRow, this.quantizer));
+        }
+    }
+}
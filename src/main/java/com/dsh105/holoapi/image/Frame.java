@@ -17,6 +17,8 @@
 
 package com.dsh105.holoapi.image;
 
+import java.util.List;
+
 /**
  * Represents a text or image frame used in AnimatedImageGenerators
  */
@@ -62,4 +64,26 @@ public class Frame {
             this.lines = lines;
         }
     }
+
+    /**
+     * Compares each frame with the one shown before it, which for the first frame is the last one
+     *
+     * @param frames frames in the order they are shown
+     * @return lines of each frame that differ from the previous frame. Lines that are the same are null
+     */
+    static String[][] diff(List<? extends Frame> frames) {
+        String[][] changes = new String[frames.size()][];
+        for (int i = 0; i < frames.size(); i++) {
+            String[] lines = frames.get(i).getLines();
+            String[] previous = frames.get(i == 0 ? frames.size() - 1 : i - 1).getLines();
+            String[] changed = new String[lines.length];
+            for (int index = 0; index < lines.length; index++) {
+                if (index >= previous.length || lines[index] == null || !lines[index].equals(previous[index])) {
+                    changed[index] = lines[index];
+                }
+            }
+            changes[i] = changed;
+        }
+        return changes;
+    }
 }
\ No newline at end of file
@@ -17,24 +17,16 @@
 
 package com.dsh105.holoapi.image;
 
-import java.awt.image.BufferedImage;
-
 /**
  * Represents an animated frame generated by a GIF image
  */
 
 public class GIFFrame extends Frame {
 
-    protected BufferedImage image;
-    protected String disposal;
-
     protected ImageGenerator imageGenerator;
 
-    protected GIFFrame(BufferedImage image, int delay, String disposal) {
-        super(delay);
-        this.image = image;
-        this.disposal = disposal;
-    }
+    // Number of identical frames in the GIF that this frame stands for
+    protected int repeats = 1;
 
     protected GIFFrame(ImageGenerator generator, int delay) {
         super(delay);
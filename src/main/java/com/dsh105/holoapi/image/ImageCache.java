@@ -0,0 +1,375 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.image;
+
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.config.Settings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Stores generated image lines and animation frames on disk, so that images don't have to be decoded and converted
+ * again on every start or reload
+ * <p>
+ * Entries are addressed by a hash of the source image bytes (or the URL of URL images) together with everything else
+ * that changes the generated lines. Each entry is checked against its hash and a checksum when read, and corrupt
+ * entries are deleted. Once the cache grows past its maximum size, the least recently used entries are removed
+ * <p>
+ * May be used from any thread
+ */
+public class ImageCache {
+
+    // Changing how lines are generated must change this, so that older entries are no longer found
+    private static final int FORMAT_VERSION = 5;
+    private static final int MAGIC = 0x484F4943;
+    private static final String EXTENSION = ".cache";
+
+    private final File folder;
+    private final long maxBytes;
+
+    /**
+     * Constructs a new image cache
+     *
+     * @param folder   folder to store entries in
+     * @param maxBytes maximum size of the cache in bytes. The cache is disabled if this is 0 or less
+     */
+    public ImageCache(File folder, long maxBytes) {
+        this.folder = folder;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return this.maxBytes > 0;
+    }
+
+    /**
+     * Gets the cache key of an image read from a file
+     *
+     * @param source         bytes of the image file
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @return cache key of the image
+     */
+    public String key(byte[] source, int height, ImageChar imgChar, boolean requiresBorder) {
+        return this.key(source, height, imgChar, requiresBorder, Quantizer.NEAREST);
+    }
+
+    /**
+     * Gets the cache key of an image read from a file
+     *
+     * @param source         bytes of the image file
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @param quantizer      {@link com.dsh105.holoapi.image.Quantizer} used to match pixels to chat colours
+     * @return cache key of the image
+     */
+    public String key(byte[] source, int height, ImageChar imgChar, boolean requiresBorder, Quantizer quantizer) {
+        MessageDigest digest = this.createDigest();
+        digest.update(source);
+        return this.key(digest, height, imgChar, requiresBorder, quantizer);
+    }
+
+    /**
+     * Gets the cache key of an image downloaded from a URL
+     *
+     * @param url            URL of the image
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @return cache key of the image
+     */
+    public String key(String url, int height, ImageChar imgChar, boolean requiresBorder) {
+        return this.key(url, height, imgChar, requiresBorder, Quantizer.NEAREST);
+    }
+
+    /**
+     * Gets the cache key of an image downloaded from a URL
+     *
+     * @param url            URL of the image
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @param quantizer      {@link com.dsh105.holoapi.image.Quantizer} used to match pixels to chat colours
+     * @return cache key of the image
+     */
+    public String key(String url, int height, ImageChar imgChar, boolean requiresBorder, Quantizer quantizer) {
+        MessageDigest digest = this.createDigest();
+        digest.update(("url:" + url).getBytes(StandardCharsets.UTF_8));
+        return this.key(digest, height, imgChar, requiresBorder, quantizer);
+    }
+
+    private String key(MessageDigest digest, int height, ImageChar imgChar, boolean requiresBorder, Quantizer quantizer) {
+        // The transparency and line length settings change the generated lines too
+        String options = FORMAT_VERSION + ":" + height + ":" + imgChar.name() + ":" + requiresBorder + ":" + quantizer.name() + ":"
+                + Settings.TRANSPARENCY_WITH_BORDER.getValue() + ":" + Settings.TRANSPARENCY_WITHOUT_BORDER.getValue() + ":"
+                + Settings.IMAGE_MAX_LINE_LENGTH.getValue();
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * Gets cached image lines
+     *
+     * @param key cache key of the image
+     * @return cached lines, or null if the image isn't cached
+     */
+    public String[] getLines(String key) {
+        Entry entry = this.read(key);
+        return entry == null || entry.frames.size() != 1 ? null : entry.frames.get(0).getLines();
+    }
+
+    /**
+     * Caches generated image lines
+     *
+     * @param key   cache key of the image
+     * @param lines lines generated from the image
+     */
+    public void putLines(String key, String[] lines) {
+        ArrayList<Frame> frames = new ArrayList<>();
+        frames.add(new Frame(0, lines));
+        this.write(key, new Entry(0, frames, new int[]{1}));
+    }
+
+    /**
+     * Gets cached animation frames
+     * <p>
+     * The frames keep the delays read from the animation, before any configured frame rate is applied
+     *
+     * @param key cache key of the animation
+     * @return cached animation, or null if the animation isn't cached
+     */
+    public Entry getAnimation(String key) {
+        return this.read(key);
+    }
+
+    /**
+     * Caches generated animation frames. Must be called before a configured frame rate is applied to the frames
+     *
+     * @param key       cache key of the animation
+     * @param generator generator the frames were generated with
+     */
+    public void putAnimation(String key, AnimatedImageGenerator generator) {
+        ArrayList<Frame> frames = new ArrayList<>();
+        int[] repeats = new int[generator.getFrames().size()];
+        for (GIFFrame frame : generator.getFrames()) {
+            repeats[frames.size()] = frame.repeats;
+            frames.add(new Frame(frame.getDelay(), frame.getLines()));
+        }
+        this.write(key, new Entry(generator.getMaxHeight(), frames, repeats));
+    }
+
+    private Entry read(String key) {
+        if (!this.isEnabled()) {
+            return null;
+        }
+        File file = new File(this.folder, key + EXTENSION);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (bytes.length < 12 || input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unrecognised cache entry");
+            }
+            int length = bytes.length - 12;
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 8, length);
+            if (!input.readUTF().equals(key)) {
+                throw new IOException("Cache entry does not match its key");
+            }
+            int maxHeight = input.readInt();
+            int frameCount = input.readInt();
+            ArrayList<Frame> frames = new ArrayList<>(frameCount);
+            int[] repeats = new int[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                int delay = input.readInt();
+                repeats[i] = input.readInt();
+                String[] lines = new String[input.readInt()];
+                for (int j = 0; j < lines.length; j++) {
+                    lines[j] = input.readUTF();
+                }
+                frames.add(new Frame(delay, lines));
+            }
+            if (input.readInt() != (int) crc.getValue()) {
+                throw new IOException("Cache entry checksum does not match");
+            }
+            // Used entries are the last to be evicted
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(maxHeight, frames, repeats);
+        } catch (IOException | RuntimeException e) {
+            HoloAPI.LOG.log(Level.WARNING, "Discarding image cache entry " + file.getName() + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void write(String key, Entry entry) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(key);
+            output.writeInt(entry.maxHeight);
+            output.writeInt(entry.frames.size());
+            for (int i = 0; i < entry.frames.size(); i++) {
+                Frame frame = entry.frames.get(i);
+                output.writeInt(frame.getDelay());
+                output.writeInt(entry.repeats[i]);
+                output.writeInt(frame.getLines().length);
+                for (String line : frame.getLines()) {
+                    output.writeUTF(line);
+                }
+            }
+            output.flush();
+            byte[] data = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(data, 8, data.length - 8);
+            output.writeInt((int) crc.getValue());
+            output.flush();
+
+            if (!this.folder.exists()) {
+                this.folder.mkdirs();
+            }
+            // Written to a temporary file first so that a partly written entry is never read
+            File temp = File.createTempFile(key, ".tmp", this.folder);
+            Files.write(temp.toPath(), bytes.toByteArray());
+            Files.move(temp.toPath(), new File(this.folder, key + EXTENSION).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            HoloAPI.LOG.log(Level.WARNING, "Failed to write image cache entry " + key, e);
+            return;
+        }
+        this.evict();
+    }
+
+    private synchronized void evict() {
+        File[] files = this.folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        ArrayList<File> entries = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) {
+                entries.add(file);
+                size += file.length();
+            }
+        }
+        if (size <= this.maxBytes) {
+            return;
+        }
+        File[] oldestFirst = entries.toArray(new File[entries.size()]);
+        Arrays.sort(oldestFirst, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+        });
+        for (File file : oldestFirst) {
+            if (size <= this.maxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * Removes every entry from the cache
+     */
+    public synchronized void clear() {
+        File[] files = this.folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(EXTENSION) || file.getName().endsWith(".tmp")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Represents cached image lines or animation frames
+     */
+    public static class Entry {
+
+        private final int maxHeight;
+        private final List<Frame> frames;
+        private final int[] repeats;
+
+        private Entry(int maxHeight, List<Frame> frames, int[] repeats) {
+            this.maxHeight = maxHeight;
+            this.frames = frames;
+            this.repeats = repeats;
+        }
+
+        /**
+         * Gets the height in pixels of the tallest frame of the source animation
+         *
+         * @return height of the tallest frame
+         */
+        public int getMaxHeight() {
+            return maxHeight;
+        }
+
+        public List<Frame> getFrames() {
+            return frames;
+        }
+
+        /**
+         * Gets the number of identical frames of the source animation that a frame was merged from
+         *
+         * @param index index of the frame
+         * @return number of frames merged into the frame
+         */
+        public int getRepeats(int index) {
+            return repeats[index];
+        }
+    }
+}
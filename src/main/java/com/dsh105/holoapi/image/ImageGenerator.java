@@ -22,9 +22,6 @@ import com.dsh105.holoapi.config.Settings;
 import org.bukkit.ChatColor;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -47,12 +44,13 @@ public class ImageGenerator implements Generator {
     private int imageHeight;
     private ImageChar imageChar = ImageChar.BLOCK;
     private boolean requiresBorder;
+    private Quantizer quantizer = Quantizer.NEAREST;
     private boolean hasLoaded;
 
     protected ImageGenerator(BufferedImage image, int height, ImageChar imgChar) {
         this.imageHeight = height;
         this.imageChar = imgChar;
-        this.lines = this.generate(generateColours(image, height), imgChar.getImageChar(), false);
+        this.lines = this.generateLines(image, height);
     }
 
     /**
@@ -64,10 +62,24 @@ public class ImageGenerator implements Generator {
      * @param requiresBorder whether the display requires a border
      */
     public ImageGenerator(BufferedImage image, int height, ImageChar imgChar, boolean requiresBorder) {
+        this(image, height, imgChar, requiresBorder, Quantizer.NEAREST);
+    }
+
+    /**
+     * Constructs an ImageGenerator for use in a Hologram
+     *
+     * @param image          {@link java.awt.image.BufferedImage} used to generate the image
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @param quantizer      {@link com.dsh105.holoapi.image.Quantizer} used to match pixels to chat colours
+     */
+    public ImageGenerator(BufferedImage image, int height, ImageChar imgChar, boolean requiresBorder, Quantizer quantizer) {
         this.imageHeight = height;
         this.imageChar = imgChar;
         this.requiresBorder = requiresBorder;
-        this.lines = this.generate(generateColours(image, height), imgChar.getImageChar(), requiresBorder);
+        this.quantizer = quantizer;
+        this.lines = this.generateLines(image, height);
     }
 
     /**
@@ -111,16 +123,31 @@ public class ImageGenerator implements Generator {
      * @throws java.lang.RuntimeException if the image cannot be read
      */
     public ImageGenerator(File imageFile, int height, ImageChar imgChar, boolean requiresBorder) {
+        this(imageFile, height, imgChar, requiresBorder, Quantizer.NEAREST);
+    }
+
+    /**
+     * Constructs an ImageGenerator for use in a Hologram
+     *
+     * @param imageFile      file used to generate the image
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @param quantizer      {@link com.dsh105.holoapi.image.Quantizer} used to match pixels to chat colours
+     * @throws java.lang.RuntimeException if the image cannot be read
+     */
+    public ImageGenerator(File imageFile, int height, ImageChar imgChar, boolean requiresBorder, Quantizer quantizer) {
         this.imageHeight = height;
         this.imageChar = imgChar;
         this.requiresBorder = requiresBorder;
+        this.quantizer = quantizer;
         BufferedImage image;
         try {
             image = ImageIO.read(imageFile);
         } catch (IOException e) {
             throw new RuntimeException("Cannot read image " + imageFile.getPath(), e);
         }
-        this.lines = this.generate(generateColours(image, height), imgChar.getImageChar(), requiresBorder);
+        this.lines = this.generateLines(image, height);
     }
 
     /**
@@ -137,6 +164,21 @@ public class ImageGenerator implements Generator {
         this.imageKey = imageKey;
     }
 
+    /**
+     * Constructs an ImageGenerator for use in a Hologram
+     *
+     * @param imageKey       key to store the generator under. Only used for recognition of stored image generators
+     * @param image          {@link java.awt.image.BufferedImage} used to generate the image
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @param quantizer      {@link com.dsh105.holoapi.image.Quantizer} used to match pixels to chat colours
+     */
+    public ImageGenerator(String imageKey, BufferedImage image, int height, ImageChar imgChar, boolean requiresBorder, Quantizer quantizer) {
+        this(image, height, imgChar, requiresBorder, quantizer);
+        this.imageKey = imageKey;
+    }
+
     /**
      * Constructs an ImageGenerator for use in a Hologram
      *
@@ -165,6 +207,26 @@ public class ImageGenerator implements Generator {
         this.imageKey = imageKey;
     }
 
+    /**
+     * Constructs an ImageGenerator for use in a Hologram
+     *
+     * @param imageKey       key to store the generator under. Only used for recognition of stored image generators
+     * @param imageUrl       URL to search the image for
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param loadUrl        whether to automatically load the image from the specified URL
+     * @param requiresBorder whether the display requires a border
+     * @param quantizer      {@link com.dsh105.holoapi.image.Quantizer} used to match pixels to chat colours
+     */
+    public ImageGenerator(String imageKey, String imageUrl, int height, ImageChar imgChar, boolean loadUrl, boolean requiresBorder, Quantizer quantizer) {
+        this(imageUrl, height, imgChar, false, requiresBorder);
+        this.imageKey = imageKey;
+        this.quantizer = quantizer;
+        if (loadUrl) {
+            this.loadUrlImage();
+        }
+    }
+
     /**
      * Constructs an ImageGenerator for use in a Hologram
      *
@@ -180,6 +242,31 @@ public class ImageGenerator implements Generator {
         this.imageKey = imageKey;
     }
 
+    /**
+     * Constructs an ImageGenerator for use in a Hologram
+     *
+     * @param imageKey       key to store the generator under. Only used for recognition of stored image generators
+     * @param imageFile      file used to generate the image
+     * @param height         height of the display
+     * @param imgChar        {@link com.dsh105.holoapi.image.ImageChar} of the display
+     * @param requiresBorder whether the display requires a border
+     * @param quantizer      {@link com.dsh105.holoapi.image.Quantizer} used to match pixels to chat colours
+     * @throws java.lang.RuntimeException if the image cannot be read
+     */
+    public ImageGenerator(String imageKey, File imageFile, int height, ImageChar imgChar, boolean requiresBorder, Quantizer quantizer) {
+        this(imageFile, height, imgChar, requiresBorder, quantizer);
+        this.imageKey = imageKey;
+    }
+
+    // Used for lines read from the image cache
+    ImageGenerator(String imageKey, String[] lines, int height, ImageChar imgChar, boolean requiresBorder) {
+        this.imageKey = imageKey;
+        this.imageHeight = height;
+        this.imageChar = imgChar;
+        this.requiresBorder = requiresBorder;
+        this.load(lines);
+    }
+
     @Override
     public String getKey() {
         return imageKey;
@@ -205,7 +292,12 @@ public class ImageGenerator implements Generator {
         } catch (IOException e) {
             throw new RuntimeException("Cannot read image " + uri, e);
         }
-        this.lines = this.generate(generateColours(image, this.imageHeight), this.imageChar.getImageChar(), requiresBorder);
+        this.lines = this.generateLines(image, this.imageHeight);
+        this.hasLoaded = true;
+    }
+
+    void load(String[] lines) {
+        this.lines = lines;
         this.hasLoaded = true;
     }
 
@@ -218,19 +310,58 @@ public class ImageGenerator implements Generator {
         return lines;
     }
 
+    private String[] generateLines(BufferedImage image, int height) {
+        String[] lines = this.generate(generateColours(image, height), this.imageChar.getImageChar(), this.requiresBorder);
+        int maxLength = Settings.IMAGE_MAX_LINE_LENGTH.getValue();
+        if (maxLength <= 0) {
+            return lines;
+        }
+        // Lines get shorter as the image gets narrower, so the height is lowered (keeping the aspect ratio) until every
+        // line fits in a name tag. The first guess assumes line length is proportional to the height
+        int longest = getLongest(lines);
+        while (longest > maxLength && height > 1) {
+            height = Math.max(1, Math.min(height - 1, (int) ((long) height * maxLength / longest)));
+            lines = this.generate(generateColours(image, height), this.imageChar.getImageChar(), this.requiresBorder);
+            longest = getLongest(lines);
+        }
+        return lines;
+    }
+
+    private int getLongest(String[] lines) {
+        int longest = 0;
+        for (String line : lines) {
+            longest = Math.max(longest, line.length());
+        }
+        return longest;
+    }
+
     private String[] generate(ChatColor[][] colors, char imgchar, boolean border) {
+        String transparency = border ? Settings.TRANSPARENCY_WITH_BORDER.getValue() : Settings.TRANSPARENCY_WITHOUT_BORDER.getValue();
+        // Colour codes in the transparency mean the colour has to be set again after it
+        boolean transparencyResets = transparency.indexOf('&') >= 0 || transparency.indexOf(ChatColor.COLOR_CHAR) >= 0;
         String[] lines = new String[colors[0].length];
+        StringBuilder builder = new StringBuilder(colors.length * (transparency.length() + 3) + 2);
         for (int y = 0; y < colors[0].length; y++) {
-            String line = "";
+            builder.setLength(0);
+            // Neighbouring pixels of the same colour share a single colour code
+            ChatColor current = null;
             for (ChatColor[] color : colors) {
                 ChatColor colour = color[y];
                 if (colour == null) {
-                    line += border ? Settings.TRANSPARENCY_WITH_BORDER.getValue() : Settings.TRANSPARENCY_WITHOUT_BORDER.getValue();
+                    builder.append(transparency);
+                    if (transparencyResets) {
+                        current = null;
+                    }
                 } else {
-                    line += colour.toString() + imgchar + ChatColor.RESET;
+                    if (colour != current) {
+                        builder.append(colour.toString());
+                        current = colour;
+                    }
+                    builder.append(imgchar);
                 }
             }
 
+            String line = builder.toString();
             if (!border) {
                 line = line.trim();
             }
@@ -242,24 +373,55 @@ public class ImageGenerator implements Generator {
 
     private ChatColor[][] generateColours(BufferedImage image, int height) {
         double ratio = (double) image.getHeight() / image.getWidth();
-        BufferedImage resized = resize(image, (int) (height / ratio), height);
-
-        ChatColor[][] chatImg = new ChatColor[resized.getWidth()][resized.getHeight()];
-        for (int x = 0; x < resized.getWidth(); x++) {
-            for (int y = 0; y < resized.getHeight(); y++) {
-                int rgb = resized.getRGB(x, y);
-                ChatColor closest = ColourMap.getClosest(new Color(rgb, true));
-                chatImg[x][y] = closest;
+        int width = Math.max(1, (int) (height / ratio));
+        int[] pixels = scale(ColourMap.getPixels(image), image.getWidth(), image.getHeight(), width, height);
+        return ColourMap.getClosest(pixels, width, height, this.quantizer);
+    }
+
+    // Averages every source pixel that falls into each scaled pixel, rather than picking one of them
+    private int[] scale(int[] source, int sourceWidth, int sourceHeight, int width, int height) {
+        int[] scaled = new int[width * height];
+        if (width >= sourceWidth || height >= sourceHeight) {
+            // Not smaller in both directions, so there is nothing to average
+            for (int y = 0; y < height; y++) {
+                int sourceOffset = (int) ((long) y * sourceHeight / height) * sourceWidth;
+                for (int x = 0; x < width; x++) {
+                    scaled[y * width + x] = source[sourceOffset + (int) ((long) x * sourceWidth / width)];
+                }
             }
+            return scaled;
         }
-        return chatImg;
-    }
 
-    private BufferedImage resize(BufferedImage originalImage, int width, int height) {
-        AffineTransform af = new AffineTransform();
-        af.scale(width / (double) originalImage.getWidth(), height / (double) originalImage.getHeight());
-        AffineTransformOp operation = new AffineTransformOp(af, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-        return operation.filter(originalImage, null);
+        int[] columns = new int[sourceWidth];
+        for (int x = 0; x < sourceWidth; x++) {
+            columns[x] = (int) ((long) x * width / sourceWidth);
+        }
+        int[] count = new int[scaled.length];
+        long[] alpha = new long[scaled.length];
+        long[] red = new long[scaled.length];
+        long[] green = new long[scaled.length];
+        long[] blue = new long[scaled.length];
+        for (int y = 0; y < sourceHeight; y++) {
+            int row = (int) ((long) y * height / sourceHeight) * width;
+            int sourceOffset = y * sourceWidth;
+            for (int x = 0; x < sourceWidth; x++) {
+                int argb = source[sourceOffset + x];
+                int a = argb >>> 24;
+                int i = row + columns[x];
+                count[i]++;
+                // Weighted by alpha, so that transparent pixels don't darken their neighbours
+                alpha[i] += a;
+                red[i] += ((argb >> 16) & 0xFF) * a;
+                green[i] += ((argb >> 8) & 0xFF) * a;
+                blue[i] += (argb & 0xFF) * a;
+            }
+        }
+        for (int i = 0; i < scaled.length; i++) {
+            if (alpha[i] > 0) {
+                scaled[i] = (int) (alpha[i] / count[i]) << 24 | (int) (red[i] / alpha[i]) << 16 | (int) (green[i] / alpha[i]) << 8 | (int) (blue[i] / alpha[i]);
+            }
+        }
+        return scaled;
     }
 
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 
 package com.dsh105.holoapi.image;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.bukkit.command.CommandSender;
 
 /**
@@ -50,6 +51,15 @@ public interface ImageLoader<T extends Generator> {
      */
     public T getGenerator(String key);
 
+    /**
+     * Gets a future that completes once the generator of a key has been loaded. If the generator has a URL type and
+     * has not yet been loaded, the loading process will be started
+     *
+     * @param key key to search for a generator with
+     * @return future completing with the generator, or with null if no generator of that key could be loaded
+     */
+    public ListenableFuture<T> getFuture(String key);
+
     /**
      * Checks and returns whether a generator of a key exists. This does NOT check for unloaded URL generators
      *
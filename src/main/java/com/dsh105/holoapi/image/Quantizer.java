@@ -0,0 +1,76 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.image;
+
+/**
+ * Represents the way image pixels are matched to chat colours
+ */
+public enum Quantizer {
+
+    /**
+     * Matches each pixel to its closest chat colour
+     */
+    NEAREST("nearest"),
+
+    /**
+     * Matches each pixel after offsetting it by an ordered (Bayer) dither pattern, so that gradients are shown as a
+     * mix of the colours either side of them
+     */
+    ORDERED("ordered"),
+
+    /**
+     * Matches each pixel after adding the colour error of the pixels matched before it (Floyd-Steinberg), so that
+     * gradients are shown as a mix of the colours either side of them
+     */
+    FLOYD_STEINBERG("floydSteinberg"),
+
+    /**
+     * Matches each pixel to the chat colour that looks closest to it, measured in the CIELAB colour space
+     */
+    PERCEPTUAL("perceptual");
+
+    private String humanName;
+
+    Quantizer(String humanName) {
+        this.humanName = humanName;
+    }
+
+    /**
+     * Gets the friendly name
+     *
+     * @return friendly name
+     */
+    public String getHumanName() {
+        return humanName;
+    }
+
+    /**
+     * Gets the appropriate Quantizer from its friendly name
+     *
+     * @param humanName friendly name used to search for
+     * @return Quantizer if found, null if it doesn't exist
+     */
+    public static Quantizer fromHumanName(String humanName) {
+        for (Quantizer quantizer : Quantizer.values()) {
+            if (quantizer.getHumanName().equalsIgnoreCase(humanName)) {
+                return quantizer;
+            }
+        }
+        return null;
+    }
+}
@@ -22,61 +22,126 @@ import com.dsh105.commodus.config.YAMLConfig;
 import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.HoloAPICore;
 import com.dsh105.holoapi.config.Lang;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URLConnection;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 public class SimpleAnimationLoader implements ImageLoader<AnimatedImageGenerator> {
 
-    private final HashMap<String, AnimatedImageGenerator> KEY_TO_IMAGE_MAP = new HashMap<>();
-    private final HashMap<String, UnloadedImageStorage> URL_UNLOADED = new HashMap<>();
-    private boolean loaded;
+    // URL animations are added from async tasks, so both maps must be safe to use from any thread
+    private final ConcurrentHashMap<String, AnimatedImageGenerator> KEY_TO_IMAGE_MAP = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UnloadedImageStorage> URL_UNLOADED = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
 
-    public void loadAnimationConfiguration(YAMLConfig config) {
+    // Completed as each animation is decoded, so that holograms using it can be built without waiting for the others
+    private final ConcurrentHashMap<String, SettableFuture<AnimatedImageGenerator>> FUTURES = new ConcurrentHashMap<>();
+
+    public ListenableFuture<Boolean> loadAnimationConfiguration(YAMLConfig config) {
+        return this.loadAnimationConfiguration(config, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * Reads the animation configuration and decodes each file animation using the given executor
+     * <p>
+     * URL animations are still only downloaded when they are first requested
+     *
+     * @param config   configuration to read animations from
+     * @param executor executor to decode animations with
+     * @return future that completes once every file animation has been decoded
+     */
+    public ListenableFuture<Boolean> loadAnimationConfiguration(YAMLConfig config, Executor executor) {
+        loaded = false;
         KEY_TO_IMAGE_MAP.clear();
         URL_UNLOADED.clear();
+        for (SettableFuture<AnimatedImageGenerator> future : FUTURES.values()) {
+            // Nothing is waiting on these any more after a reload
+            future.set(null);
+        }
+        FUTURES.clear();
         File imageFolder = new File(HoloAPI.getCore().getDataFolder() + File.separator + "animations");
         if (!imageFolder.exists()) {
             imageFolder.mkdirs();
         }
+
+        final SettableFuture<Boolean> done = SettableFuture.create();
+        // Starts at one so that loading can't finish before every animation has been submitted
+        final AtomicInteger remaining = new AtomicInteger(1);
         ConfigurationSection cs = config.getConfigurationSection("animations");
         if (cs != null) {
-            for (String key : cs.getKeys(false)) {
+            for (final String key : cs.getKeys(false)) {
                 String path = "animations." + key + ".";
-                String imagePath = config.getString(path + "path");
+                final String imagePath = config.getString(path + "path");
                 if (imagePath == null) {
                     HoloAPI.LOG.info("Failed to load animation: " + key + ". Invalid path");
                     continue;
                 }
-                int imageHeight = config.getInt(path + "height", 10);
-                int frameRate = config.getInt(path + "frameRate", 10);
-                boolean requiresBorder = config.getBoolean(path + "requiresBorder", true);
-                String imageChar = config.getString(path + "characterType", ImageChar.BLOCK.getHumanName());
+                final int imageHeight = config.getInt(path + "height", 10);
+                final int frameRate = config.getInt(path + "frameRate", 10);
+                final boolean requiresBorder = config.getBoolean(path + "requiresBorder", true);
+                final String imageChar = config.getString(path + "characterType", ImageChar.BLOCK.getHumanName());
                 String imageType = config.getString(path + "type", "FILE");
                 if (!GeneralUtil.isEnumType(ImageLoader.ImageLoadType.class, imageType.toUpperCase())) {
                     HoloAPI.LOG.info("Failed to load animation: " + key + ". Invalid image type.");
                     continue;
                 }
-                AnimationLoadType type = AnimationLoadType.valueOf(imageType.toUpperCase());
+                final AnimationLoadType type = AnimationLoadType.valueOf(imageType.toUpperCase());
 
-                AnimatedImageGenerator generator = findGenerator(type, key, imagePath, frameRate, imageHeight, imageChar, requiresBorder);
-                if (generator != null) {
-                    this.KEY_TO_IMAGE_MAP.put(key, generator);
+                final SettableFuture<AnimatedImageGenerator> future = SettableFuture.create();
+                this.FUTURES.put(key, future);
+                if (type == AnimationLoadType.URL) {
+                    // Completed once the animation has been downloaded
+                    findGenerator(type, key, imagePath, frameRate, imageHeight, imageChar, requiresBorder);
+                    continue;
                 }
+
+                remaining.incrementAndGet();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            AnimatedImageGenerator generator = findGenerator(type, key, imagePath, frameRate, imageHeight, imageChar, requiresBorder);
+                            if (generator != null) {
+                                KEY_TO_IMAGE_MAP.put(key, generator);
+                            }
+                            future.set(generator);
+                        } finally {
+                            if (remaining.decrementAndGet() == 0) {
+                                finishLoading(done);
+                            }
+                        }
+                    }
+                });
             }
         }
+        if (remaining.decrementAndGet() == 0) {
+            this.finishLoading(done);
+        }
+        return done;
+    }
+
+    private void finishLoading(SettableFuture<Boolean> done) {
         loaded = true;
         if (!KEY_TO_IMAGE_MAP.isEmpty() || !URL_UNLOADED.isEmpty()) {
             HoloAPI.LOG.info("Animations loaded.");
         }
+        done.set(true);
     }
 
     private AnimatedImageGenerator findGenerator(AnimationLoadType type, String key, String imagePath, int frameRate, int imageHeight, String imageCharType, boolean requiresBorder) {
@@ -89,11 +154,11 @@ public class SimpleAnimationLoader implements ImageLoader<AnimatedImageGenerator
             switch (type) {
                 case FILE:
                     File f = new File(HoloAPI.getCore().getDataFolder() + File.separator + "animations" + File.separator + imagePath);
-                    if (frameRate == 0) {
-                        return new AnimatedImageGenerator(key, f, imageHeight, c, requiresBorder);
-                    } else {
-                        return new AnimatedImageGenerator(key, f, frameRate, imageHeight, c, requiresBorder);
+                    AnimatedImageGenerator generator = this.loadFile(key, f, imageHeight, c, requiresBorder);
+                    if (frameRate != 0) {
+                        generator.prepareFrameRate(frameRate);
                     }
+                    return generator;
                 case URL:
                     this.URL_UNLOADED.put(key, new UnloadedImageStorage(imagePath, imageHeight, frameRate, c, requiresBorder));
                     return null;
@@ -105,6 +170,26 @@ public class SimpleAnimationLoader implements ImageLoader<AnimatedImageGenerator
         return null;
     }
 
+    private AnimatedImageGenerator loadFile(String key, File file, int imageHeight, ImageChar imageChar, boolean requiresBorder) throws IOException {
+        ImageCache cache = HoloAPI.getImageCache();
+        AnimatedImageGenerator generator = new AnimatedImageGenerator(key);
+        if (!cache.isEnabled()) {
+            generator.read(ImageIO.createImageInputStream(file), imageHeight, imageChar, requiresBorder, true);
+            return generator;
+        }
+        byte[] source = Files.readAllBytes(file.toPath());
+        String cacheKey = cache.key(source, imageHeight, imageChar, requiresBorder);
+        ImageCache.Entry entry = cache.getAnimation(cacheKey);
+        if (entry != null) {
+            generator.load(entry, imageChar, requiresBorder);
+            return generator;
+        }
+        // The frame rate is applied afterwards, so that cached frames keep the delays of the GIF
+        generator.read(ImageIO.createImageInputStream(new ByteArrayInputStream(source)), imageHeight, imageChar, requiresBorder, true);
+        cache.putAnimation(cacheKey, generator);
+        return generator;
+    }
+
     @Override
     public AnimatedImageGenerator getGenerator(CommandSender sender, String key) {
         AnimatedImageGenerator g = this.KEY_TO_IMAGE_MAP.get(key);
@@ -137,23 +222,35 @@ public class SimpleAnimationLoader implements ImageLoader<AnimatedImageGenerator
     }
 
     private AnimatedImageGenerator prepareUrlGenerator(final CommandSender sender, final String key) {
-        final UnloadedImageStorage data = URL_UNLOADED.get(key);
+        // Removing it claims the animation, so that it is only downloaded once at a time
+        final UnloadedImageStorage data = URL_UNLOADED.remove(key);
+        if (data == null) {
+            return null;
+        }
         final AnimatedImageGenerator generator = new AnimatedImageGenerator(key);
         new BukkitRunnable() {
             @Override
             public void run() {
+                ImageCache cache = HoloAPI.getImageCache();
+                String cacheKey = cache.key(data.getImagePath(), data.getImageHeight(), data.getCharType(), data.requiresBorder());
                 URI uri = URI.create(data.getImagePath());
                 URLConnection connection;
                 InputStream input;
                 try {
-                    connection = uri.toURL().openConnection();
-                    connection.setRequestProperty("Content-Type", "image/gif");
-                    connection.setUseCaches(false);
-                    connection.setDoOutput(true);
-                    connection.setConnectTimeout(8000);
-                    input = connection.getInputStream();
-                    generator.frames = generator.readGif(input);
-                    generator.prepare(data.getImageHeight(), data.getCharType(), data.requiresBorder());
+                    // Cached URL animations don't need to be downloaded again
+                    ImageCache.Entry entry = cache.getAnimation(cacheKey);
+                    if (entry != null) {
+                        generator.load(entry, data.getCharType(), data.requiresBorder());
+                    } else {
+                        connection = uri.toURL().openConnection();
+                        connection.setRequestProperty("Content-Type", "image/gif");
+                        connection.setUseCaches(false);
+                        connection.setDoOutput(true);
+                        connection.setConnectTimeout(8000);
+                        input = connection.getInputStream();
+                        generator.read(ImageIO.createImageInputStream(input), data.getImageHeight(), data.getCharType(), data.requiresBorder(), true);
+                        cache.putAnimation(cacheKey, generator);
+                    }
                     if (data.getFrameRate() != 0) {
                         generator.prepareFrameRate(data.getFrameRate());
                     }
@@ -162,15 +259,36 @@ public class SimpleAnimationLoader implements ImageLoader<AnimatedImageGenerator
                     }
                     HoloAPI.LOG.info("Custom URL animation '" + key + "' loaded.");
                     KEY_TO_IMAGE_MAP.put(key, generator);
-                    URL_UNLOADED.remove(key);
-                } catch (IOException e) {
-                    e.printStackTrace();
+                    SettableFuture<AnimatedImageGenerator> future = FUTURES.get(key);
+                    if (future != null) {
+                        future.set(generator);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    HoloAPI.LOG.warning("Failed to load custom URL animation '" + key + "': " + e.getMessage());
+                    // Allow it to be tried again, and give anyone waiting on it a null result rather than leaving them waiting
+                    URL_UNLOADED.putIfAbsent(key, data);
+                    SettableFuture<AnimatedImageGenerator> future = FUTURES.replace(key, SettableFuture.<AnimatedImageGenerator>create());
+                    if (future != null) {
+                        future.set(null);
+                    }
                 }
             }
         }.runTaskAsynchronously(HoloAPI.getCore());
         return generator;
     }
 
+    @Override
+    public ListenableFuture<AnimatedImageGenerator> getFuture(String key) {
+        SettableFuture<AnimatedImageGenerator> future = this.FUTURES.get(key);
+        if (future == null) {
+            return Futures.immediateFuture(this.KEY_TO_IMAGE_MAP.get(key));
+        }
+        if (!future.isDone() && this.URL_UNLOADED.containsKey(key)) {
+            this.prepareUrlGenerator(null, key);
+        }
+        return future;
+    }
+
     @Override
     public boolean exists(String key) {
         return this.KEY_TO_IMAGE_MAP.containsKey(key);
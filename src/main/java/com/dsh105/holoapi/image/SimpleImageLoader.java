@@ -22,68 +22,141 @@ import com.dsh105.commodus.config.YAMLConfig;
 import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.HoloAPICore;
 import com.dsh105.holoapi.config.Lang;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 public class SimpleImageLoader implements ImageLoader<ImageGenerator> {
 
-    private final HashMap<String, ImageGenerator> KEY_TO_IMAGE_MAP = new HashMap<>();
-    private final HashMap<String, UnloadedImageStorage> URL_UNLOADED = new HashMap<>();
-    private boolean loaded;
+    // URL images are added from async tasks, so both maps must be safe to use from any thread
+    private final ConcurrentHashMap<String, ImageGenerator> KEY_TO_IMAGE_MAP = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UnloadedImageStorage> URL_UNLOADED = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
 
-    public void loadImageConfiguration(YAMLConfig config) {
+    // Completed as each image is decoded, so that holograms using it can be built without waiting for the others
+    private final ConcurrentHashMap<String, SettableFuture<ImageGenerator>> FUTURES = new ConcurrentHashMap<>();
+
+    public ListenableFuture<Boolean> loadImageConfiguration(YAMLConfig config) {
+        return this.loadImageConfiguration(config, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * Reads the image configuration and decodes each file image using the given executor
+     * <p>
+     * URL images are still only downloaded when they are first requested
+     *
+     * @param config   configuration to read images from
+     * @param executor executor to decode images with
+     * @return future that completes once every file image has been decoded
+     */
+    public ListenableFuture<Boolean> loadImageConfiguration(YAMLConfig config, Executor executor) {
+        loaded = false;
         KEY_TO_IMAGE_MAP.clear();
         URL_UNLOADED.clear();
+        for (SettableFuture<ImageGenerator> future : FUTURES.values()) {
+            // Nothing is waiting on these any more after a reload
+            future.set(null);
+        }
+        FUTURES.clear();
         File imageFolder = new File(HoloAPI.getCore().getDataFolder() + File.separator + "images");
         if (!imageFolder.exists()) {
             imageFolder.mkdirs();
         }
+
+        final SettableFuture<Boolean> done = SettableFuture.create();
+        // Starts at one so that loading can't finish before every image has been submitted
+        final AtomicInteger remaining = new AtomicInteger(1);
         ConfigurationSection cs = config.getConfigurationSection("images");
         if (cs != null) {
-            for (String key : cs.getKeys(false)) {
+            for (final String key : cs.getKeys(false)) {
                 String path = "images." + key + ".";
-                String imagePath = config.getString(path + "path");
-                int imageHeight = config.getInt(path + "height", 10);
-                String imageChar = config.getString(path + "characterType", ImageChar.BLOCK.getHumanName());
+                final String imagePath = config.getString(path + "path");
+                final int imageHeight = config.getInt(path + "height", 10);
+                final String imageChar = config.getString(path + "characterType", ImageChar.BLOCK.getHumanName());
                 String imageType = config.getString(path + "type", "FILE");
-                boolean requiresBorder = config.getBoolean(path + "requiresBorder", true);
+                final boolean requiresBorder = config.getBoolean(path + "requiresBorder", true);
+                final String quantizer = config.getString(path + "quantizer", Quantizer.NEAREST.getHumanName());
                 if (!GeneralUtil.isEnumType(ImageLoader.ImageLoadType.class, imageType.toUpperCase())) {
                     HoloAPI.LOG.info("Failed to load image: " + key + ". Invalid image type.");
                     continue;
                 }
-                ImageLoader.ImageLoadType type = ImageLoader.ImageLoadType.valueOf(imageType.toUpperCase());
+                final ImageLoader.ImageLoadType type = ImageLoader.ImageLoadType.valueOf(imageType.toUpperCase());
 
-                ImageGenerator generator = findGenerator(type, key, imagePath, imageHeight, imageChar, requiresBorder);
-                if (generator != null) {
-                    this.KEY_TO_IMAGE_MAP.put(key, generator);
+                final SettableFuture<ImageGenerator> future = SettableFuture.create();
+                this.FUTURES.put(key, future);
+                if (type == ImageLoader.ImageLoadType.URL) {
+                    // Completed once the image has been downloaded
+                    findGenerator(type, key, imagePath, imageHeight, imageChar, requiresBorder, quantizer);
+                    continue;
                 }
+
+                remaining.incrementAndGet();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            ImageGenerator generator = findGenerator(type, key, imagePath, imageHeight, imageChar, requiresBorder, quantizer);
+                            if (generator != null) {
+                                KEY_TO_IMAGE_MAP.put(key, generator);
+                            }
+                            future.set(generator);
+                        } finally {
+                            if (remaining.decrementAndGet() == 0) {
+                                finishLoading(done);
+                            }
+                        }
+                    }
+                });
             }
         }
+        if (remaining.decrementAndGet() == 0) {
+            this.finishLoading(done);
+        }
+        return done;
+    }
+
+    private void finishLoading(SettableFuture<Boolean> done) {
         loaded = true;
         if (!KEY_TO_IMAGE_MAP.isEmpty() || !URL_UNLOADED.isEmpty()) {
             HoloAPI.LOG.info("Images loaded.");
         }
+        done.set(true);
     }
 
-    private ImageGenerator findGenerator(ImageLoader.ImageLoadType type, String key, String imagePath, int imageHeight, String imageCharType, boolean requiresBorder) {
+    private ImageGenerator findGenerator(ImageLoader.ImageLoadType type, String key, String imagePath, int imageHeight, String imageCharType, boolean requiresBorder, String quantizerType) {
         try {
             ImageChar c = ImageChar.fromHumanName(imageCharType);
             if (c == null) {
                 HoloAPI.LOG.info("Invalid image char type for " + key + ". Using default.");
                 c = ImageChar.BLOCK;
             }
+            Quantizer q = Quantizer.fromHumanName(quantizerType);
+            if (q == null) {
+                HoloAPI.LOG.info("Invalid quantizer for " + key + ". Using default.");
+                q = Quantizer.NEAREST;
+            }
             switch (type) {
                 case URL:
-                    this.URL_UNLOADED.put(key, new UnloadedImageStorage(imagePath, imageHeight, c, requiresBorder));
+                    this.URL_UNLOADED.put(key, new UnloadedImageStorage(imagePath, imageHeight, c, requiresBorder, q));
                     return null;
                 case FILE:
                     File f = new File(HoloAPI.getCore().getDataFolder() + File.separator + "images" + File.separator + imagePath);
-                    return new ImageGenerator(key, f, imageHeight, c, requiresBorder);
+                    return this.loadFile(key, f, imageHeight, c, requiresBorder, q);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -92,6 +165,26 @@ public class SimpleImageLoader implements ImageLoader<ImageGenerator> {
         return null;
     }
 
+    private ImageGenerator loadFile(String key, File file, int imageHeight, ImageChar imageChar, boolean requiresBorder, Quantizer quantizer) throws IOException {
+        ImageCache cache = HoloAPI.getImageCache();
+        if (!cache.isEnabled()) {
+            return new ImageGenerator(key, file, imageHeight, imageChar, requiresBorder, quantizer);
+        }
+        byte[] source = Files.readAllBytes(file.toPath());
+        String cacheKey = cache.key(source, imageHeight, imageChar, requiresBorder, quantizer);
+        String[] lines = cache.getLines(cacheKey);
+        if (lines != null) {
+            return new ImageGenerator(key, lines, imageHeight, imageChar, requiresBorder);
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(source));
+        if (image == null) {
+            throw new IOException("Cannot read image " + file.getPath());
+        }
+        ImageGenerator generator = new ImageGenerator(key, image, imageHeight, imageChar, requiresBorder, quantizer);
+        cache.putLines(cacheKey, generator.getLines());
+        return generator;
+    }
+
     @Override
     public ImageGenerator getGenerator(CommandSender sender, String key) {
         ImageGenerator g = this.KEY_TO_IMAGE_MAP.get(key);
@@ -122,24 +215,62 @@ public class SimpleImageLoader implements ImageLoader<ImageGenerator> {
     }
 
     private ImageGenerator prepareUrlGenerator(final CommandSender sender, final String key) {
-        UnloadedImageStorage data = this.URL_UNLOADED.get(key);
+        // Removing it claims the image, so that it is only ever loaded once
+        final UnloadedImageStorage data = this.URL_UNLOADED.remove(key);
+        if (data == null) {
+            return null;
+        }
         HoloAPI.LOG.info("Loading custom URL image of key " + key);
-        this.URL_UNLOADED.remove(key);
-        final ImageGenerator g = new ImageGenerator(key, data.getImagePath(), data.getImageHeight(), data.getCharType(), false, data.requiresBorder());
+        final ImageGenerator g = new ImageGenerator(key, data.getImagePath(), data.getImageHeight(), data.getCharType(), false, data.requiresBorder(), data.getQuantizer());
+        final String cacheKey = HoloAPI.getImageCache().key(data.getImagePath(), data.getImageHeight(), data.getCharType(), data.requiresBorder(), data.getQuantizer());
         new BukkitRunnable() {
             @Override
             public void run() {
-                g.loadUrlImage();
+                try {
+                    // Cached URL images don't need to be downloaded again
+                    String[] lines = HoloAPI.getImageCache().getLines(cacheKey);
+                    if (lines != null) {
+                        g.load(lines);
+                    } else {
+                        g.loadUrlImage();
+                        HoloAPI.getImageCache().putLines(cacheKey, g.getLines());
+                    }
+                } catch (RuntimeException e) {
+                    HoloAPI.LOG.warning("Failed to load custom URL image '" + key + "': " + e.getMessage());
+                    // Allow it to be tried again, and give anyone waiting on it a null result rather than leaving them waiting
+                    URL_UNLOADED.putIfAbsent(key, data);
+                    SettableFuture<ImageGenerator> future = FUTURES.replace(key, SettableFuture.<ImageGenerator>create());
+                    if (future != null) {
+                        future.set(null);
+                    }
+                    return;
+                }
                 if (sender != null) {
                     Lang.IMAGE_LOADED.send(sender, "key", key);
                 }
                 HoloAPI.LOG.info("Custom URL image '" + key + "' loaded.");
                 KEY_TO_IMAGE_MAP.put(key, g);
+                SettableFuture<ImageGenerator> future = FUTURES.get(key);
+                if (future != null) {
+                    future.set(g);
+                }
             }
         }.runTaskAsynchronously(HoloAPI.getCore());
         return g;
     }
 
+    @Override
+    public ListenableFuture<ImageGenerator> getFuture(String key) {
+        SettableFuture<ImageGenerator> future = this.FUTURES.get(key);
+        if (future == null) {
+            return Futures.immediateFuture(this.KEY_TO_IMAGE_MAP.get(key));
+        }
+        if (!future.isDone() && this.URL_UNLOADED.containsKey(key)) {
+            this.prepareUrlGenerator(null, key);
+        }
+        return future;
+    }
+
     @Override
     public boolean exists(String key) {
         return this.KEY_TO_IMAGE_MAP.containsKey(key);
@@ -24,6 +24,7 @@ public class UnloadedImageStorage {
     private int frameRate;
     private ImageChar charType;
     private boolean requiresBorder;
+    private Quantizer quantizer = Quantizer.NEAREST;
 
     public UnloadedImageStorage(String imagePath, int imageHeight, ImageChar charType, boolean requiresBorder) {
         this.imagePath = imagePath;
@@ -32,6 +33,11 @@ public class UnloadedImageStorage {
         this.requiresBorder = requiresBorder;
     }
 
+    public UnloadedImageStorage(String imagePath, int imageHeight, ImageChar charType, boolean requiresBorder, Quantizer quantizer) {
+        this(imagePath, imageHeight, charType, requiresBorder);
+        this.quantizer = quantizer;
+    }
+
     public UnloadedImageStorage(String imagePath, int imageHeight, int frameRate, ImageChar charType, boolean requiresBorder) {
         this.imagePath = imagePath;
         this.imageHeight = imageHeight;
@@ -79,4 +85,12 @@ public class UnloadedImageStorage {
     public void setRequiresBorder(boolean requiresBorder) {
         this.requiresBorder = requiresBorder;
     }
-}
\ No newline at end of file
+
+    public Quantizer getQuantizer() {
+        return quantizer;
+    }
+
+    public void setQuantizer(Quantizer quantizer) {
+        this.quantizer = quantizer;
+    }
+}
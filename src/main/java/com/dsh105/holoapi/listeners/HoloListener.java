@@ -22,7 +22,8 @@ import com.dsh105.holoapi.api.AnimatedHologram;
 import com.dsh105.holoapi.api.Hologram;
 import com.dsh105.holoapi.api.events.HoloLineUpdateEvent;
 import com.dsh105.holoapi.config.Settings;
-import org.bukkit.entity.Entity;
+import com.dsh105.holoapi.util.ViewerIndex;
+import org.bukkit.Chunk;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -35,6 +36,8 @@ import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.List;
+
 public class HoloListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -51,11 +54,12 @@ public class HoloListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerTeleport(PlayerTeleportEvent event) {
         Player player = event.getPlayer();
-        for (Hologram h : HoloAPI.getManager().getAllHolograms().keySet()) {
-            if (event.getTo().getWorld().getName().equals(h.getWorldName())) {
-                if (h.getLocationFor(player) != null && h.getVisibility().isVisibleTo(player, h.getSaveId())) {
-                    h.show(player, true);
-                }
+        if (HoloAPI.getHologramStreamer().isEnabled()) {
+            HoloAPI.getHologramStreamer().invalidate(player);
+        }
+        for (Hologram h : HoloAPI.getManager().getHologramsInWorld(event.getTo().getWorld().getName())) {
+            if (h.getLocationFor(player) != null && HoloAPI.getVisibilityCache().isVisibleTo(player, h)) {
+                h.show(player, true);
             }
         }
     }
@@ -63,18 +67,25 @@ public class HoloListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        HoloAPI.getHologramStreamer().remove(player);
         for (Hologram h : HoloAPI.getManager().getAllHolograms().keySet()) {
             if (h.getLocationFor(player) != null) {
                 h.clear(player);
             }
         }
+        ViewerIndex.release(player);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerJoin(PlayerJoinEvent event) {
         final Player player = event.getPlayer();
-        for (final Hologram h : HoloAPI.getManager().getAllHolograms().keySet()) {
-            if (player.getLocation().getWorld().getName().equals(h.getWorldName()) && h.getVisibility().isVisibleTo(player, h.getSaveId())) {
+        if (HoloAPI.getHologramStreamer().isEnabled()) {
+            // Give the client a moment to load in, unless the player starts moving around first
+            HoloAPI.getHologramStreamer().postpone(player, 2000L);
+            return;
+        }
+        for (final Hologram h : HoloAPI.getManager().getHologramsInWorld(player.getWorld().getName())) {
+            if (HoloAPI.getVisibilityCache().isVisibleTo(player, h)) {
                 new BukkitRunnable() {
                     @Override
                     public void run() {
@@ -91,13 +102,20 @@ public class HoloListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onWorldChange(PlayerChangedWorldEvent event) {
         final Player player = event.getPlayer();
-        for (final Hologram h : HoloAPI.getManager().getAllHolograms().keySet()) {
-            if (player.getLocation().getWorld().getName().equals(h.getWorldName()) && h.getVisibility().isVisibleTo(player, h.getSaveId())) {
-                if (h instanceof AnimatedHologram && !((AnimatedHologram) h).isAnimating()) {
-                    ((AnimatedHologram) h).animate();
+        if (HoloAPI.getHologramStreamer().isEnabled()) {
+            HoloAPI.getHologramStreamer().invalidate(player);
+        } else {
+            for (final Hologram h : HoloAPI.getManager().getHologramsInWorld(player.getWorld().getName())) {
+                if (HoloAPI.getVisibilityCache().isVisibleTo(player, h)) {
+                    if (h instanceof AnimatedHologram && !((AnimatedHologram) h).isAnimating()) {
+                        ((AnimatedHologram) h).animate();
+                    }
+                    h.show(player, true);
                 }
-                h.show(player, true);
-            } else if (event.getFrom().getName().equals(h.getWorldName()) && h.getLocationFor(player) != null) {
+            }
+        }
+        for (final Hologram h : HoloAPI.getManager().getHologramsInWorld(event.getFrom().getName())) {
+            if (h.getLocationFor(player) != null) {
                 new BukkitRunnable() {
                     @Override
                     public void run() {
@@ -110,14 +128,19 @@ public class HoloListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onChunkLoad(ChunkLoadEvent event) {
-        for (Hologram h : HoloAPI.getManager().getAllHolograms().keySet()) {
-            if (h.getDefaultLocation().getChunk().equals(event.getChunk())) {
-                for (Entity e : h.getDefaultLocation().getWorld().getEntities()) {
-                    if (e instanceof Player) {
-                        if (h.getVisibility().isVisibleTo((Player) e, h.getSaveId())) {
-                            h.show((Player) e, true);
-                        }
-                    }
+        if (HoloAPI.getHologramStreamer().isEnabled()) {
+            // Streamed holograms are shown as players come within range of them
+            return;
+        }
+        Chunk chunk = event.getChunk();
+        List<Hologram> holograms = HoloAPI.getManager().getHologramsInChunk(event.getWorld().getName(), chunk.getX(), chunk.getZ());
+        if (holograms.isEmpty()) {
+            return;
+        }
+        for (Player player : event.getWorld().getPlayers()) {
+            for (Hologram h : holograms) {
+                if (HoloAPI.getVisibilityCache().isVisibleTo(player, h)) {
+                    h.show(player, true);
                 }
             }
         }
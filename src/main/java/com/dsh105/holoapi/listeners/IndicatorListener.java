@@ -21,6 +21,7 @@ import com.dsh105.commodus.RomanNumeral;
 import com.dsh105.commodus.StringUtil;
 import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.api.Hologram;
+import com.dsh105.holoapi.api.TransientHologramManager;
 import com.dsh105.holoapi.config.Settings;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -51,7 +52,6 @@ public class IndicatorListener implements Listener {
 
     private static final char HEART_CHARACTER = '\u2764';
     private static final DecimalFormat DAMAGE_FORMAT = new DecimalFormat("#.0");
-    private static final HashMap<String, ArrayList<String>> CHAT_BUBBLES = new HashMap<>();
     private static final List<EntityDamageEvent.DamageCause> SUPPORTED_DAMAGE_TYPES = Arrays.asList(EntityDamageEvent.DamageCause.DROWNING, EntityDamageEvent.DamageCause.LAVA, EntityDamageEvent.DamageCause.MAGIC, EntityDamageEvent.DamageCause.POISON, EntityDamageEvent.DamageCause.THORNS, EntityDamageEvent.DamageCause.WITHER);
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -117,7 +117,7 @@ public class IndicatorListener implements Listener {
                     String text = indicatorPrefix + DAMAGE_FORMAT.format(damageTaken) + indicatorSuffix;
                     Location loc = entity.getLocation();
                     loc.setY(loc.getY() + Settings.INDICATOR_Y_OFFSET.getValue("damage"));
-                    HoloAPI.getManager().createSimpleHologram(loc, Settings.INDICATOR_TIME_VISIBLE.getValue("damage"), true, text);
+                    HoloAPI.getTransientHologramManager().spawn(loc, Settings.INDICATOR_TIME_VISIBLE.getValue("damage"), true, text);
                 }
             }
         });
@@ -128,7 +128,7 @@ public class IndicatorListener implements Listener {
         if (Settings.INDICATOR_ENABLE.getValue("exp")) {
             Location l = event.getPlayer().getLocation().clone();
             l.setY(l.getY() + Settings.INDICATOR_Y_OFFSET.getValue("exp"));
-            HoloAPI.getManager().createSimpleHologram(l, Settings.INDICATOR_TIME_VISIBLE.getValue("exp"), true, Settings.INDICATOR_FORMAT.getValue("exp", "default") + "+" + event.getAmount() + " exp");
+            HoloAPI.getTransientHologramManager().spawn(l, Settings.INDICATOR_TIME_VISIBLE.getValue("exp"), true, Settings.INDICATOR_FORMAT.getValue("exp", "default") + "+" + event.getAmount() + " exp");
         }
     }
 
@@ -138,7 +138,7 @@ public class IndicatorListener implements Listener {
             if ((event.getEntity() instanceof Player && Settings.INDICATOR_SHOW_FOR_PLAYERS.getValue("gainHealth")) || Settings.INDICATOR_SHOW_FOR_MOBS.getValue("gainHealth")) {
                 Location l = event.getEntity().getLocation().clone();
                 l.setY(l.getY() + Settings.INDICATOR_Y_OFFSET.getValue("gainHealth"));
-                HoloAPI.getManager().createSimpleHologram(l, Settings.INDICATOR_TIME_VISIBLE.getValue("gainHealth"), true, Settings.INDICATOR_FORMAT.getValue("gainHealth", "default") + "+" + event.getAmount() + " " + HEART_CHARACTER);
+                HoloAPI.getTransientHologramManager().spawn(l, Settings.INDICATOR_TIME_VISIBLE.getValue("gainHealth"), true, Settings.INDICATOR_FORMAT.getValue("gainHealth", "default") + "+" + event.getAmount() + " " + HEART_CHARACTER);
             }
         }
     }
@@ -158,7 +158,7 @@ public class IndicatorListener implements Listener {
                 }
                 Location l = event.getPlayer().getLocation().clone();
                 l.setY(l.getY() + Settings.INDICATOR_Y_OFFSET.getValue("potion"));
-                HoloAPI.getManager().createSimpleHologram(l, Settings.INDICATOR_TIME_VISIBLE.getValue("potion"), true, msg.replace("%effect%", "Golden Apple"));
+                HoloAPI.getTransientHologramManager().spawn(l, Settings.INDICATOR_TIME_VISIBLE.getValue("potion"), true, msg.replace("%effect%", "Golden Apple"));
             }
         }
     }
@@ -181,7 +181,7 @@ public class IndicatorListener implements Listener {
             content = content.replace("%effect%", StringUtil.capitalise(effect.getType().getName().replace("_", " "))).replace("%amp%", "" + new RomanNumeral(amp));
             Location l = e.getLocation().clone();
             l.setY(l.getY() + Settings.INDICATOR_Y_OFFSET.getValue("potion"));
-            HoloAPI.getManager().createSimpleHologram(l, Settings.INDICATOR_TIME_VISIBLE.getValue("potion"), true, content);
+            HoloAPI.getTransientHologramManager().spawn(l, Settings.INDICATOR_TIME_VISIBLE.getValue("potion"), true, content);
         }
     }
 
@@ -225,72 +225,31 @@ public class IndicatorListener implements Listener {
                 index += charsPerLine;
             }
 
-            if (CHAT_BUBBLES.containsKey(p.getName())) {
-                ArrayList<String> hologramIds = CHAT_BUBBLES.get(p.getName());
-                if (!hologramIds.isEmpty()) {
-                    Hologram last = null;
-                    // Iterate from bottom to top
-                    for (int j = hologramIds.size() - 1; j >= 0; j--) {
-                        Hologram h = HoloAPI.getManager().getHologram(hologramIds.get(j));
-                        if (h != null) {
-                            double totalSize = (h.getLines().length * Settings.VERTICAL_LINE_SPACING.getValue());
-                            double minY = h.getDefaultY() - totalSize;
-                            if (last != null && minY < last.getDefaultY()) {
-                                h.move(new Vector(h.getDefaultX(), h.getDefaultY() + (last.getLines().length * Settings.VERTICAL_LINE_SPACING.getValue()), h.getDefaultZ()));
-                            } else {
-                                if (minY < loc.getY()) {
-                                    h.move(new Vector(h.getDefaultX(), h.getDefaultY() + totalSize, h.getDefaultZ()));
-                                    last = h;
-                                }
-                            }
+            TransientHologramManager transientManager = HoloAPI.getTransientHologramManager();
+            List<Hologram> bubbles = transientManager.getActive(p.getName());
+            if (!bubbles.isEmpty()) {
+                Hologram last = null;
+                // Iterate from bottom to top
+                for (int j = bubbles.size() - 1; j >= 0; j--) {
+                    Hologram h = bubbles.get(j);
+                    double totalSize = (h.getLines().length * Settings.VERTICAL_LINE_SPACING.getValue());
+                    double minY = h.getDefaultY() - totalSize;
+                    if (last != null && minY < last.getDefaultY()) {
+                        h.move(new Vector(h.getDefaultX(), h.getDefaultY() + (last.getLines().length * Settings.VERTICAL_LINE_SPACING.getValue()), h.getDefaultZ()));
+                    } else {
+                        if (minY < loc.getY()) {
+                            h.move(new Vector(h.getDefaultX(), h.getDefaultY() + totalSize, h.getDefaultZ()));
+                            last = h;
                         }
                     }
                 }
             }
 
-            final Hologram hologram = HoloAPI.getManager().createSimpleHologram(loc, duration, !followPlayer, lines);
-
-            ArrayList<String> list;
-            if (CHAT_BUBBLES.containsKey(p.getName())) {
-                list = CHAT_BUBBLES.get(p.getName());
-            } else {
-                list = new ArrayList<>();
-            }
-
-            list.add(hologram.getSaveId());
-            CHAT_BUBBLES.put(p.getName(), list);
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    ArrayList<String> list = CHAT_BUBBLES.get(p.getName());
-                    if (list != null) {
-                        list.remove(hologram.getSaveId());
-                    }
-
-                    CHAT_BUBBLES.put(p.getName(), list);
-                }
-            }.runTaskLater(HoloAPI.getCore(), duration * 20);
-
+            String[] content = lines.toArray(new String[lines.size()]);
             if (followPlayer) {
-                class FollowPlayer extends BukkitRunnable {
-
-                    private int i;
-                    private double riseDiff = 0.0D;
-
-                    @Override
-                    public void run() {
-                        if (p == null || ++i >= ((duration * 20) - 1)) {
-                            this.cancel();
-                        }
-                        Location l = p.getEyeLocation();
-                        if (rise) {
-                            riseDiff += 0.02D;
-                        }
-                        hologram.move(new Vector(l.getX(), l.getY() + 0.5D + riseDiff, l.getZ()));
-                    }
-                }
-
-                new FollowPlayer().runTaskTimer(HoloAPI.getCore(), 10L, 10L);
+                transientManager.spawnFollowing(p, loc, 0.5D, duration, rise, p.getName(), content);
+            } else {
+                transientManager.spawn(loc, duration, TransientHologramManager.getRiseVelocity(), p.getName(), content);
             }
         }
     }
@@ -23,6 +23,8 @@ import com.dsh105.holoapi.api.SimpleHoloManager;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.world.WorldLoadEvent;
 
 import java.util.HashMap;
@@ -45,6 +47,17 @@ public class WorldListener implements Listener {
         }
     }
 
+    // Deferred holograms are built before the HoloListener shows holograms to the player
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        ((SimpleHoloManager) HoloAPI.getManager()).loadDeferred(event.getPlayer().getWorld().getName());
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        ((SimpleHoloManager) HoloAPI.getManager()).loadDeferred(event.getPlayer().getWorld().getName());
+    }
+
     public static void store(String hologramId, String worldName) {
         UNLOADED_HOLOGRAMS.put(hologramId, worldName);
     }
@@ -34,7 +34,12 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 public class InjectionManager {
@@ -44,6 +49,10 @@ public class InjectionManager {
     // We're using weak-keys here so don't worry about player instances not being GC'ed.
     protected static ConcurrentMap<Player, Injector> injections = new MapMaker().weakKeys().makeMap();
 
+    // Injectors with queued packets, flushed together once per tick
+    protected Set<Injector> pendingFlush = Collections.newSetFromMap(new MapMaker().weakKeys().<Injector, Boolean>makeMap());
+    private BukkitTask flushTask;
+
     private boolean isClosed = false;
 
     public InjectionManager(Plugin plugin) {
@@ -71,6 +80,13 @@ public class InjectionManager {
                 unInject(event.getPlayer());
             }
         }, plugin);
+
+        this.flushTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                flushQueued();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
     }
 
     public Plugin getPlugin() {
@@ -112,6 +128,58 @@ public class InjectionManager {
         return injector;
     }
 
+    /**
+     * Queues a packet for a player. All queued packets are written and flushed together at the end of the tick, so
+     * that a burst of hologram packets costs a single flush per player
+     *
+     * @param player player to send the packet to
+     * @param packet packet to queue
+     */
+    public void queuePacket(Player player, Object packet) {
+        Injector injector = getInjectorFor(player);
+        injector.queuePacket(packet);
+        pendingFlush.add(injector);
+    }
+
+    /**
+     * Reserves a place in a player's packet queue for packets that will be built later, possibly on another thread.
+     * Packets queued after it are only sent once it has been completed
+     *
+     * @param player player the packets are for
+     * @return reserved place in the queue, which must be completed
+     */
+    public PendingPackets queuePending(Player player) {
+        Injector injector = getInjectorFor(player);
+        PendingPackets pending = new PendingPackets(injector);
+        injector.queuePacket(pending);
+        pendingFlush.add(injector);
+        return pending;
+    }
+
+    /**
+     * Immediately flushes any packets queued for a player
+     *
+     * @param player player to flush packets for
+     */
+    public void flush(Player player) {
+        Injector injector = injections.get(player);
+        if (injector != null) {
+            pendingFlush.remove(injector);
+            injector.flushQueue();
+        }
+    }
+
+    public void flushQueued() {
+        Iterator<Injector> i = pendingFlush.iterator();
+        while (i.hasNext()) {
+            Injector injector = i.next();
+            i.remove();
+            if (!injector.isClosed()) {
+                injector.flushQueue();
+            }
+        }
+    }
+
     public void unInject(Player player) {
         if (getInjectorFor(player) == null)
             return;
@@ -128,6 +196,12 @@ public class InjectionManager {
         if (isClosed())
             return;
 
+        if (this.flushTask != null) {
+            this.flushTask.cancel();
+            this.flushTask = null;
+        }
+        this.flushQueued();
+
         for (Player player : injections.keySet()) {
             unInject(player);
         }
@@ -140,20 +214,20 @@ public class InjectionManager {
     }
 
     public void handlePacket(WrappedPacket packet, PlayerInjector injector) {
-        EnumWrappers.EntityUseAction useAction = packet.getEntityUseActions().read(0);
+        int entityId = packet.getIntegers().read(0);
+        Hologram hologram = HoloAPI.getManager().getHologramByEntityId(entityId);
+        if (hologram == null)
+            return;
 
-        for (Hologram hologram : HoloAPI.getManager().getAllHolograms().keySet()) {
-            for (int entityId : hologram.getAllEntityIds()) {
-                if (entityId == packet.getIntegers().read(0)) {
-                    for (TouchAction touchAction : hologram.getAllTouchActions()) {
-                        Action action = useAction == EnumWrappers.EntityUseAction.INTERACT ? Action.RIGHT_CLICK : Action.LEFT_CLICK;
-                        HoloTouchEvent touchEvent = new HoloTouchEvent(hologram, injector.getPlayer(), touchAction, action);
-                        HoloAPI.getCore().getServer().getPluginManager().callEvent(touchEvent);
-                        if (!touchEvent.isCancelled()) {
-                            touchAction.onTouch(injector.getPlayer(), action);
-                        }
-                    }
-                }
+        EnumWrappers.EntityUseAction useAction = packet.getEntityUseActions().read(0);
+        Action action = useAction == EnumWrappers.EntityUseAction.INTERACT ? Action.RIGHT_CLICK : Action.LEFT_CLICK;
+        int lineIndex = hologram.getLineIndex(entityId);
+
+        for (TouchAction touchAction : hologram.getAllTouchActions()) {
+            HoloTouchEvent touchEvent = new HoloTouchEvent(hologram, injector.getPlayer(), touchAction, action, lineIndex);
+            HoloAPI.getCore().getServer().getPluginManager().callEvent(touchEvent);
+            if (!touchEvent.isCancelled()) {
+                touchAction.onTouch(injector.getPlayer(), action);
             }
         }
     }
@@ -31,6 +31,22 @@ public interface Injector {
 
     public void sendPacket(Object packet);
 
+    /**
+     * Queues a packet to be written to the channel on the next call to {@link #flushQueue()}
+     * <p>
+     * Queued packets are written in the order they were queued, followed by a single flush
+     *
+     * @param packet packet to queue
+     */
+    public void queuePacket(Object packet);
+
+    /**
+     * Writes all queued packets to the channel and flushes it once
+     */
+    public void flushQueue();
+
+    public boolean hasQueuedPackets();
+
     public void receivePacket(Object packet);
 
     public Player getPlayer();
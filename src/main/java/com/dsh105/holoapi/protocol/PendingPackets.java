@@ -0,0 +1,56 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.protocol;
+
+/**
+ * A place in a player's packet queue reserved for packets that are still being built on another thread
+ * <p>
+ * Packets queued after it are held back until it has been completed, so packets always reach the player in the order
+ * they were queued, no matter which thread builds them
+ */
+public class PendingPackets {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Injector injector;
+    private volatile Object[] packets;
+
+    public PendingPackets(Injector injector) {
+        this.injector = injector;
+    }
+
+    /**
+     * Fills this place in the queue. Must be called exactly once, even if there is nothing to send, otherwise the
+     * queue is held up indefinitely
+     *
+     * @param packets packets to send in place of this one
+     */
+    public void complete(Object... packets) {
+        this.packets = packets == null ? EMPTY : packets;
+        this.injector.flushQueue();
+    }
+
+    public boolean isDone() {
+        return this.packets != null;
+    }
+
+    public Object[] getPackets() {
+        Object[] packets = this.packets;
+        return packets == null ? EMPTY : packets;
+    }
+}
@@ -27,6 +27,7 @@ import com.captainbern.reflection.accessor.FieldAccessor;
 import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.protocol.InjectionManager;
 import com.dsh105.holoapi.protocol.Injector;
+import com.dsh105.holoapi.protocol.PendingPackets;
 import com.google.common.base.Preconditions;
 import net.minecraft.util.io.netty.channel.Channel;
 import net.minecraft.util.io.netty.channel.ChannelDuplexHandler;
@@ -34,8 +35,11 @@ import net.minecraft.util.io.netty.channel.ChannelHandlerContext;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.util.concurrent.Callable;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PlayerInjector extends ChannelDuplexHandler implements Injector {
 
@@ -52,6 +56,18 @@ public class PlayerInjector extends ChannelDuplexHandler implements Injector {
     protected Object networkManager;
     protected Channel channel;
 
+    // Packets waiting for the next flush. Drained on the channel's event loop
+    protected final Queue<Object> queuedPackets = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            drainQueue();
+        }
+    };
+
     private boolean isInjected = false;
     private boolean isClosed = false;
 
@@ -85,6 +101,9 @@ public class PlayerInjector extends ChannelDuplexHandler implements Injector {
     public void close() {
         if (!this.isClosed) {
 
+            // Don't leave anything behind that was queued before closing
+            this.flushQueue();
+
             this.isClosed = true;
 
             if (this.isInjected) {
@@ -122,6 +141,58 @@ public class PlayerInjector extends ChannelDuplexHandler implements Injector {
         this.getChannel().pipeline().writeAndFlush(packet);
     }
 
+    @Override
+    public void queuePacket(Object packet) {
+        if (this.isClosed())
+            throw new IllegalStateException("The PlayerInjector is closed!");
+        this.queuedPackets.add(packet);
+    }
+
+    @Override
+    public void flushQueue() {
+        if (this.isClosed() || this.queuedPackets.isEmpty())
+            return;
+
+        Channel channel = this.getChannel();
+        if (channel.eventLoop().inEventLoop()) {
+            this.drainQueue();
+        } else if (this.flushScheduled.compareAndSet(false, true)) {
+            // One task on the event loop for the whole batch, rather than one per write
+            channel.eventLoop().execute(this.flushTask);
+        }
+    }
+
+    @Override
+    public boolean hasQueuedPackets() {
+        return !this.queuedPackets.isEmpty();
+    }
+
+    private void drainQueue() {
+        Channel channel = this.getChannel();
+        boolean written = false;
+        Object packet;
+        while ((packet = this.queuedPackets.peek()) != null) {
+            if (packet instanceof PendingPackets) {
+                PendingPackets pending = (PendingPackets) packet;
+                if (!pending.isDone()) {
+                    // Completing it flushes the queue again
+                    break;
+                }
+                for (Object pendingPacket : pending.getPackets()) {
+                    channel.write(pendingPacket);
+                    written = true;
+                }
+            } else {
+                channel.write(packet);
+                written = true;
+            }
+            this.queuedPackets.poll();
+        }
+        if (written) {
+            channel.flush();
+        }
+    }
+
     @Override
     public void receivePacket(Object packet) {
         if (this.isClosed())
@@ -182,7 +253,8 @@ public class PlayerInjector extends ChannelDuplexHandler implements Injector {
         // Handle the packet
         final WrappedPacket packet = new WrappedPacket(msg);
 
-        if (packet.getPacketType().equals(PacketType.Play.Client.USE_ENTITY))
+        // Hologram entities always use negative IDs, so there's no need to go to the main thread for anything else
+        if (packet.getPacketType().equals(PacketType.Play.Client.USE_ENTITY) && packet.getIntegers().read(0) < 0)
             Bukkit.getScheduler().scheduleSyncDelayedTask(HoloAPI.getCore(), new Runnable() {
                 @Override
                 public void run() {
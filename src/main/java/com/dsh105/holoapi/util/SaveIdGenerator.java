@@ -18,17 +18,31 @@
 package com.dsh105.holoapi.util;
 
 import com.dsh105.holoapi.HoloAPI;
-import com.dsh105.holoapi.config.ConfigType;
 
 public class SaveIdGenerator {
 
     private static int nextId = 0;
 
-    public static int nextId() {
-        int i = ++nextId;
-        if (HoloAPI.getConfig(ConfigType.DATA).getConfigurationSection("holograms." + i) != null) {
-            return nextId();
-        }
+    public static synchronized int nextId() {
+        int i;
+        do {
+            i = ++nextId;
+            // Holograms that haven't been saved yet won't be found in the store
+        } while (HoloAPI.getHologramStore().contains(i + "") || HoloAPI.getManager().getHologram(i + "") != null);
         return i;
     }
+
+    /**
+     * Moves the generator past a save ID that is already in use, so that new IDs don't have to be checked against
+     * every saved hologram before a free one is found
+     *
+     * @param saveId save ID in use
+     */
+    public static synchronized void observe(String saveId) {
+        try {
+            nextId = Math.max(nextId, Integer.parseInt(saveId));
+        } catch (NumberFormatException ignored) {
+            // Non-numeric save IDs can never clash with generated ones
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.dsh105.holoapi.util;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each phase of loading holograms takes, so that a slow startup can be narrowed down to a phase
+ * <p>
+ * Phases may overlap and may end on any thread
+ */
+public class StartupTimings {
+
+    private final long startedAt = System.nanoTime();
+    private final LinkedHashMap<String, Long> started = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> durations = new LinkedHashMap<>();
+
+    public synchronized void begin(String phase) {
+        this.started.put(phase, System.nanoTime());
+    }
+
+    public synchronized void end(String phase) {
+        Long start = this.started.get(phase);
+        if (start != null) {
+            this.durations.put(phase, (System.nanoTime() - start) / 1000000L);
+        }
+    }
+
+    /**
+     * Ends a phase once a future completes
+     *
+     * @param phase  phase to end
+     * @param future future that completes at the end of the phase
+     */
+    public void endWhenDone(final String phase, ListenableFuture<?> future) {
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                end(phase);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * Gets the time since loading began
+     *
+     * @return milliseconds since these timings were created
+     */
+    public long getElapsed() {
+        return (System.nanoTime() - this.startedAt) / 1000000L;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> entry : this.started.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            Long duration = this.durations.get(entry.getKey());
+            builder.append(entry.getKey()).append(": ").append(duration == null ? "unfinished" : duration + "ms");
+        }
+        return builder.toString();
+    }
+}
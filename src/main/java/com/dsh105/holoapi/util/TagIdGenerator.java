@@ -14,18 +14,248 @@
  * You should have received a copy of the GNU General Public License
  * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package com.dsh105.holoapi.util;
 
-import com.dsh105.holoapi.HoloAPI;
 import com.dsh105.holoapi.api.HologramImpl;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Allocates ranges of entity IDs for holograms
+ * <p>
+ * IDs are taken from a band of negative numbers so that they never clash with real entities. Ranges given back through
+ * {@link #release(int)} are kept in a free list, merged with their neighbours, and reused for later holograms using a
+ * best fit. This keeps short-lived holograms such as chat bubbles from using up the band over time
+ * <p>
+ * Every allocation or reservation of a range is given a new stamp. A hologram that was released and is tracked again
+ * uses its stamp to tell whether the range it held is still its own, or has since been handed to another hologram
+ */
 public class TagIdGenerator {
 
     // yay, negative IDs
-    private volatile static int SHARED_HOLO_ID = 0;
+    private static final long BAND_END = Integer.MIN_VALUE;
+
+    // Everything from here up to 0 has been handed out at some point
+    private static int BAND_POSITION = 0;
+
+    // First ID -> size, for free and live ranges
+    private static final TreeMap<Integer, Integer> FREE = new TreeMap<>();
+    private static final HashMap<Integer, Integer> LIVE = new HashMap<>();
+    // First ID -> stamp, for live ranges
+    private static final HashMap<Integer, Long> STAMPS = new HashMap<>();
+    private static long LAST_STAMP;
+    private static long LIVE_IDS;
+
+    /**
+     * Allocates a range of entity IDs large enough for a number of hologram lines
+     *
+     * @param counter number of lines the range is for
+     * @return first ID of the allocated range
+     */
+    public static synchronized int next(int counter) {
+        return allocate(Math.max(1, counter) * HologramImpl.TAG_ENTITY_MULTIPLIER);
+    }
+
+    // Same as next(int), but with the size in entity IDs rather than lines
+    static synchronized int allocate(int size) {
+        Map.Entry<Integer, Integer> bestFit = null;
+        for (Map.Entry<Integer, Integer> entry : FREE.entrySet()) {
+            if (entry.getValue() >= size && (bestFit == null || entry.getValue() < bestFit.getValue())) {
+                bestFit = entry;
+                if (entry.getValue() == size) {
+                    break;
+                }
+            }
+        }
+
+        int first;
+        if (bestFit != null) {
+            first = bestFit.getKey();
+            FREE.remove(first);
+            if (bestFit.getValue() > size) {
+                FREE.put(first + size, bestFit.getValue() - size);
+            }
+        } else {
+            if ((long) BAND_POSITION - size < BAND_END) {
+                throw new IllegalStateException("No entity IDs left to allocate " + size + " IDs (" + LIVE.size() + " live ranges)");
+            }
+            BAND_POSITION -= size;
+            first = BAND_POSITION;
+        }
+        live(first, size);
+        return first;
+    }
+
+    /**
+     * Gets the stamp of a live range
+     *
+     * @param first first ID of the range
+     * @return stamp the range was allocated or reserved under, or 0 if it isn't live
+     */
+    public static synchronized long getStamp(int first) {
+        Long stamp = STAMPS.get(first);
+        return stamp == null ? 0 : stamp;
+    }
+
+    /**
+     * Reserves a specific range of entity IDs for a hologram that held it before. Used when a hologram that was
+     * previously released is tracked again
+     *
+     * @param first   first ID of the range
+     * @param counter number of lines the range is for
+     * @param stamp   stamp the hologram last held the range under, or 0 if it never did
+     * @return stamp of the reserved range, or 0 if part of it is in use by another hologram
+     */
+    public static synchronized long reserve(int first, int counter, long stamp) {
+        return reserveRange(first, Math.max(1, counter) * HologramImpl.TAG_ENTITY_MULTIPLIER, stamp);
+    }
+
+    // Same as reserve(int, int, long), but with the size in entity IDs rather than lines
+    static synchronized long reserveRange(int first, int size, long stamp) {
+        Integer liveSize = LIVE.get(first);
+        if (liveSize != null) {
+            // Still reserved only if it was never released, rather than released and handed to someone else
+            return stamp != 0 && liveSize == size && STAMPS.get(first) == stamp ? stamp : 0;
+        }
+        long end = (long) first + size;
+        if (first >= 0 || end > 0 || first < BAND_END) {
+            return 0;
+        }
+
+        if (end <= BAND_POSITION) {
+            // Below everything allocated so far. Anything skipped over becomes free
+            if (end < BAND_POSITION) {
+                free((int) end, BAND_POSITION - (int) end);
+            }
+            BAND_POSITION = first;
+        } else {
+            Map.Entry<Integer, Integer> range = FREE.floorEntry(first);
+            if (first < BAND_POSITION || range == null || (long) range.getKey() + range.getValue() < end) {
+                return 0;
+            }
+            FREE.remove(range.getKey());
+            if (range.getKey() < first) {
+                FREE.put(range.getKey(), first - range.getKey());
+            }
+            long rangeEnd = (long) range.getKey() + range.getValue();
+            if (rangeEnd > end) {
+                FREE.put((int) end, (int) (rangeEnd - end));
+            }
+        }
+        return live(first, size);
+    }
+
+    private static long live(int first, int size) {
+        LIVE.put(first, size);
+        LIVE_IDS += size;
+        long stamp = ++LAST_STAMP;
+        STAMPS.put(first, stamp);
+        return stamp;
+    }
+
+    /**
+     * Gives a range of entity IDs back so that it can be reused
+     *
+     * @param first first ID of the range, as returned by {@link #next(int)}
+     * @return true if the range was live and has been released
+     */
+    public static synchronized boolean release(int first) {
+        Integer size = LIVE.remove(first);
+        if (size == null) {
+            return false;
+        }
+        STAMPS.remove(first);
+        LIVE_IDS -= size;
+        free(first, size);
+        return true;
+    }
+
+    private static void free(int first, int size) {
+        int start = first;
+        long end = (long) first + size;
+
+        Map.Entry<Integer, Integer> lower = FREE.lowerEntry(start);
+        if (lower != null && (long) lower.getKey() + lower.getValue() == start) {
+            FREE.remove(lower.getKey());
+            start = lower.getKey();
+        }
+        Integer higher = end < 0 ? FREE.remove((int) end) : null;
+        if (higher != null) {
+            end += higher;
+        }
+
+        if (start == BAND_POSITION) {
+            // Adjoins the unallocated part of the band, so just give it back to that
+            BAND_POSITION = (int) end;
+        } else {
+            FREE.put(start, (int) (end - start));
+        }
+    }
+
+    // Forgets every range, live or free. Only used by tests
+    static synchronized void clear() {
+        BAND_POSITION = 0;
+        FREE.clear();
+        LIVE.clear();
+        STAMPS.clear();
+        LIVE_IDS = 0;
+    }
+
+    /**
+     * Gets the number of ranges currently allocated
+     *
+     * @return number of live ranges
+     */
+    public static synchronized int getLiveRangeCount() {
+        return LIVE.size();
+    }
+
+    /**
+     * Gets the number of entity IDs currently allocated
+     *
+     * @return number of live IDs
+     */
+    public static synchronized long getLiveIdCount() {
+        return LIVE_IDS;
+    }
+
+    /**
+     * Gets the number of free ranges sitting between live ranges. A high number means the band is fragmented
+     *
+     * @return number of free ranges
+     */
+    public static synchronized int getFreeRangeCount() {
+        return FREE.size();
+    }
+
+    /**
+     * Gets the number of entity IDs in free ranges between live ranges
+     *
+     * @return number of free IDs
+     */
+    public static synchronized long getFreeIdCount() {
+        long count = 0;
+        for (int size : FREE.values()) {
+            count += size;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of entity IDs that have never been allocated
+     *
+     * @return number of unused IDs left in the band
+     */
+    public static synchronized long getRemainingIdCount() {
+        return BAND_POSITION - BAND_END;
+    }
 
-    public static int next(int counter) {
-        return SHARED_HOLO_ID -= counter * HologramImpl.TAG_ENTITY_MULTIPLIER;
+    /**
+     * Logs the state of the allocator to the debugger
+     */
+    public static synchronized void logStats() {
+        Debugger.getInstance().log(3, "Entity IDs: " + LIVE_IDS + " live in " + LIVE.size() + " ranges, " + getFreeIdCount() + " free in " + FREE.size() + " ranges, " + getRemainingIdCount() + " unused");
     }
-}
\ No newline at end of file
+}
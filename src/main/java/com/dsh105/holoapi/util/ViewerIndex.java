@@ -0,0 +1,52 @@
+/*
+ * This file is part of HoloAPI.
+ *
+ * HoloAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * HoloAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with HoloAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.dsh105.holoapi.util;
+
+import com.dsh105.commodus.IdentUtil;
+import org.bukkit.entity.Player;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Assigns each online player a small integer index, so that per-viewer data can be kept in arrays rather than maps
+ * <p>
+ * Indexes are released when a player leaves and reused for the next player to join
+ */
+public class ViewerIndex {
+
+    private static final HashMap<String, Integer> INDEXES = new HashMap<>();
+    private static final BitSet USED = new BitSet();
+
+    public static synchronized int of(Player player) {
+        String ident = IdentUtil.getIdentificationForAsString(player);
+        Integer index = INDEXES.get(ident);
+        if (index == null) {
+            index = USED.nextClearBit(0);
+            USED.set(index);
+            INDEXES.put(ident, index);
+        }
+        return index;
+    }
+
+    public static synchronized void release(Player player) {
+        Integer index = INDEXES.remove(IdentUtil.getIdentificationForAsString(player));
+        if (index != null) {
+            USED.clear(index);
+        }
+    }
+}
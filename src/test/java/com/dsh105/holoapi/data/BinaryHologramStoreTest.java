@@ -0,0 +1,209 @@
+package com.dsh105.holoapi.data;
+
+import com.dsh105.commodus.logging.Log;
+import com.dsh105.holoapi.HoloAPI;
+import com.dsh105.holoapi.api.StoredTag;
+import com.dsh105.holoapi.image.Frame;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.*;
+
+public class BinaryHologramStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        if (HoloAPI.LOG == null) {
+            HoloAPI.LOG = new Log("HoloAPI");
+        }
+        this.file = new File(this.folder.getRoot(), "holograms.dat");
+    }
+
+    @Test
+    public void testRoundTrip() {
+        BinaryHologramStore store = new BinaryHologramStore(null, this.file);
+        HologramRecord lines = this.record("lines", "Hello", "World");
+        lines.getLines().set(1, new StoredTag("creeper", true));
+        LinkedHashMap<String, Object> touchAction = new LinkedHashMap<>();
+        touchAction.put("command", "say hi");
+        touchAction.put("asConsole", true);
+        lines.getTouchActions().put("0", touchAction);
+        store.save(lines);
+
+        HologramRecord frames = new HologramRecord("frames", "world", 1, 2, 3);
+        frames.setFrames(Arrays.asList(new Frame(5, "a", "b"), new Frame(10, "c")));
+        store.save(frames);
+
+        HologramRecord animation = new HologramRecord("animation", "world", -1.5, 64, 0.25);
+        animation.setAnimationKey("loading");
+        store.save(animation);
+        store.flush();
+
+        store = new BinaryHologramStore(null, this.file);
+        assertEquals(3, store.getSaveIds().size());
+
+        HologramRecord loaded = store.load("lines");
+        assertEquals("world", loaded.getWorldName());
+        assertEquals(2, loaded.getLines().size());
+        assertEquals("Hello", loaded.getLines().get(0).getContent());
+        assertFalse(loaded.getLines().get(0).isImage());
+        assertEquals("creeper", loaded.getLines().get(1).getContent());
+        assertTrue(loaded.getLines().get(1).isImage());
+        assertEquals("say hi", loaded.getTouchActions().get("0").get("command"));
+        assertEquals(true, loaded.getTouchActions().get("0").get("asConsole"));
+
+        loaded = store.load("frames");
+        assertEquals(2, loaded.getFrames().size());
+        assertEquals(5, loaded.getFrames().get(0).getDelay());
+        assertEquals("b", loaded.getFrames().get(0).getLines()[1]);
+        assertEquals("c", loaded.getFrames().get(1).getLines()[0]);
+
+        loaded = store.load("animation");
+        assertEquals("loading", loaded.getAnimationKey());
+        assertEquals(-1.5, loaded.getX(), 0);
+        assertEquals(64, loaded.getY(), 0);
+        assertEquals(0.25, loaded.getZ(), 0);
+    }
+
+    @Test
+    public void testRemove() {
+        BinaryHologramStore store = new BinaryHologramStore(null, this.file);
+        store.save(this.record("a", "A"));
+        store.save(this.record("b", "B"));
+        store.flush();
+
+        store.remove("a");
+        // Removals count before they are written
+        assertFalse(store.contains("a"));
+        assertEquals(1, store.getSaveIds().size());
+        store.flush();
+
+        store = new BinaryHologramStore(null, this.file);
+        assertFalse(store.contains("a"));
+        assertTrue(store.contains("b"));
+        assertEquals(1, store.loadAll().size());
+    }
+
+    @Test
+    public void testRecoversIncompleteTail() throws IOException {
+        BinaryHologramStore store = new BinaryHologramStore(null, this.file);
+        store.save(this.record("a", "A"));
+        store.flush();
+        long length = this.file.length();
+
+        // A record header promising more than was written, as if the server stopped mid-write
+        RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+        try {
+            raf.seek(length);
+            raf.writeInt(1000);
+            raf.writeInt(0);
+            raf.write(new byte[]{1, 2, 3});
+        } finally {
+            raf.close();
+        }
+
+        store = new BinaryHologramStore(null, this.file);
+        assertTrue(store.contains("a"));
+        assertEquals(length, store.getFileLength());
+        assertEquals(length, this.file.length());
+
+        store.save(this.record("b", "B"));
+        store.flush();
+        store = new BinaryHologramStore(null, this.file);
+        assertEquals("A", store.load("a").getLines().get(0).getContent());
+        assertEquals("B", store.load("b").getLines().get(0).getContent());
+    }
+
+    @Test
+    public void testChecksumEndsLog() throws IOException {
+        BinaryHologramStore store = new BinaryHologramStore(null, this.file);
+        store.save(this.record("a", "A"));
+        store.flush();
+        long length = this.file.length();
+        store.save(this.record("b", "B"));
+        store.flush();
+
+        RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+        try {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        store = new BinaryHologramStore(null, this.file);
+        assertTrue(store.contains("a"));
+        assertFalse(store.contains("b"));
+        assertEquals(length, this.file.length());
+    }
+
+    @Test
+    public void testMovesUnreadableFileAside() throws IOException {
+        byte[] contents = "holograms: {}".getBytes("UTF-8");
+        Files.write(this.file.toPath(), contents);
+
+        BinaryHologramStore store = new BinaryHologramStore(null, this.file);
+        File corrupt = new File(this.folder.getRoot(), "holograms.dat.corrupt");
+        assertTrue(corrupt.exists());
+        assertTrue(Arrays.equals(contents, Files.readAllBytes(corrupt.toPath())));
+        assertTrue(store.getSaveIds().isEmpty());
+
+        store.save(this.record("a", "A"));
+        store.flush();
+        store = new BinaryHologramStore(null, this.file);
+        assertTrue(store.contains("a"));
+    }
+
+    @Test
+    public void testCompacts() {
+        BinaryHologramStore store = new BinaryHologramStore(null, this.file);
+        store.save(this.record("other", "Other"));
+        char[] padding = new char[4096];
+        Arrays.fill(padding, '-');
+
+        boolean compacted = false;
+        long length = store.getFileLength();
+        for (int i = 0; i < 200; i++) {
+            store.save(this.record("a", i + new String(padding)));
+            store.flush();
+            if (store.getFileLength() < length) {
+                compacted = true;
+            }
+            length = store.getFileLength();
+        }
+        assertTrue(compacted);
+        assertTrue(store.getFileLength() < 256 * 1024);
+        assertEquals(this.file.length(), store.getFileLength());
+
+        store = new BinaryHologramStore(null, this.file);
+        assertEquals(2, store.getSaveIds().size());
+        assertTrue(store.load("a").getLines().get(0).getContent().startsWith("199-"));
+        assertEquals("Other", store.load("other").getLines().get(0).getContent());
+    }
+
+    private HologramRecord record(String saveId, String... lines) {
+        HologramRecord record = new HologramRecord(saveId, "world", 0, 0, 0);
+        StoredTag[] tags = new StoredTag[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            tags[i] = new StoredTag(lines[i], false);
+        }
+        record.setLines(Arrays.asList(tags));
+        return record;
+    }
+}
@@ -0,0 +1,124 @@
+package com.dsh105.holoapi.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TagIdGeneratorTest {
+
+    @Before
+    public void clear() {
+        TagIdGenerator.clear();
+    }
+
+    @Test
+    public void testAllocatesDownwards() {
+        assertEquals(-8, TagIdGenerator.allocate(8));
+        assertEquals(-12, TagIdGenerator.allocate(4));
+        assertEquals(2, TagIdGenerator.getLiveRangeCount());
+        assertEquals(12, TagIdGenerator.getLiveIdCount());
+        assertEquals(0, TagIdGenerator.getFreeRangeCount());
+    }
+
+    @Test
+    public void testReusesBestFit() {
+        int a = TagIdGenerator.allocate(8);
+        TagIdGenerator.allocate(4);
+        int c = TagIdGenerator.allocate(16);
+        TagIdGenerator.allocate(4);
+
+        assertTrue(TagIdGenerator.release(a));
+        assertTrue(TagIdGenerator.release(c));
+        assertFalse(TagIdGenerator.release(c));
+        assertEquals(2, TagIdGenerator.getFreeRangeCount());
+
+        // The exact fit is taken over the larger range
+        assertEquals(a, TagIdGenerator.allocate(8));
+        // What's left of a split range stays free
+        assertEquals(c, TagIdGenerator.allocate(4));
+        assertEquals(1, TagIdGenerator.getFreeRangeCount());
+        assertEquals(12, TagIdGenerator.getFreeIdCount());
+        assertEquals(c + 4, TagIdGenerator.allocate(12));
+        assertEquals(0, TagIdGenerator.getFreeRangeCount());
+    }
+
+    @Test
+    public void testMergesFreedRanges() {
+        int a = TagIdGenerator.allocate(4);
+        int b = TagIdGenerator.allocate(4);
+        int c = TagIdGenerator.allocate(4);
+        int d = TagIdGenerator.allocate(4);
+        long remaining = TagIdGenerator.getRemainingIdCount();
+
+        TagIdGenerator.release(b);
+        TagIdGenerator.release(a);
+        assertEquals(1, TagIdGenerator.getFreeRangeCount());
+        assertEquals(8, TagIdGenerator.getFreeIdCount());
+
+        TagIdGenerator.release(c);
+        assertEquals(1, TagIdGenerator.getFreeRangeCount());
+        assertEquals(12, TagIdGenerator.getFreeIdCount());
+
+        // Freeing the lowest range gives everything back to the unallocated part of the band
+        TagIdGenerator.release(d);
+        assertEquals(0, TagIdGenerator.getFreeRangeCount());
+        assertEquals(0, TagIdGenerator.getLiveRangeCount());
+        assertEquals(remaining + 16, TagIdGenerator.getRemainingIdCount());
+        assertEquals(-12, TagIdGenerator.allocate(12));
+    }
+
+    @Test
+    public void testReserve() {
+        // Reserving below the allocated part of the band frees everything skipped over
+        assertTrue(TagIdGenerator.reserveRange(-20, 4, 0) != 0);
+        assertEquals(1, TagIdGenerator.getFreeRangeCount());
+        assertEquals(16, TagIdGenerator.getFreeIdCount());
+        assertEquals(-16, TagIdGenerator.allocate(4));
+
+        // Reserving inside a free range splits it
+        long stamp = TagIdGenerator.reserveRange(-8, 4, 0);
+        assertTrue(stamp != 0);
+        assertEquals(stamp, TagIdGenerator.getStamp(-8));
+        assertEquals(2, TagIdGenerator.getFreeRangeCount());
+        assertEquals(8, TagIdGenerator.getFreeIdCount());
+        // Reserving a live range again only succeeds for whoever holds it, and only with the same size
+        assertEquals(stamp, TagIdGenerator.reserveRange(-8, 4, stamp));
+        assertEquals(0, TagIdGenerator.reserveRange(-8, 4, 0));
+        assertEquals(0, TagIdGenerator.reserveRange(-8, 4, stamp + 1));
+        assertEquals(0, TagIdGenerator.reserveRange(-8, 8, stamp));
+        assertEquals(3, TagIdGenerator.getLiveRangeCount());
+
+        // Ranges overlapping live ones can't be reserved
+        assertEquals(0, TagIdGenerator.reserveRange(-14, 4, 0));
+        assertEquals(0, TagIdGenerator.reserveRange(-12, 8, 0));
+        assertEquals(0, TagIdGenerator.reserveRange(-24, 8, 0));
+        // Neither can ranges outside the band
+        assertEquals(0, TagIdGenerator.reserveRange(0, 4, 0));
+        assertEquals(0, TagIdGenerator.reserveRange(-2, 4, 0));
+
+        assertTrue(TagIdGenerator.reserveRange(-4, 4, 0) != 0);
+        assertTrue(TagIdGenerator.reserveRange(-12, 4, 0) != 0);
+        assertEquals(0, TagIdGenerator.getFreeRangeCount());
+        assertEquals(20, TagIdGenerator.getLiveIdCount());
+    }
+
+    @Test
+    public void testReserveAfterRangeReused() {
+        int first = TagIdGenerator.allocate(8);
+        long stamp = TagIdGenerator.getStamp(first);
+        assertTrue(stamp != 0);
+        TagIdGenerator.release(first);
+        assertEquals(0, TagIdGenerator.getStamp(first));
+
+        // Another hologram of the same size is given exactly the same range
+        assertEquals(first, TagIdGenerator.allocate(8));
+        long otherStamp = TagIdGenerator.getStamp(first);
+        assertTrue(otherStamp != stamp);
+
+        // So the hologram that held it before must not get it back
+        assertEquals(0, TagIdGenerator.reserveRange(first, 8, stamp));
+        assertEquals(otherStamp, TagIdGenerator.reserveRange(first, 8, otherStamp));
+        assertEquals(1, TagIdGenerator.getLiveRangeCount());
+    }
+}